@@ -0,0 +1,449 @@
+package ca.ibodrov.concord.testcontainers.bench;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2020 Ivan Bodrov
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import ca.ibodrov.concord.testcontainers.Concord;
+import ca.ibodrov.concord.testcontainers.ConcordEnvironment;
+import ca.ibodrov.concord.testcontainers.ConcordProcess;
+import ca.ibodrov.concord.testcontainers.LatencyHistogram;
+import ca.ibodrov.concord.testcontainers.Payload;
+import ca.ibodrov.concord.testcontainers.PayloadTemplate;
+import ca.ibodrov.concord.testcontainers.Processes;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.walmartlabs.concord.client2.ApiClient;
+import com.walmartlabs.concord.client2.ProcessEntry;
+import com.walmartlabs.concord.client2.ProcessEntry.StatusEnum;
+import com.walmartlabs.concord.client2.ProcessStatusHistoryEntry;
+import com.walmartlabs.concord.client2.ProcessV2Api;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+/**
+ * Drives a workload of Concord processes and measures the latency and
+ * the throughput.
+ * <p/>
+ * Two workload models are supported:
+ * <ul>
+ *     <li>{@link #closedLoop(int)} - a fixed number of workers, each starts
+ *     a process and waits for it to finish before starting the next one;</li>
+ *     <li>{@link #openLoop(double)} - processes are started at a fixed rate
+ *     regardless of how many processes are still running. The end-to-end latency
+ *     is measured from the scheduled start time, so delays caused by
+ *     the load generator itself are not hidden.</li>
+ * </ul>
+ * The recorded latencies are:
+ * <ul>
+ *     <li>submit to RUNNING and RUNNING to FINISHED - calculated using
+ *     the server's status history, not affected by the poll interval;</li>
+ *     <li>end-to-end - measured by the client, from the (scheduled) submit
+ *     until the final status is observed.</li>
+ * </ul>
+ * Works with any {@link ConcordEnvironment}, including {@link Concord.Mode#REMOTE}.
+ * <pre>{@code
+ * LoadTestResult result = LoadTest.openLoop(5)
+ *         .payload(new Payload().concordYml(yml))
+ *         .warmup(Duration.ofSeconds(10))
+ *         .duration(Duration.ofMinutes(1))
+ *         .run(concord);
+ *
+ * result.writeJson(Paths.get("target/load-test.json"));
+ * }</pre>
+ */
+public class LoadTest {
+
+    private static final Logger log = LoggerFactory.getLogger(LoadTest.class);
+
+    private static final Set<StatusEnum> FINAL_STATUSES = Set.of(StatusEnum.FINISHED, StatusEnum.FAILED,
+            StatusEnum.CANCELLED, StatusEnum.TIMED_OUT);
+
+    private static final Set<String> HISTORY = Set.of("history");
+
+    public enum Mode {
+        CLOSED_LOOP,
+        OPEN_LOOP
+    }
+
+    /**
+     * Creates a workload with the specified number of concurrent workers.
+     */
+    public static LoadTest closedLoop(int concurrency) {
+        if (concurrency <= 0) {
+            throw new IllegalArgumentException("'concurrency' must be greater than zero");
+        }
+        return new LoadTest(Mode.CLOSED_LOOP, concurrency, 0);
+    }
+
+    /**
+     * Creates a workload that starts the specified number of processes per second.
+     */
+    public static LoadTest openLoop(double arrivalRate) {
+        if (arrivalRate <= 0) {
+            throw new IllegalArgumentException("'arrivalRate' must be greater than zero");
+        }
+        return new LoadTest(Mode.OPEN_LOOP, 0, arrivalRate);
+    }
+
+    private final Mode mode;
+    private final int concurrency;
+    private final double arrivalRate;
+
+    private Supplier<Payload> payload;
+    private Duration duration = Duration.ofMinutes(1);
+    private Duration warmup = Duration.ZERO;
+    private Duration pollInterval = Duration.ofMillis(250);
+    private Duration drainTimeout = Duration.ofMinutes(1);
+    private int maxInFlight = 1000;
+    private int submitThreads = 4;
+
+    private LoadTest(Mode mode, int concurrency, double arrivalRate) {
+        this.mode = mode;
+        this.concurrency = concurrency;
+        this.arrivalRate = arrivalRate;
+    }
+
+    /**
+     * The payload to use for each process. The payload's parts are shared
+     * between all processes.
+     *
+     * @see PayloadTemplate
+     */
+    public LoadTest payload(Payload payload) {
+        PayloadTemplate template = PayloadTemplate.of(payload);
+        return payload(template::newPayload);
+    }
+
+    /**
+     * Creates a payload for each process.
+     */
+    public LoadTest payload(Supplier<Payload> payload) {
+        this.payload = payload;
+        return this;
+    }
+
+    /**
+     * How long to generate the load for, not including the warmup.
+     * Default is 1 minute.
+     */
+    public LoadTest duration(Duration duration) {
+        this.duration = duration;
+        return this;
+    }
+
+    /**
+     * Processes started during the warmup period are not included in the results.
+     * Default is zero.
+     */
+    public LoadTest warmup(Duration warmup) {
+        this.warmup = warmup;
+        return this;
+    }
+
+    /**
+     * How often to check the status of running processes. Default is 250ms.
+     */
+    public LoadTest pollInterval(Duration pollInterval) {
+        this.pollInterval = pollInterval;
+        return this;
+    }
+
+    /**
+     * How long to wait for the running processes to finish once the load
+     * generation stops. Processes still running after that are reported
+     * as "unfinished". Default is 1 minute.
+     */
+    public LoadTest drainTimeout(Duration drainTimeout) {
+        this.drainTimeout = drainTimeout;
+        return this;
+    }
+
+    /**
+     * Open loop only. Max number of processes that can be running at the same time.
+     * Processes above the limit are not started and reported as "rejected".
+     * Default is 1000.
+     */
+    public LoadTest maxInFlight(int maxInFlight) {
+        this.maxInFlight = maxInFlight;
+        return this;
+    }
+
+    /**
+     * Open loop only. Number of threads used to send the start requests.
+     * Default is 4.
+     */
+    public LoadTest submitThreads(int submitThreads) {
+        this.submitThreads = submitThreads;
+        return this;
+    }
+
+    public LoadTestResult run(Concord<?> concord) throws InterruptedException {
+        return run(concord.apiClient());
+    }
+
+    public LoadTestResult run(ApiClient client) throws InterruptedException {
+        if (payload == null) {
+            throw new IllegalStateException("'payload' is required");
+        }
+
+        return new Run(client).execute();
+    }
+
+    private static final class Tracked {
+
+        private final UUID instanceId;
+        private final long startNanos;
+        private final CompletableFuture<Void> done = new CompletableFuture<>();
+
+        private Tracked(UUID instanceId, long startNanos) {
+            this.instanceId = instanceId;
+            this.startNanos = startNanos;
+        }
+    }
+
+    private final class Run {
+
+        private final Processes processes;
+        private final ProcessV2Api processApi;
+
+        private final ConcurrentMap<UUID, Tracked> inFlight = new ConcurrentHashMap<>();
+        private final AtomicInteger pending = new AtomicInteger();
+
+        private final AtomicLong submitted = new AtomicLong();
+        private final AtomicLong finished = new AtomicLong();
+        private final AtomicLong failed = new AtomicLong();
+        private final AtomicLong errors = new AtomicLong();
+        private final AtomicLong rejected = new AtomicLong();
+
+        private final LatencyHistogram submitToRunning = new LatencyHistogram();
+        private final LatencyHistogram runningToFinished = new LatencyHistogram();
+        private final LatencyHistogram endToEnd = new LatencyHistogram();
+
+        private long measureFrom;
+        private long deadline;
+
+        private Run(ApiClient client) {
+            this.processes = new Processes(client);
+            this.processApi = new ProcessV2Api(client);
+        }
+
+        LoadTestResult execute() throws InterruptedException {
+            long start = System.nanoTime();
+            measureFrom = start + warmup.toNanos();
+            deadline = measureFrom + duration.toNanos();
+
+            ScheduledExecutorService tracker = Executors.newSingleThreadScheduledExecutor(threadFactory("concord-load-tracker-%d"));
+            tracker.scheduleWithFixedDelay(this::poll, pollInterval.toNanos(), pollInterval.toNanos(), TimeUnit.NANOSECONDS);
+
+            ExecutorService executor = null;
+            int unfinished;
+            try {
+                if (mode == Mode.CLOSED_LOOP) {
+                    executor = Executors.newFixedThreadPool(concurrency, threadFactory("concord-load-worker-%d"));
+                    for (int i = 0; i < concurrency; i++) {
+                        executor.execute(this::worker);
+                    }
+                    sleepUntil(deadline);
+                } else {
+                    executor = Executors.newFixedThreadPool(submitThreads, threadFactory("concord-load-submit-%d"));
+                    generate(start, executor);
+                }
+
+                // wait for the remaining processes
+                long drainDeadline = System.nanoTime() + drainTimeout.toNanos();
+                while ((pending.get() > 0 || !inFlight.isEmpty()) && System.nanoTime() < drainDeadline) {
+                    Thread.sleep(pollInterval.toMillis());
+                }
+            } finally {
+                tracker.shutdownNow();
+                tracker.awaitTermination(1, TimeUnit.MINUTES);
+
+                // only the processes started after the warmup, same as the other counters
+                unfinished = (int) inFlight.values().stream()
+                        .filter(t -> t.startNanos >= measureFrom)
+                        .count();
+                inFlight.values().forEach(t -> t.done.complete(null));
+                inFlight.clear();
+
+                if (executor != null) {
+                    executor.shutdownNow();
+                }
+            }
+
+            return new LoadTestResult(mode, concurrency, arrivalRate, duration,
+                    submitted.get(), finished.get(), failed.get(), errors.get(), rejected.get(), unfinished,
+                    submitToRunning, runningToFinished, endToEnd);
+        }
+
+        private void worker() {
+            while (System.nanoTime() < deadline && !Thread.currentThread().isInterrupted()) {
+                pending.incrementAndGet();
+                Tracked t = submit(System.nanoTime());
+                if (t == null) {
+                    // don't spin if the server is unavailable
+                    LockSupport.parkNanos(pollInterval.toNanos());
+                    continue;
+                }
+
+                try {
+                    t.done.get();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (ExecutionException e) {
+                    // not completed exceptionally
+                }
+            }
+        }
+
+        private void generate(long start, ExecutorService executor) throws InterruptedException {
+            long period = (long) (TimeUnit.SECONDS.toNanos(1) / arrivalRate);
+            for (long i = 0; ; i++) {
+                long scheduled = start + i * period;
+                if (scheduled >= deadline) {
+                    break;
+                }
+
+                sleepUntil(scheduled);
+
+                if (inFlight.size() + pending.get() >= maxInFlight) {
+                    if (scheduled >= measureFrom) {
+                        rejected.incrementAndGet();
+                    }
+                    continue;
+                }
+
+                pending.incrementAndGet();
+                executor.execute(() -> submit(scheduled));
+            }
+        }
+
+        /**
+         * Must be called after incrementing {@link #pending}.
+         */
+        private Tracked submit(long startNanos) {
+            try {
+                ConcordProcess p = processes.start(payload.get());
+                if (startNanos >= measureFrom) {
+                    submitted.incrementAndGet();
+                }
+
+                Tracked t = new Tracked(p.instanceId(), startNanos);
+                inFlight.put(t.instanceId, t);
+                return t;
+            } catch (Exception e) {
+                if (startNanos >= measureFrom) {
+                    errors.incrementAndGet();
+                }
+                log.warn("submit -> error: {}", e.getMessage());
+                return null;
+            } finally {
+                pending.decrementAndGet();
+            }
+        }
+
+        private void poll() {
+            for (Tracked t : inFlight.values()) {
+                try {
+                    ProcessEntry entry = processApi.getProcess(t.instanceId, HISTORY);
+                    if (entry == null || !FINAL_STATUSES.contains(entry.getStatus())) {
+                        continue;
+                    }
+
+                    long observedNanos = System.nanoTime();
+                    inFlight.remove(t.instanceId);
+                    try {
+                        record(t, entry, observedNanos);
+                    } finally {
+                        t.done.complete(null);
+                    }
+                } catch (Exception e) {
+                    // try again on the next poll
+                    log.warn("poll ['{}'] -> error: {}", t.instanceId, e.getMessage());
+                }
+            }
+        }
+
+        private void record(Tracked t, ProcessEntry entry, long observedNanos) {
+            if (t.startNanos < measureFrom) {
+                return;
+            }
+
+            if (entry.getStatus() != StatusEnum.FINISHED) {
+                failed.incrementAndGet();
+                return;
+            }
+
+            finished.incrementAndGet();
+            endToEnd.recordNanos(observedNanos - t.startNanos);
+
+            if (entry.getStatusHistory() == null) {
+                return;
+            }
+
+            OffsetDateTime runningAt = null;
+            OffsetDateTime finishedAt = null;
+            for (ProcessStatusHistoryEntry h : entry.getStatusHistory()) {
+                if (h.getStatus() == StatusEnum.RUNNING && runningAt == null) {
+                    runningAt = h.getChangeDate();
+                } else if (h.getStatus() == StatusEnum.FINISHED) {
+                    finishedAt = h.getChangeDate();
+                }
+            }
+
+            if (runningAt == null) {
+                return;
+            }
+
+            if (entry.getCreatedAt() != null) {
+                submitToRunning.record(Duration.between(entry.getCreatedAt(), runningAt));
+            }
+
+            if (finishedAt != null) {
+                runningToFinished.record(Duration.between(runningAt, finishedAt));
+            }
+        }
+    }
+
+    private static void sleepUntil(long nanos) throws InterruptedException {
+        long remaining;
+        while ((remaining = nanos - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(remaining);
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+        }
+    }
+
+    private static ThreadFactory threadFactory(String nameFormat) {
+        return new ThreadFactoryBuilder()
+                .setNameFormat(nameFormat)
+                .setDaemon(true)
+                .build();
+    }
+}
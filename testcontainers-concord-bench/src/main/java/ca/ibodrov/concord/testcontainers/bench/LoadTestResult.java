@@ -0,0 +1,245 @@
+package ca.ibodrov.concord.testcontainers.bench;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2020 Ivan Bodrov
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import ca.ibodrov.concord.testcontainers.LatencyHistogram;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static ca.ibodrov.concord.testcontainers.bench.Summaries.summary;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Results of a {@link LoadTest} run. Only processes started after the warmup
+ * period are counted.
+ */
+public final class LoadTestResult {
+
+    private static final ObjectMapper objectMapper = new ObjectMapper()
+            .enable(SerializationFeature.INDENT_OUTPUT);
+
+    private final Instant timestamp = Instant.now();
+    private final LoadTest.Mode mode;
+    private final int concurrency;
+    private final double arrivalRate;
+    private final Duration duration;
+    private final long submitted;
+    private final long finished;
+    private final long failed;
+    private final long errors;
+    private final long rejected;
+    private final long unfinished;
+    private final LatencyHistogram submitToRunning;
+    private final LatencyHistogram runningToFinished;
+    private final LatencyHistogram endToEnd;
+
+    LoadTestResult(LoadTest.Mode mode, int concurrency, double arrivalRate, Duration duration,
+                   long submitted, long finished, long failed, long errors, long rejected, long unfinished,
+                   LatencyHistogram submitToRunning, LatencyHistogram runningToFinished, LatencyHistogram endToEnd) {
+
+        this.mode = mode;
+        this.concurrency = concurrency;
+        this.arrivalRate = arrivalRate;
+        this.duration = duration;
+        this.submitted = submitted;
+        this.finished = finished;
+        this.failed = failed;
+        this.errors = errors;
+        this.rejected = rejected;
+        this.unfinished = unfinished;
+        this.submitToRunning = submitToRunning;
+        this.runningToFinished = runningToFinished;
+        this.endToEnd = endToEnd;
+    }
+
+    public LoadTest.Mode mode() {
+        return mode;
+    }
+
+    public Duration duration() {
+        return duration;
+    }
+
+    /**
+     * Number of successfully started processes.
+     */
+    public long submitted() {
+        return submitted;
+    }
+
+    /**
+     * Number of processes that reached the FINISHED status.
+     */
+    public long finished() {
+        return finished;
+    }
+
+    /**
+     * Number of processes that ended up FAILED, CANCELLED or TIMED_OUT.
+     */
+    public long failed() {
+        return failed;
+    }
+
+    /**
+     * Number of failed start requests.
+     */
+    public long errors() {
+        return errors;
+    }
+
+    /**
+     * Number of processes not started because of the {@link LoadTest#maxInFlight(int)} limit.
+     */
+    public long rejected() {
+        return rejected;
+    }
+
+    /**
+     * Number of processes still running after the {@link LoadTest#drainTimeout(Duration)}.
+     */
+    public long unfinished() {
+        return unfinished;
+    }
+
+    /**
+     * Finished processes per second.
+     */
+    public double throughput() {
+        double seconds = duration.toNanos() / 1_000_000_000.0;
+        return seconds > 0 ? finished / seconds : 0;
+    }
+
+    /**
+     * Time between the process creation and the RUNNING status, as recorded by the server.
+     */
+    public LatencyHistogram submitToRunning() {
+        return submitToRunning;
+    }
+
+    /**
+     * Time between the RUNNING and FINISHED statuses, as recorded by the server.
+     */
+    public LatencyHistogram runningToFinished() {
+        return runningToFinished;
+    }
+
+    /**
+     * Time between the (scheduled) start request and the moment the client
+     * observed the final status.
+     */
+    public LatencyHistogram endToEnd() {
+        return endToEnd;
+    }
+
+    public Map<String, Object> toMap() {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("timestamp", timestamp.toString());
+        m.put("mode", mode.name());
+        if (mode == LoadTest.Mode.CLOSED_LOOP) {
+            m.put("concurrency", concurrency);
+        } else {
+            m.put("arrivalRate", arrivalRate);
+        }
+        m.put("durationMs", duration.toMillis());
+        m.put("submitted", submitted);
+        m.put("finished", finished);
+        m.put("failed", failed);
+        m.put("errors", errors);
+        m.put("rejected", rejected);
+        m.put("unfinished", unfinished);
+        m.put("throughput", throughput());
+
+        Map<String, Object> latency = new LinkedHashMap<>();
+        histograms().forEach((k, v) -> latency.put(k, summary(v)));
+        m.put("latency", latency);
+
+        return m;
+    }
+
+    public String toJson() {
+        try {
+            return objectMapper.writeValueAsString(toMap());
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    public void writeJson(Path file) throws IOException {
+        Files.writeString(file, toJson());
+    }
+
+    /**
+     * Appends the results as a single row to the specified CSV file.
+     * The header is written if the file is empty. Use the same file
+     * for multiple runs to track the results over time.
+     */
+    public void writeCsv(Path file) throws IOException {
+        List<String> header = new ArrayList<>();
+        List<String> row = new ArrayList<>();
+        for (Map.Entry<String, Object> e : toMap().entrySet()) {
+            if (e.getValue() instanceof Map) {
+                continue;
+            }
+            header.add(e.getKey());
+            row.add(String.valueOf(e.getValue()));
+        }
+
+        histograms().forEach((k, v) -> summary(v).forEach((s, value) -> {
+            header.add(k + "." + s);
+            row.add(String.valueOf(value));
+        }));
+
+        StringBuilder sb = new StringBuilder();
+        if (!Files.exists(file) || Files.size(file) == 0) {
+            sb.append(String.join(",", header)).append('\n');
+        }
+        sb.append(String.join(",", row)).append('\n');
+
+        Files.writeString(file, sb, UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    @Override
+    public String toString() {
+        return mode + ": finished=" + finished + ", failed=" + failed + ", errors=" + errors +
+                ", throughput=" + String.format("%.2f/s", throughput()) +
+                ", endToEnd={" + endToEnd + "}";
+    }
+
+    private Map<String, LatencyHistogram> histograms() {
+        Map<String, LatencyHistogram> m = new LinkedHashMap<>();
+        m.put("submitToRunning", submitToRunning);
+        m.put("runningToFinished", runningToFinished);
+        m.put("endToEnd", endToEnd);
+        return m;
+    }
+}
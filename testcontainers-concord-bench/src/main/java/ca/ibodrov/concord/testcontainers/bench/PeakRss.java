@@ -0,0 +1,69 @@
+package ca.ibodrov.concord.testcontainers.bench;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2020 Ivan Bodrov
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+/**
+ * Peak resident set size of the current JVM. Linux only.
+ */
+final class PeakRss {
+
+    private static final Path STATUS = Paths.get("/proc/self/status");
+    private static final Path CLEAR_REFS = Paths.get("/proc/self/clear_refs");
+
+    /**
+     * Resets the peak RSS counter. Returns {@code false} if not supported,
+     * in which case {@link #readKb()} returns the peak since the JVM start.
+     */
+    static boolean reset() {
+        try {
+            Files.writeString(CLEAR_REFS, "5");
+            return true;
+        } catch (IOException | UnsupportedOperationException | SecurityException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Returns the peak RSS in kilobytes or -1 if not available.
+     */
+    static long readKb() {
+        try {
+            List<String> lines = Files.readAllLines(STATUS);
+            for (String l : lines) {
+                if (l.startsWith("VmHWM:")) {
+                    return Long.parseLong(l.substring("VmHWM:".length()).replace("kB", "").trim());
+                }
+            }
+        } catch (IOException | NumberFormatException | SecurityException e) {
+            // not available
+        }
+        return -1;
+    }
+
+    private PeakRss() {
+    }
+}
@@ -0,0 +1,303 @@
+package ca.ibodrov.concord.testcontainers.bench;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2020 Ivan Bodrov
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import ca.ibodrov.concord.testcontainers.Concord;
+import ca.ibodrov.concord.testcontainers.ConcordProcess;
+import ca.ibodrov.concord.testcontainers.ContainerListener;
+import ca.ibodrov.concord.testcontainers.ContainerType;
+import ca.ibodrov.concord.testcontainers.Payload;
+import com.walmartlabs.concord.client2.ApiClient;
+import com.walmartlabs.concord.client2.ApiException;
+import com.walmartlabs.concord.client2.ProcessEntry;
+import com.walmartlabs.concord.client2.ProcessEntry.StatusEnum;
+import com.walmartlabs.concord.client2.ProcessV2Api;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testcontainers.containers.Container;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.*;
+import java.util.function.Supplier;
+
+/**
+ * Repeatedly starts and stops Concord environments and measures how long
+ * it takes. Use it to compare {@link Concord.Mode}s and configurations:
+ * <pre>{@code
+ * StartupBenchmarkResult result = new StartupBenchmark()
+ *         .scenario("local", () -> new Concord<>().mode(Concord.Mode.LOCAL))
+ *         .scenario("docker", () -> new Concord<>().mode(Concord.Mode.DOCKER))
+ *         .scenario("docker-no-agent", () -> new Concord<>().mode(Concord.Mode.DOCKER).startAgent(false))
+ *         .iterations(5)
+ *         .run();
+ *
+ * result.assertNoRegressions(Paths.get("startup-baseline.json"), 0.25);
+ * }</pre>
+ * Recorded phases (see {@link StartupBenchmarkResult}):
+ * <ul>
+ *     <li>{@code db}, {@code server}, {@code agent} - container start times,
+ *     if reported by the environment (see {@link ContainerListener});</li>
+ *     <li>{@code start} - {@link Concord#start()};</li>
+ *     <li>{@code firstProcess} - from the end of {@code start} until the first
+ *     process is FINISHED. Includes the agent's dispatch and the runner's startup;</li>
+ *     <li>{@code total} - {@code start} plus {@code firstProcess};</li>
+ *     <li>{@code stop} - {@link Concord#close()}.</li>
+ * </ul>
+ * The peak RSS of the current JVM is recorded after each iteration. The peak
+ * is reset before each iteration where supported (Linux 4.0+).
+ * <p/>
+ * Can be started from the command line, see {@link #main(String[])}.
+ */
+public class StartupBenchmark {
+
+    private static final Logger log = LoggerFactory.getLogger(StartupBenchmark.class);
+
+    private static final String DEFAULT_FLOW = "flows:\n  default:\n    - log: \"Hello!\"\n";
+
+    private static final Set<StatusEnum> FINAL_STATUSES = Set.of(StatusEnum.FINISHED, StatusEnum.FAILED,
+            StatusEnum.CANCELLED, StatusEnum.TIMED_OUT);
+
+    private final Map<String, Supplier<Concord<?>>> scenarios = new LinkedHashMap<>();
+
+    private int iterations = 5;
+    private int warmupIterations = 0;
+    private Payload firstProcess = new Payload().concordYml(DEFAULT_FLOW);
+    private Duration firstProcessTimeout = Duration.ofMinutes(5);
+
+    /**
+     * Adds a scenario. The supplier must return a new, not started instance
+     * each time it's called.
+     */
+    public StartupBenchmark scenario(String name, Supplier<Concord<?>> concord) {
+        scenarios.put(name, concord);
+        return this;
+    }
+
+    /**
+     * Number of measured iterations per scenario. Default is 5.
+     */
+    public StartupBenchmark iterations(int iterations) {
+        this.iterations = iterations;
+        return this;
+    }
+
+    /**
+     * Number of iterations to run before the measurement, e.g. to pull images.
+     * Default is zero.
+     */
+    public StartupBenchmark warmupIterations(int warmupIterations) {
+        this.warmupIterations = warmupIterations;
+        return this;
+    }
+
+    /**
+     * The payload of the process started after the environment, or {@code null}
+     * to skip the {@code firstProcess} phase, e.g. when the agent is disabled.
+     * By default, a single-step flow is used.
+     */
+    public StartupBenchmark firstProcess(Payload firstProcess) {
+        this.firstProcess = firstProcess;
+        return this;
+    }
+
+    public StartupBenchmark firstProcessTimeout(Duration firstProcessTimeout) {
+        this.firstProcessTimeout = firstProcessTimeout;
+        return this;
+    }
+
+    public StartupBenchmarkResult run() throws Exception {
+        if (scenarios.isEmpty()) {
+            throw new IllegalStateException("At least one scenario is required");
+        }
+
+        StartupBenchmarkResult result = new StartupBenchmarkResult();
+
+        for (Map.Entry<String, Supplier<Concord<?>>> e : scenarios.entrySet()) {
+            String name = e.getKey();
+
+            for (int i = 0; i < warmupIterations; i++) {
+                log.info("run ['{}'] -> warmup {}/{}", name, i + 1, warmupIterations);
+                runIteration(e.getValue().get());
+            }
+
+            for (int i = 0; i < iterations; i++) {
+                log.info("run ['{}'] -> iteration {}/{}", name, i + 1, iterations);
+                PeakRss.reset();
+                Map<String, Long> phases = runIteration(e.getValue().get());
+                result.record(name, phases, PeakRss.readKb());
+            }
+        }
+
+        return result;
+    }
+
+    private Map<String, Long> runIteration(Concord<?> concord) throws Exception {
+        PhaseListener listener = new PhaseListener();
+        concord.containerListener(listener);
+
+        Map<String, Long> phases = new LinkedHashMap<>();
+
+        long t0 = System.nanoTime();
+        try {
+            concord.start();
+            long started = System.nanoTime();
+
+            phases.putAll(listener.phases);
+            phases.put("start", started - t0);
+
+            if (firstProcess != null) {
+                waitForFinish(concord.apiClient(), concord.processes().start(firstProcess));
+                long finished = System.nanoTime();
+                phases.put("firstProcess", finished - started);
+                phases.put("total", finished - t0);
+            } else {
+                phases.put("total", started - t0);
+            }
+        } finally {
+            long s0 = System.nanoTime();
+            if (concord.environment() != null) {
+                concord.close();
+            }
+            phases.put("stop", System.nanoTime() - s0);
+        }
+
+        return phases;
+    }
+
+    private void waitForFinish(ApiClient client, ConcordProcess process) throws ApiException, InterruptedException {
+        // poll more often than ConcordProcess#waitForStatus to get a more precise measurement
+        ProcessV2Api api = new ProcessV2Api(client);
+        long deadline = System.nanoTime() + firstProcessTimeout.toNanos();
+        while (true) {
+            ProcessEntry e = api.getProcess(process.instanceId(), Collections.emptySet());
+            if (e != null && FINAL_STATUSES.contains(e.getStatus())) {
+                if (e.getStatus() != StatusEnum.FINISHED) {
+                    throw new IllegalStateException("Unexpected status of the process: " + e.getStatus());
+                }
+                return;
+            }
+
+            if (System.nanoTime() > deadline) {
+                throw new IllegalStateException("Timeout waiting for the process to finish: " + process.instanceId());
+            }
+
+            Thread.sleep(50);
+        }
+    }
+
+    private static final class PhaseListener implements ContainerListener {
+
+        private final Map<ContainerType, Long> startedAt = new EnumMap<>(ContainerType.class);
+        private final Map<String, Long> phases = new LinkedHashMap<>();
+
+        @Override
+        public synchronized void beforeStart(ContainerType type) {
+            startedAt.put(type, System.nanoTime());
+        }
+
+        @Override
+        public synchronized void afterStart(ContainerType type, Container<?> container) {
+            Long t = startedAt.get(type);
+            if (t != null) {
+                phases.put(type.name().toLowerCase(), System.nanoTime() - t);
+            }
+        }
+    }
+
+    /**
+     * Runs the benchmark using the system properties:
+     * <ul>
+     *     <li>{@code startup.modes} - comma-separated list of modes, default {@code DOCKER};</li>
+     *     <li>{@code startup.agent} - start the agent, default {@code true};</li>
+     *     <li>{@code startup.mavenConfigurationPath} - custom Maven configuration;</li>
+     *     <li>{@code startup.apiBaseUrl}, {@code startup.apiToken} - required for {@code REMOTE};</li>
+     *     <li>{@code startup.iterations}, {@code startup.warmupIterations} - default 5 and 1;</li>
+     *     <li>{@code startup.output} - result file, default {@code startup-benchmark.json};</li>
+     *     <li>{@code startup.baseline} - baseline file. If set, the results are compared
+     *     with the baseline and the program exits with a non-zero code on regressions.
+     *     The baseline is created if it doesn't exist or if {@code startup.updateBaseline=true};</li>
+     *     <li>{@code startup.threshold} - allowed relative difference, default {@code 0.25}.</li>
+     * </ul>
+     */
+    public static void main(String[] args) throws Exception {
+        boolean startAgent = Boolean.parseBoolean(System.getProperty("startup.agent", "true"));
+        String mavenConfigurationPath = System.getProperty("startup.mavenConfigurationPath");
+
+        StartupBenchmark benchmark = new StartupBenchmark()
+                .iterations(Integer.getInteger("startup.iterations", 5))
+                .warmupIterations(Integer.getInteger("startup.warmupIterations", 1));
+
+        if (!startAgent) {
+            benchmark.firstProcess(null);
+        }
+
+        for (String s : System.getProperty("startup.modes", "DOCKER").split(",")) {
+            Concord.Mode mode = Concord.Mode.valueOf(s.trim().toUpperCase());
+            String name = mode.name().toLowerCase() + (startAgent ? "" : "-no-agent");
+            benchmark.scenario(name, () -> {
+                Concord<?> c = new Concord<>()
+                        .mode(mode)
+                        .startAgent(startAgent);
+
+                if (mavenConfigurationPath != null) {
+                    c.mavenConfigurationPath(mavenConfigurationPath);
+                }
+
+                if (mode == Concord.Mode.REMOTE) {
+                    c.apiBaseUrl(System.getProperty("startup.apiBaseUrl"))
+                            .apiToken(System.getProperty("startup.apiToken"));
+                }
+
+                return c;
+            });
+        }
+
+        StartupBenchmarkResult result = benchmark.run();
+        System.out.println(result);
+
+        Path output = Paths.get(System.getProperty("startup.output", "startup-benchmark.json"));
+        result.writeJson(output);
+        System.out.println("Results saved: " + output.toAbsolutePath());
+
+        String baseline = System.getProperty("startup.baseline");
+        if (baseline == null) {
+            return;
+        }
+
+        Path baselineFile = Paths.get(baseline);
+        if (Boolean.getBoolean("startup.updateBaseline") || !Files.exists(baselineFile)) {
+            result.writeBaseline(baselineFile);
+            System.out.println("Baseline saved: " + baselineFile.toAbsolutePath());
+            return;
+        }
+
+        double threshold = Double.parseDouble(System.getProperty("startup.threshold", "0.25"));
+        List<String> regressions = result.regressions(baselineFile, threshold);
+        if (!regressions.isEmpty()) {
+            System.err.println("Startup regressions (threshold " + Math.round(threshold * 100) + "%):");
+            regressions.forEach(r -> System.err.println("  " + r));
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,233 @@
+package ca.ibodrov.concord.testcontainers.bench;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2020 Ivan Bodrov
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import ca.ibodrov.concord.testcontainers.LatencyHistogram;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.*;
+
+import static ca.ibodrov.concord.testcontainers.bench.Summaries.millis;
+import static ca.ibodrov.concord.testcontainers.bench.Summaries.summary;
+
+/**
+ * Results of a {@link StartupBenchmark} run: a histogram of each phase and
+ * the peak RSS values per scenario.
+ * <p/>
+ * Baselines contain the median of each phase and the median peak RSS.
+ * A phase is considered regressed if its median is worse than the baseline
+ * by more than the threshold and by more than {@value #MIN_DIFF_MS}ms,
+ * so very short phases don't produce false positives.
+ */
+public final class StartupBenchmarkResult {
+
+    static final long MIN_DIFF_MS = 100;
+
+    private static final String PEAK_RSS = "peakRssMb";
+
+    private static final ObjectMapper objectMapper = new ObjectMapper()
+            .enable(SerializationFeature.INDENT_OUTPUT);
+
+    private final Instant timestamp = Instant.now();
+    private final Map<String, Scenario> scenarios = new LinkedHashMap<>();
+
+    StartupBenchmarkResult() {
+    }
+
+    synchronized void record(String scenario, Map<String, Long> phases, long peakRssKb) {
+        Scenario s = scenarios.computeIfAbsent(scenario, k -> new Scenario());
+        phases.forEach((k, v) -> s.phases.computeIfAbsent(k, n -> new LatencyHistogram()).recordNanos(v));
+        if (peakRssKb >= 0) {
+            s.peakRssKb.add(peakRssKb);
+        }
+    }
+
+    public Set<String> scenarios() {
+        return Collections.unmodifiableSet(scenarios.keySet());
+    }
+
+    /**
+     * Returns the names of the phases recorded for the specified scenario.
+     */
+    public Set<String> phases(String scenario) {
+        Scenario s = scenarios.get(scenario);
+        return s != null ? Collections.unmodifiableSet(s.phases.keySet()) : Collections.emptySet();
+    }
+
+    /**
+     * Returns the histogram of the specified phase or {@code null} if the phase
+     * wasn't recorded.
+     */
+    public LatencyHistogram phase(String scenario, String phase) {
+        Scenario s = scenarios.get(scenario);
+        return s != null ? s.phases.get(phase) : null;
+    }
+
+    /**
+     * Returns the peak RSS of each iteration in kilobytes. Empty if not supported
+     * by the OS.
+     */
+    public List<Long> peakRssKb(String scenario) {
+        Scenario s = scenarios.get(scenario);
+        return s != null ? Collections.unmodifiableList(s.peakRssKb) : Collections.emptyList();
+    }
+
+    public Map<String, Object> toMap() {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("timestamp", timestamp.toString());
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        scenarios.forEach((name, s) -> {
+            Map<String, Object> phases = new LinkedHashMap<>();
+            s.phases.forEach((k, v) -> phases.put(k, summary(v)));
+
+            Map<String, Object> sm = new LinkedHashMap<>();
+            sm.put("phases", phases);
+            if (!s.peakRssKb.isEmpty()) {
+                List<Long> sorted = new ArrayList<>(s.peakRssKb);
+                Collections.sort(sorted);
+                Map<String, Object> rss = new LinkedHashMap<>();
+                rss.put("p50", sorted.get((sorted.size() - 1) / 2) / 1024);
+                rss.put("max", sorted.get(sorted.size() - 1) / 1024);
+                sm.put(PEAK_RSS, rss);
+            }
+            result.put(name, sm);
+        });
+        m.put("scenarios", result);
+
+        return m;
+    }
+
+    public String toJson() {
+        try {
+            return objectMapper.writeValueAsString(toMap());
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    public void writeJson(Path file) throws IOException {
+        Files.writeString(file, toJson());
+    }
+
+    /**
+     * Saves the medians of all phases and the median peak RSS as a baseline
+     * for {@link #regressions(Path, double)}.
+     */
+    public void writeBaseline(Path file) throws IOException {
+        objectMapper.writeValue(file.toFile(), medians());
+    }
+
+    /**
+     * Compares the results with the baseline. Returns the descriptions of all
+     * phases worse than the baseline by more than the specified threshold.
+     * Scenarios and phases missing from the baseline are ignored.
+     *
+     * @param threshold allowed relative difference, e.g. {@code 0.25}
+     */
+    public List<String> regressions(Path baseline, double threshold) throws IOException {
+        Map<String, Map<String, Double>> base = objectMapper.readValue(baseline.toFile(), new TypeReference<>() {
+        });
+        return regressions(base, medians(), threshold);
+    }
+
+    /**
+     * Throws an {@link IllegalStateException} if any phase regressed compared
+     * to the baseline.
+     *
+     * @see #regressions(Path, double)
+     */
+    public void assertNoRegressions(Path baseline, double threshold) throws IOException {
+        List<String> regressions = regressions(baseline, threshold);
+        if (!regressions.isEmpty()) {
+            throw new IllegalStateException("Startup regressions (threshold " + Math.round(threshold * 100) + "%):\n  " +
+                    String.join("\n  ", regressions));
+        }
+    }
+
+    static List<String> regressions(Map<String, Map<String, Double>> baseline, Map<String, Map<String, Double>> current, double threshold) {
+        List<String> result = new ArrayList<>();
+
+        current.forEach((scenario, metrics) -> {
+            Map<String, Double> base = baseline.get(scenario);
+            if (base == null) {
+                return;
+            }
+
+            metrics.forEach((metric, value) -> {
+                Double b = base.get(metric);
+                if (b == null || b <= 0) {
+                    return;
+                }
+
+                // RSS is compared using only the relative threshold
+                boolean significant = PEAK_RSS.equals(metric) || value - b > MIN_DIFF_MS;
+                if (value > b * (1 + threshold) && significant) {
+                    result.add(String.format("%s/%s: %.0f -> %.0f%s (%+.0f%%)", scenario, metric, b, value,
+                            PEAK_RSS.equals(metric) ? "MB" : "ms", (value / b - 1) * 100));
+                }
+            });
+        });
+
+        return result;
+    }
+
+    private Map<String, Map<String, Double>> medians() {
+        Map<String, Map<String, Double>> m = new LinkedHashMap<>();
+        scenarios.forEach((name, s) -> {
+            Map<String, Double> metrics = new LinkedHashMap<>();
+            s.phases.forEach((k, v) -> metrics.put(k, millis(v.percentile(50))));
+            if (!s.peakRssKb.isEmpty()) {
+                List<Long> sorted = new ArrayList<>(s.peakRssKb);
+                Collections.sort(sorted);
+                metrics.put(PEAK_RSS, sorted.get((sorted.size() - 1) / 2) / 1024.0);
+            }
+            m.put(name, metrics);
+        });
+        return m;
+    }
+
+    /**
+     * Returns the medians, e.g. {@code docker: db=1520 server=9830 ... peakRssMb=212}.
+     */
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        medians().forEach((name, metrics) -> {
+            sb.append(name).append(':');
+            metrics.forEach((k, v) -> sb.append(' ').append(k).append('=').append(Math.round(v)));
+            sb.append('\n');
+        });
+        return sb.toString();
+    }
+
+    private static final class Scenario {
+
+        private final Map<String, LatencyHistogram> phases = new LinkedHashMap<>();
+        private final List<Long> peakRssKb = new ArrayList<>();
+    }
+}
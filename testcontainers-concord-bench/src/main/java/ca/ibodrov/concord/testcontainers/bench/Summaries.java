@@ -0,0 +1,56 @@
+package ca.ibodrov.concord.testcontainers.bench;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2020 Ivan Bodrov
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import ca.ibodrov.concord.testcontainers.LatencyHistogram;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+final class Summaries {
+
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+
+    /**
+     * Returns the count, min, mean, percentiles and max of the histogram,
+     * in milliseconds.
+     */
+    static Map<String, Object> summary(LatencyHistogram h) {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("count", h.count());
+        m.put("minMs", millis(h.min()));
+        m.put("meanMs", millis(h.mean()));
+        for (double p : PERCENTILES) {
+            String name = p == (long) p ? String.valueOf((long) p) : String.valueOf(p).replace('.', '_');
+            m.put("p" + name + "Ms", millis(h.percentile(p)));
+        }
+        m.put("maxMs", millis(h.max()));
+        return m;
+    }
+
+    static double millis(Duration d) {
+        return Math.round(d.toNanos() / 1_000.0) / 1_000.0;
+    }
+
+    private Summaries() {
+    }
+}
@@ -0,0 +1,136 @@
+package ca.ibodrov.concord.testcontainers.bench;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2020 Ivan Bodrov
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * A stand-in for the Concord API. Supports starting processes and fetching
+ * their status. Each process spends {@code queueMs} in the queue and
+ * {@code runMs} running.
+ */
+class FakeConcordServer implements AutoCloseable {
+
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSSX")
+            .withZone(ZoneOffset.UTC);
+
+    private final long queueMs;
+    private final long runMs;
+    private final Map<UUID, Instant> processes = new ConcurrentHashMap<>();
+    private final HttpServer server;
+
+    FakeConcordServer(long queueMs, long runMs) throws IOException {
+        this.queueMs = queueMs;
+        this.runMs = runMs;
+
+        this.server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        this.server.setExecutor(Executors.newFixedThreadPool(4));
+        this.server.createContext("/api/v1/process", this::start);
+        this.server.createContext("/api/v2/process/", this::get);
+        this.server.start();
+    }
+
+    String baseUrl() {
+        return "http://localhost:" + server.getAddress().getPort();
+    }
+
+    int processCount() {
+        return processes.size();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+
+    private void start(HttpExchange exchange) throws IOException {
+        try (InputStream in = exchange.getRequestBody()) {
+            in.transferTo(OutputStream.nullOutputStream());
+        }
+
+        UUID id = UUID.randomUUID();
+        processes.put(id, Instant.now());
+
+        respond(exchange, 200, "{\"instanceId\":\"" + id + "\",\"ok\":true}");
+    }
+
+    private void get(HttpExchange exchange) throws IOException {
+        String path = exchange.getRequestURI().getPath();
+        UUID id = UUID.fromString(path.substring(path.lastIndexOf('/') + 1));
+
+        Instant createdAt = processes.get(id);
+        if (createdAt == null) {
+            respond(exchange, 404, "{}");
+            return;
+        }
+
+        Instant runningAt = createdAt.plusMillis(queueMs);
+        Instant finishedAt = runningAt.plusMillis(runMs);
+        Instant now = Instant.now();
+
+        StringBuilder history = new StringBuilder();
+        history.append(historyEntry("NEW", createdAt)).append(',');
+        history.append(historyEntry("ENQUEUED", createdAt));
+
+        String status = "ENQUEUED";
+        if (!now.isBefore(runningAt)) {
+            status = "RUNNING";
+            history.append(',').append(historyEntry(status, runningAt));
+        }
+        if (!now.isBefore(finishedAt)) {
+            status = "FINISHED";
+            history.append(',').append(historyEntry(status, finishedAt));
+        }
+
+        respond(exchange, 200, "{\"instanceId\":\"" + id + "\"," +
+                "\"status\":\"" + status + "\"," +
+                "\"createdAt\":\"" + DATE_FORMAT.format(createdAt) + "\"," +
+                "\"statusHistory\":[" + history + "]}");
+    }
+
+    private static String historyEntry(String status, Instant changeDate) {
+        return "{\"id\":\"" + UUID.randomUUID() + "\",\"status\":\"" + status + "\",\"changeDate\":\"" + DATE_FORMAT.format(changeDate) + "\"}";
+    }
+
+    private static void respond(HttpExchange exchange, int code, String body) throws IOException {
+        byte[] ab = body.getBytes(UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(code, ab.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(ab);
+        }
+    }
+}
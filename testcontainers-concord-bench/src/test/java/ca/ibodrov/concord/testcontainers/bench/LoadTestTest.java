@@ -0,0 +1,119 @@
+package ca.ibodrov.concord.testcontainers.bench;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2020 Ivan Bodrov
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import ca.ibodrov.concord.testcontainers.Concord;
+import ca.ibodrov.concord.testcontainers.Payload;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LoadTestTest {
+
+    private static final Payload PAYLOAD = new Payload()
+            .concordYml("flows:\n  default:\n    - log: Hello!\n");
+
+    private FakeConcordServer server;
+    private Concord<?> concord;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        server = new FakeConcordServer(20, 30);
+
+        concord = new Concord<>()
+                .mode(Concord.Mode.REMOTE)
+                .apiBaseUrl(server.baseUrl())
+                .apiToken("test");
+
+        concord.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        concord.close();
+        server.close();
+    }
+
+    @Test
+    void testClosedLoop() throws Exception {
+        LoadTestResult result = LoadTest.closedLoop(2)
+                .payload(PAYLOAD)
+                .duration(Duration.ofSeconds(1))
+                .pollInterval(Duration.ofMillis(10))
+                .run(concord);
+
+        assertTrue(result.finished() > 0, result.toString());
+        assertEquals(0, result.failed());
+        assertEquals(0, result.errors());
+        assertEquals(0, result.unfinished());
+        assertEquals(server.processCount(), result.submitted());
+
+        // each process takes at least 50ms, two workers can't do more than 40 per second
+        assertTrue(result.finished() <= 40, result.toString());
+
+        assertEquals(result.finished(), result.endToEnd().count());
+        assertEquals(result.finished(), result.submitToRunning().count());
+        assertEquals(20, result.submitToRunning().percentile(50).toMillis(), 1);
+        assertEquals(30, result.runningToFinished().percentile(50).toMillis(), 1);
+        assertTrue(result.endToEnd().min().toMillis() >= 50, result.toString());
+    }
+
+    @Test
+    void testOpenLoop(@TempDir Path tempDir) throws Exception {
+        LoadTestResult result = LoadTest.openLoop(20)
+                .payload(PAYLOAD)
+                .warmup(Duration.ofMillis(200))
+                .duration(Duration.ofSeconds(1))
+                .pollInterval(Duration.ofMillis(10))
+                .run(concord);
+
+        // warmup processes are started, but not counted
+        assertEquals(20, result.submitted(), 2);
+        assertEquals(20, result.finished(), 2);
+        assertEquals(result.submitted(), result.finished() + result.failed() + result.unfinished());
+        assertEquals(0, result.errors());
+        assertEquals(20, result.throughput(), 2);
+
+        Path json = tempDir.resolve("result.json");
+        result.writeJson(json);
+        Map<?, ?> m = new ObjectMapper().readValue(json.toFile(), Map.class);
+        assertEquals("OPEN_LOOP", m.get("mode"));
+        assertEquals(20.0, m.get("arrivalRate"));
+        assertTrue(((Map<?, ?>) m.get("latency")).containsKey("endToEnd"));
+
+        Path csv = tempDir.resolve("results.csv");
+        result.writeCsv(csv);
+        result.writeCsv(csv);
+        var lines = Files.readAllLines(csv);
+        assertEquals(3, lines.size());
+        assertTrue(lines.get(0).contains("endToEnd.p99Ms"), lines.get(0));
+        assertEquals(lines.get(0).split(",").length, lines.get(1).split(",").length);
+    }
+}
@@ -0,0 +1,81 @@
+package ca.ibodrov.concord.testcontainers.bench;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2020 Ivan Bodrov
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import ca.ibodrov.concord.testcontainers.Concord;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StartupBenchmarkTest {
+
+    @Test
+    void testRemote(@TempDir Path tempDir) throws Exception {
+        try (FakeConcordServer server = new FakeConcordServer(20, 30)) {
+            StartupBenchmarkResult result = new StartupBenchmark()
+                    .scenario("remote", () -> new Concord<>()
+                            .mode(Concord.Mode.REMOTE)
+                            .apiBaseUrl(server.baseUrl())
+                            .apiToken("test"))
+                    .iterations(3)
+                    .run();
+
+            assertEquals(Set.of("remote"), result.scenarios());
+            assertEquals(Set.of("start", "firstProcess", "total", "stop"), result.phases("remote"));
+            assertEquals(3, result.phase("remote", "firstProcess").count());
+            assertTrue(result.phase("remote", "firstProcess").min().toMillis() >= 50);
+            assertEquals(3, server.processCount());
+
+            Path baseline = tempDir.resolve("baseline.json");
+            result.writeBaseline(baseline);
+            assertEquals(List.of(), result.regressions(baseline, 0.25));
+            result.assertNoRegressions(baseline, 0.25);
+        }
+    }
+
+    @Test
+    void testRegressions() {
+        Map<String, Map<String, Double>> baseline = Map.of("docker", Map.of(
+                "server", 10_000.0,
+                "stop", 10.0,
+                "peakRssMb", 200.0));
+
+        // short phases are not reported
+        assertEquals(List.of(), StartupBenchmarkResult.regressions(baseline, Map.of("docker", Map.of(
+                "server", 11_000.0,
+                "stop", 50.0,
+                "peakRssMb", 210.0)), 0.25));
+
+        List<String> regressions = StartupBenchmarkResult.regressions(baseline, Map.of("docker", Map.of(
+                "server", 15_000.0,
+                "peakRssMb", 300.0,
+                "agent", 5_000.0)), 0.25);
+
+        assertEquals(2, regressions.size(), regressions.toString());
+        assertTrue(regressions.contains("docker/server: 10000 -> 15000ms (+50%)"), regressions.toString());
+    }
+}
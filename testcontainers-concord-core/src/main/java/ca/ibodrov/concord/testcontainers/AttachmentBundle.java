@@ -0,0 +1,216 @@
+package ca.ibodrov.concord.testcontainers;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2020 Ivan Bodrov
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * All attachments of a process, downloaded in a single request.
+ * <p/>
+ * The attachments are unpacked into a temporary file, one after another,
+ * and the file is memory-mapped. Each attachment is indexed by its name
+ * and offset, so reads don't require any additional HTTP calls or copying
+ * of the whole bundle.
+ *
+ * @see ProcessAttachments#fetchAll()
+ */
+public final class AttachmentBundle {
+
+    /**
+     * Location of the attachments in the process state archive.
+     */
+    static final String ATTACHMENTS_DIR = "_attachments/";
+
+    private final Map<String, Entry> index;
+    private final ByteBuffer data;
+
+    private AttachmentBundle(Map<String, Entry> index, ByteBuffer data) {
+        this.index = index;
+        this.data = data;
+    }
+
+    /**
+     * Reads the attachments from the specified process state archive.
+     * Other files in the archive are skipped.
+     */
+    static AttachmentBundle read(InputStream stateArchive) throws IOException {
+        Path tmp = Files.createTempFile("attachments", ".bin");
+        try {
+            Map<String, Entry> index = new LinkedHashMap<>();
+
+            try (ZipInputStream zip = new ZipInputStream(new BufferedInputStream(stateArchive));
+                 OutputStream out = new BufferedOutputStream(Files.newOutputStream(tmp, StandardOpenOption.TRUNCATE_EXISTING))) {
+
+                long offset = 0;
+                ZipEntry e;
+                while ((e = zip.getNextEntry()) != null) {
+                    String name = e.getName();
+                    if (e.isDirectory() || !name.startsWith(ATTACHMENTS_DIR) || name.length() == ATTACHMENTS_DIR.length()) {
+                        continue;
+                    }
+
+                    long length = zip.transferTo(out);
+                    index.put(name.substring(ATTACHMENTS_DIR.length()), new Entry(offset, length));
+                    offset += length;
+                }
+
+                if (offset > Integer.MAX_VALUE) {
+                    throw new IllegalStateException("The process attachments are too large to be mapped into memory (" +
+                            offset + " bytes). Use ProcessAttachments#open to stream individual attachments.");
+                }
+            }
+
+            MappedByteBuffer data;
+            try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.READ)) {
+                // the mapping remains valid after the channel is closed
+                data = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+            }
+
+            return new AttachmentBundle(Collections.unmodifiableMap(index), data);
+        } finally {
+            try {
+                // the mapped data stays accessible on POSIX systems
+                Files.deleteIfExists(tmp);
+            } catch (IOException e) {
+                tmp.toFile().deleteOnExit();
+            }
+        }
+    }
+
+    /**
+     * Returns the names of the attachments in the bundle.
+     */
+    public Set<String> names() {
+        return index.keySet();
+    }
+
+    public boolean contains(String name) {
+        return index.containsKey(name);
+    }
+
+    /**
+     * Returns the size of the attachment or -1 if there's no such attachment.
+     */
+    public long size(String name) {
+        Entry e = index.get(name);
+        return e != null ? e.length : -1;
+    }
+
+    /**
+     * Returns a read-only view of the attachment's data or {@code null}
+     * if there's no such attachment.
+     */
+    public ByteBuffer buffer(String name) {
+        Entry e = index.get(name);
+        if (e == null) {
+            return null;
+        }
+        return data.asReadOnlyBuffer()
+                .position((int) e.offset)
+                .limit((int) (e.offset + e.length))
+                .slice();
+    }
+
+    /**
+     * Returns a copy of the attachment's data or {@code null}
+     * if there's no such attachment.
+     */
+    public byte[] get(String name) {
+        ByteBuffer b = buffer(name);
+        if (b == null) {
+            return null;
+        }
+        byte[] ab = new byte[b.remaining()];
+        b.get(ab);
+        return ab;
+    }
+
+    /**
+     * Opens the attachment for reading or returns {@code null}
+     * if there's no such attachment.
+     */
+    public InputStream open(String name) {
+        ByteBuffer b = buffer(name);
+        if (b == null) {
+            return null;
+        }
+        return new ByteBufferInputStream(b);
+    }
+
+    private static final class Entry {
+
+        private final long offset;
+        private final long length;
+
+        private Entry(long offset, long length) {
+            this.offset = offset;
+            this.length = length;
+        }
+    }
+
+    private static final class ByteBufferInputStream extends InputStream {
+
+        private final ByteBuffer buf;
+
+        private ByteBufferInputStream(ByteBuffer buf) {
+            this.buf = buf;
+        }
+
+        @Override
+        public int read() {
+            return buf.hasRemaining() ? buf.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (len == 0) {
+                return 0;
+            }
+            if (!buf.hasRemaining()) {
+                return -1;
+            }
+            int n = Math.min(len, buf.remaining());
+            buf.get(b, off, n);
+            return n;
+        }
+
+        @Override
+        public long skip(long n) {
+            int k = (int) Math.max(0, Math.min(n, buf.remaining()));
+            buf.position(buf.position() + k);
+            return k;
+        }
+
+        @Override
+        public int available() {
+            return buf.remaining();
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package ca.ibodrov.concord.testcontainers;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2020 Ivan Bodrov
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caches attachments of finished processes in memory (LRU, limited by
+ * the total size). Attachments of a process in a final status never change,
+ * so the entries are never invalidated.
+ * <p/>
+ * {@link ProcessAttachments} uses the {@link #shared()} instance by default.
+ */
+public class AttachmentCache {
+
+    private static final long DEFAULT_MAX_SIZE = 64 * 1024 * 1024;
+
+    private static final AttachmentCache SHARED = new AttachmentCache(DEFAULT_MAX_SIZE);
+
+    /**
+     * Returns the JVM-wide cache instance.
+     */
+    public static AttachmentCache shared() {
+        return SHARED;
+    }
+
+    private final long maxSize;
+
+    private final LinkedHashMap<Key, byte[]> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long size;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * @param maxSize max total size of the cached attachments. Attachments
+     *                larger than a quarter of the limit are not cached.
+     */
+    public AttachmentCache(long maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Returns a copy of the cached attachment or {@code null}.
+     */
+    public byte[] get(UUID instanceId, String name) {
+        byte[] ab = peek(instanceId, name);
+        return ab != null ? ab.clone() : null;
+    }
+
+    /**
+     * Returns the cached attachment itself, without copying. The result must
+     * not be modified or handed out to the callers.
+     */
+    byte[] peek(UUID instanceId, String name) {
+        synchronized (entries) {
+            byte[] ab = entries.get(new Key(instanceId, name));
+            if (ab != null) {
+                hits.incrementAndGet();
+            } else {
+                misses.incrementAndGet();
+            }
+            return ab;
+        }
+    }
+
+    /**
+     * Adds a copy of the attachment to the cache, unless it is too large.
+     *
+     * @return {@code true} if the attachment was cached.
+     */
+    public boolean put(UUID instanceId, String name, byte[] data) {
+        if (data.length > maxSize / 4) {
+            return false;
+        }
+
+        data = data.clone();
+
+        synchronized (entries) {
+            byte[] prev = entries.put(new Key(instanceId, name), data);
+            if (prev != null) {
+                size -= prev.length;
+            }
+            size += data.length;
+
+            Iterator<byte[]> it = entries.values().iterator();
+            while (size > maxSize && it.hasNext()) {
+                byte[] eldest = it.next();
+                if (eldest == data) {
+                    break;
+                }
+                size -= eldest.length;
+                it.remove();
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the cache statistics.
+     */
+    public Stats stats() {
+        synchronized (entries) {
+            return new Stats(hits.get(), misses.get(), entries.size(), size);
+        }
+    }
+
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+            size = 0;
+        }
+    }
+
+    private static final class Key {
+
+        private final UUID instanceId;
+        private final String name;
+
+        private Key(UUID instanceId, String name) {
+            this.instanceId = instanceId;
+            this.name = name;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) o;
+            return instanceId.equals(key.instanceId) && name.equals(key.name);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * instanceId.hashCode() + name.hashCode();
+        }
+    }
+
+    public static final class Stats {
+
+        private final long hits;
+        private final long misses;
+        private final int entries;
+        private final long size;
+
+        private Stats(long hits, long misses, int entries, long size) {
+            this.hits = hits;
+            this.misses = misses;
+            this.entries = entries;
+            this.size = size;
+        }
+
+        public long hits() {
+            return hits;
+        }
+
+        public long misses() {
+            return misses;
+        }
+
+        public int entries() {
+            return entries;
+        }
+
+        public long size() {
+            return size;
+        }
+
+        @Override
+        public String toString() {
+            return "hits=" + hits + ", misses=" + misses + ", entries=" + entries + ", size=" + size;
+        }
+    }
+}
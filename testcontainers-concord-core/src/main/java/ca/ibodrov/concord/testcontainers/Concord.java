@@ -22,6 +22,8 @@ package ca.ibodrov.concord.testcontainers;
 
 import com.walmartlabs.concord.client2.*;
 import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.testcontainers.images.ImagePullPolicy;
 import org.testcontainers.images.PullPolicy;
 import org.testcontainers.lifecycle.Startable;
@@ -29,15 +31,21 @@ import org.testcontainers.lifecycle.Startable;
 import org.testcontainers.containers.GenericContainer;
 import org.testcontainers.containers.Network;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.time.Duration;
 import java.util.*;
 import java.util.function.Function;
 import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
 @SuppressWarnings({"unchecked"})
 public class Concord<T extends Concord<T>> implements AutoCloseable {
 
+    private static final Logger log = LoggerFactory.getLogger(Concord.class);
+
     private static final String TESTCONTAINERS_CONCORD_DB_IMAGE = "TESTCONTAINERS_CONCORD_DB_IMAGE";
     private static final String TESTCONTAINERS_CONCORD_SERVER_IMAGE = "TESTCONTAINERS_CONCORD_SERVER_IMAGE";
     private static final String TESTCONTAINERS_CONCORD_AGENT_IMAGE = "TESTCONTAINERS_CONCORD_AGENT_IMAGE";
@@ -45,6 +53,8 @@ public class Concord<T extends Concord<T>> implements AutoCloseable {
     private boolean startAgent = true;
     private boolean streamAgentLogs;
     private boolean streamServerLogs;
+    private int captureContainerLogs;
+    private Path dumpLogsOnFailure;
 
     private boolean useMavenCentral = true;
     private boolean useLocalMavenRepository;
@@ -73,6 +83,11 @@ public class Concord<T extends Concord<T>> implements AutoCloseable {
 
     private List<ContainerListener> containerListeners;
 
+    private ProcessTimelineRecorder processTimeline;
+
+    private int keyPairPoolSize;
+    private KeyPairPool keyPairPool;
+
     private ConcordEnvironment environment;
 
     private List<MountPoint> agentBindMounts;
@@ -87,6 +102,25 @@ public class Concord<T extends Concord<T>> implements AutoCloseable {
     public void start() {
         initEnvironment();
         environment.start();
+        startResources();
+    }
+
+    /**
+     * Starts the resources of this instance (the key pair pool) using
+     * the current environment, e.g. an environment started elsewhere.
+     *
+     * @see #closeResources()
+     */
+    protected void startResources() {
+        if (keyPairPoolSize > 0) {
+            try {
+                keyPairPool = new KeyPairPool(apiClient())
+                        .size(keyPairPoolSize)
+                        .start();
+            } catch (ApiException e) {
+                throw new RuntimeException("Error while starting the key pair pool: " + e.getMessage(), e);
+            }
+        }
     }
 
     /**
@@ -94,8 +128,31 @@ public class Concord<T extends Concord<T>> implements AutoCloseable {
      */
     @Override
     public void close() {
+        closeResources();
         environment.stop();
-        ProcessLogStreamers.stop();
+    }
+
+    /**
+     * Releases the resources of this instance (the process timeline,
+     * the key pair pool and the log streamers) without stopping
+     * the environment, e.g. when the environment is stopped elsewhere.
+     */
+    protected void closeResources() {
+        if (processTimeline != null) {
+            try {
+                log.info("close -> {}", processTimeline.report());
+            } catch (Exception e) {
+                log.warn("close -> error while collecting the process timeline: {}", e.getMessage());
+            }
+        }
+
+        if (keyPairPool != null) {
+            keyPairPool.close();
+            keyPairPool = null;
+        }
+
+        // only the streamers of this instance, other instances might be still running
+        ProcessLogStreamers.stop(this);
     }
 
     public ConcordEnvironment environment() {
@@ -107,6 +164,15 @@ public class Concord<T extends Concord<T>> implements AutoCloseable {
         return this.environment;
     }
 
+    /**
+     * Uses an already running environment instead of starting a new one,
+     * e.g. an environment started by another instance with the same
+     * {@link #configurationKey()}.
+     */
+    protected void useEnvironment(ConcordEnvironment environment) {
+        this.environment = environment;
+    }
+
     /**
      * Returns the server's API port, e.g. 8001.
      */
@@ -337,6 +403,65 @@ public class Concord<T extends Concord<T>> implements AutoCloseable {
         return (T) this;
     }
 
+    public int captureContainerLogs() {
+        return captureContainerLogs;
+    }
+
+    /**
+     * Keep the last {@code maxSizeMb} megabytes of the server and agent output
+     * in memory (per container). The captured logs can be searched using
+     * {@link ConcordEnvironment#capturedLogs(ContainerType)}.
+     * Disabled by default. Only for {@link Mode#DOCKER}.
+     */
+    public T captureContainerLogs(int maxSizeMb) {
+        this.captureContainerLogs = maxSizeMb;
+        return (T) this;
+    }
+
+    public Path dumpLogsOnFailure() {
+        return dumpLogsOnFailure;
+    }
+
+    /**
+     * Directory to save the captured server and agent logs into when a test fails.
+     * Requires {@link #captureContainerLogs(int)}. Used by the JUnit extensions.
+     */
+    public T dumpLogsOnFailure(Path dir) {
+        this.dumpLogsOnFailure = dir;
+        return (T) this;
+    }
+
+    /**
+     * Saves the captured container logs (if any) into the specified directory.
+     * Each container's log is saved into a separate file, e.g. {@code server.log}.
+     *
+     * @return list of created files.
+     */
+    public List<Path> dumpCapturedLogs(Path dir) {
+        if (environment == null) {
+            return Collections.emptyList();
+        }
+
+        List<Path> result = new ArrayList<>();
+        for (ContainerType t : ContainerType.values()) {
+            Optional<ContainerLogBuffer> logs = environment.capturedLogs(t);
+            if (logs.isEmpty()) {
+                continue;
+            }
+
+            try {
+                Files.createDirectories(dir);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Can't create directory " + dir, e);
+            }
+
+            Path dst = dir.resolve(t.name().toLowerCase() + ".log");
+            logs.get().dumpTo(dst);
+            result.add(dst);
+        }
+        return result;
+    }
+
     public String pathToRunnerV1() {
         return pathToRunnerV1;
     }
@@ -505,6 +630,41 @@ public class Concord<T extends Concord<T>> implements AutoCloseable {
         return (T) this;
     }
 
+    public int keyPairPoolSize() {
+        return keyPairPoolSize;
+    }
+
+    /**
+     * Number of key pair secrets to generate in the background, see {@link KeyPairPool}.
+     * The pool is used by {@link #secrets()}. Disabled by default.
+     */
+    public T keyPairPoolSize(int keyPairPoolSize) {
+        this.keyPairPoolSize = keyPairPoolSize;
+        return (T) this;
+    }
+
+    /**
+     * Returns the key pair pool or {@code null} if the pool is disabled
+     * or the instance is not started.
+     */
+    public KeyPairPool keyPairPool() {
+        return keyPairPool;
+    }
+
+    public ProcessTimelineRecorder processTimeline() {
+        return processTimeline;
+    }
+
+    /**
+     * Attaches the processes started using {@link #processes()} to the specified
+     * recorder. The recorder's report is logged in {@link #close()}.
+     * The same recorder can be shared between multiple instances.
+     */
+    public T processTimeline(ProcessTimelineRecorder processTimeline) {
+        this.processTimeline = processTimeline;
+        return (T) this;
+    }
+
     public T agentBindMount(String source, String dest) {
         if (this.agentBindMounts == null) {
             this.agentBindMounts = new ArrayList<>();
@@ -545,18 +705,61 @@ public class Concord<T extends Concord<T>> implements AutoCloseable {
         return extraContainerSupplier;
     }
 
+    /**
+     * Returns a key that identifies the environment's configuration.
+     * Instances with equal keys start identical environments. Listeners,
+     * dependencies and suppliers are compared by identity, suppliers are not
+     * called, i.e. the key is available before the dependencies are started.
+     * Options that don't affect the environment itself, such as
+     * {@link #keyPairPoolSize(int)}, are not included.
+     */
+    public ConfigurationKey configurationKey() {
+        return new ConfigurationKey()
+                // subclasses can override the creation of environments
+                .value("type", getClass().getName())
+                .value("mode", mode)
+                .value("dbImage", dbImage())
+                .value("serverImage", serverImage())
+                .value("agentImage", agentImage())
+                .value("pullPolicy", pullPolicy != null ? pullPolicy.getClass().getName() : null)
+                .value("startAgent", startAgent)
+                .value("streamAgentLogs", streamAgentLogs)
+                .value("streamServerLogs", streamServerLogs)
+                .value("captureContainerLogs", captureContainerLogs)
+                .value("useMavenCentral", useMavenCentral)
+                .value("useLocalMavenRepository", useLocalMavenRepository)
+                .value("extraMavenRepositories", extraMavenRepositories != null ? new ArrayList<>(extraMavenRepositories) : null)
+                .value("apiBaseUrl", apiBaseUrl)
+                .secret("apiToken", apiToken)
+                .value("mavenConfigurationPath", mavenConfigurationPath)
+                .value("pathToRunnerV1", pathToRunnerV1)
+                .value("pathToRunnerV2", pathToRunnerV2)
+                .value("serverClassesDirectory", serverClassesDirectory)
+                .value("serverExtDirectory", serverExtDirectory)
+                .value("sharedContainerDir", sharedContainerDir)
+                .value("persistentWorkDir", persistentWorkDir)
+                .value("ignoreSslErrors", ignoreSslErrors)
+                .value("hostAccessible", hostAccessible)
+                .value("agentBindMounts", agentBindMounts != null ? agentBindMounts.stream().map(MountPoint::toString).collect(Collectors.toList()) : null)
+                .value("agentEnvironment", agentEnvironment != null ? new TreeMap<>(agentEnvironment) : null)
+                .reference("extraConfigurationSupplier", extraConfigurationSupplier)
+                .references("dependsOn", dependsOn)
+                .references("containerListeners", containerListeners)
+                .reference("extraContainerSupplier", extraContainerSupplier);
+    }
+
     /**
      * Utilities to work with T processes.
      */
     public Processes processes() {
-        return new Processes(apiClient());
+        return new Processes(apiClient(), processTimeline, this);
     }
 
     /**
      * Utilities to work with T secrets.
      */
     public Secrets secrets() {
-        return new Secrets(apiClient());
+        return new Secrets(apiClient(), keyPairPool);
     }
 
     /**
@@ -573,7 +776,11 @@ public class Concord<T extends Concord<T>> implements AutoCloseable {
         return new Projects(apiClient());
     }
 
-    private ConcordEnvironment createEnvironment() {
+    /**
+     * Creates a new environment using the current configuration. The environment
+     * is not started.
+     */
+    protected ConcordEnvironment createEnvironment() {
         switch (mode) {
             case LOCAL: {
                 return createLocalConcordEnvironment();
@@ -642,5 +849,10 @@ public class Concord<T extends Concord<T>> implements AutoCloseable {
         public String getSource() {
             return source;
         }
+
+        @Override
+        public String toString() {
+            return source + ":" + dest;
+        }
     }
 }
@@ -20,6 +20,9 @@ package ca.ibodrov.concord.testcontainers;
  * =====
  */
 
+import java.nio.file.Path;
+import java.util.Optional;
+
 public interface ConcordEnvironment extends AutoCloseable {
 
     int apiPort();
@@ -30,6 +33,57 @@ public interface ConcordEnvironment extends AutoCloseable {
 
     void stop();
 
+    /**
+     * Returns the captured output of the specified container if the capture
+     * is enabled and supported by the environment.
+     *
+     * @see Concord#captureContainerLogs(int)
+     */
+    default Optional<ContainerLogBuffer> capturedLogs(ContainerType type) {
+        return Optional.empty();
+    }
+
+    /**
+     * Dumps the contents of the DB into a file that can be used to restore
+     * the same state later, in this or in another environment of the same
+     * Concord version. Snapshots are stored in the system's temporary
+     * directory and shared between test runs.
+     *
+     * @return path to the snapshot file.
+     * @throws UnsupportedOperationException if the environment doesn't support snapshots,
+     *                                       e.g. in the REMOTE mode.
+     * @see #restore(String)
+     */
+    default Path snapshot(String name) {
+        throw new UnsupportedOperationException("Snapshots are not supported by " + getClass().getSimpleName());
+    }
+
+    /**
+     * Replaces the contents of the DB with the specified snapshot.
+     * API keys of the current environment are kept. Should be called when
+     * there are no running processes. The server's caches are not reset,
+     * so it's best to restore right after the environment's start.
+     * Snapshots created with different DB or server images are rejected.
+     *
+     * @throws UnsupportedOperationException if the environment doesn't support snapshots,
+     *                                       e.g. in the REMOTE mode.
+     * @throws IllegalStateException         if the snapshot doesn't exist or was created by
+     *                                       a different version of the environment.
+     * @see #snapshot(String)
+     */
+    default void restore(String name) {
+        throw new UnsupportedOperationException("Snapshots are not supported by " + getClass().getSimpleName());
+    }
+
+    /**
+     * Returns {@code true} if a snapshot with the specified name exists and
+     * can be restored by this environment. Always {@code false} if
+     * the environment doesn't support snapshots.
+     */
+    default boolean hasSnapshot(String name) {
+        return false;
+    }
+
     @Override
     default void close() {
         stop();
@@ -0,0 +1,227 @@
+package ca.ibodrov.concord.testcontainers;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2020 Ivan Bodrov
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import com.walmartlabs.concord.client2.ApiException;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Time and traffic spent on Concord by the client: environment startup,
+ * waiting for processes, API calls and bytes sent to or received from
+ * the server.
+ * <p/>
+ * The metrics are collected by the current thread's instance, see
+ * {@link #bind(ConcordMetrics)}. Processes remember the instance that was
+ * current when they were started or fetched, so calls made from other
+ * threads are still accounted to the same instance.
+ * <p/>
+ * Wait time includes the API calls made while polling the process status.
+ */
+public final class ConcordMetrics {
+
+    private static final ThreadLocal<ConcordMetrics> current = new ThreadLocal<>();
+
+    /**
+     * Makes the specified instance current for the calling thread.
+     */
+    public static void bind(ConcordMetrics metrics) {
+        current.set(metrics);
+    }
+
+    public static void unbind() {
+        current.remove();
+    }
+
+    /**
+     * Returns the current thread's instance or {@code null}.
+     */
+    public static ConcordMetrics current() {
+        return current.get();
+    }
+
+    private final LongAdder startupNanos = new LongAdder();
+    private final LongAdder waitNanos = new LongAdder();
+    private final LongAdder apiCalls = new LongAdder();
+    private final LongAdder apiNanos = new LongAdder();
+    private final LongAdder bytesSent = new LongAdder();
+    private final LongAdder bytesReceived = new LongAdder();
+
+    public void recordStartup(long nanos) {
+        startupNanos.add(nanos);
+    }
+
+    public void recordWait(long nanos) {
+        waitNanos.add(nanos);
+    }
+
+    public void recordApiCall(long nanos) {
+        apiCalls.increment();
+        apiNanos.add(nanos);
+    }
+
+    public void recordSent(long bytes) {
+        bytesSent.add(bytes);
+    }
+
+    public void recordReceived(long bytes) {
+        bytesReceived.add(bytes);
+    }
+
+    public long startupMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(startupNanos.sum());
+    }
+
+    public long waitMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(waitNanos.sum());
+    }
+
+    public long apiCalls() {
+        return apiCalls.sum();
+    }
+
+    public long apiMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(apiNanos.sum());
+    }
+
+    public long bytesSent() {
+        return bytesSent.sum();
+    }
+
+    public long bytesReceived() {
+        return bytesReceived.sum();
+    }
+
+    /**
+     * Adds the values of another instance, e.g. to calculate totals.
+     */
+    public void add(ConcordMetrics other) {
+        startupNanos.add(other.startupNanos.sum());
+        waitNanos.add(other.waitNanos.sum());
+        apiCalls.add(other.apiCalls.sum());
+        apiNanos.add(other.apiNanos.sum());
+        bytesSent.add(other.bytesSent.sum());
+        bytesReceived.add(other.bytesReceived.sum());
+    }
+
+    /**
+     * Returns the values as a map with stable keys, e.g. to publish them
+     * as JUnit report entries.
+     */
+    public Map<String, String> toMap() {
+        Map<String, String> m = new LinkedHashMap<>();
+        m.put("concord.startupMs", String.valueOf(startupMillis()));
+        m.put("concord.waitMs", String.valueOf(waitMillis()));
+        m.put("concord.apiCalls", String.valueOf(apiCalls()));
+        m.put("concord.apiMs", String.valueOf(apiMillis()));
+        m.put("concord.bytesSent", String.valueOf(bytesSent()));
+        m.put("concord.bytesReceived", String.valueOf(bytesReceived()));
+        return m;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("startup=%dms, wait=%dms, api=%d calls/%dms, sent=%d bytes, received=%d bytes",
+                startupMillis(), waitMillis(), apiCalls(), apiMillis(), bytesSent(), bytesReceived());
+    }
+
+    /**
+     * Times the API call if the metrics are enabled.
+     */
+    static <T> T apiCall(ConcordMetrics metrics, ApiCall<T> call) throws ApiException {
+        if (metrics == null) {
+            return call.call();
+        }
+
+        long t0 = System.nanoTime();
+        try {
+            return call.call();
+        } finally {
+            metrics.recordApiCall(System.nanoTime() - t0);
+        }
+    }
+
+    /**
+     * Counts the bytes read from the stream if the metrics are enabled.
+     */
+    static InputStream received(ConcordMetrics metrics, InputStream in) {
+        if (metrics == null || in == null) {
+            return in;
+        }
+        return new CountingInputStream(in, metrics.bytesReceived);
+    }
+
+    /**
+     * Counts the bytes read from the stream (i.e. sent by the client) if the metrics are enabled.
+     */
+    static InputStream sent(ConcordMetrics metrics, InputStream in) {
+        if (metrics == null || in == null) {
+            return in;
+        }
+        return new CountingInputStream(in, metrics.bytesSent);
+    }
+
+    interface ApiCall<T> {
+
+        T call() throws ApiException;
+    }
+
+    private static final class CountingInputStream extends FilterInputStream {
+
+        private final LongAdder counter;
+
+        private CountingInputStream(InputStream in, LongAdder counter) {
+            super(in);
+            this.counter = counter;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                counter.increment();
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) {
+                counter.add(n);
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            counter.add(skipped);
+            return skipped;
+        }
+    }
+}
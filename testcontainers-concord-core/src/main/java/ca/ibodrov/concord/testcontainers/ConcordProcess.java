@@ -20,29 +20,51 @@ package ca.ibodrov.concord.testcontainers;
  * =====
  */
 
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.walmartlabs.concord.client2.*;
 import com.walmartlabs.concord.client2.ProcessEntry.StatusEnum;
-import org.apache.commons.io.IOUtils;
 import org.intellij.lang.annotations.Language;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.*;
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.function.BooleanSupplier;
 import java.util.function.Predicate;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
 
 public class ConcordProcess {
 
     private static final Logger log = LoggerFactory.getLogger(ConcordProcess.class);
 
+    private static final long AWAIT_LOG_POLL_DELAY = 500;
+    private static final Executor AWAIT_LOG_EXECUTOR = Executors.newCachedThreadPool(new ThreadFactoryBuilder()
+            .setDaemon(true)
+            .setNameFormat("concord-await-log-%d")
+            .build());
+
     private final ApiClient client;
     private final UUID instanceId;
+    private final ConcordMetrics metrics;
+
+    private volatile ProcessTimelineRecorder timeline;
+    private volatile ProcessAttachments attachments;
+    private volatile boolean finalStatus;
 
     public ConcordProcess(ApiClient client, UUID instanceId) {
         this.client = client;
         this.instanceId = instanceId;
+        this.metrics = ConcordMetrics.current();
     }
 
     /**
@@ -54,7 +76,7 @@ public class ConcordProcess {
 
     public ProcessEntry getEntry(String... includes) throws ApiException {
         ProcessV2Api api = new ProcessV2Api(client);
-        return api.getProcess(instanceId, new HashSet<>(Arrays.asList(includes)));
+        return observe(ConcordMetrics.apiCall(metrics, () -> api.getProcess(instanceId, new HashSet<>(Arrays.asList(includes)))));
     }
 
     /**
@@ -81,7 +103,7 @@ public class ConcordProcess {
     public ProcessEntry waitForStatus(StatusEnum status, StatusEnum... more) throws ApiException {
         ProcessV2Api api = new ProcessV2Api(client);
 
-        return waitForStatus(() -> Collections.singletonList(api.getProcess(instanceId, Collections.emptySet())), status, more);
+        return waitForStatus(() -> Collections.singletonList(observe(ConcordMetrics.apiCall(metrics, () -> api.getProcess(instanceId, Collections.emptySet())))), status, more);
     }
 
     /**
@@ -91,7 +113,7 @@ public class ConcordProcess {
      */
     public ProcessEntry waitForChildStatus(StatusEnum status, StatusEnum... more) throws ApiException {
         ProcessApi api = new ProcessApi(client);
-        return waitForStatus(() -> api.listSubprocesses(instanceId, null), status, more);
+        return waitForStatus(() -> ConcordMetrics.apiCall(metrics, () -> api.listSubprocesses(instanceId, null)), status, more);
     }
 
     /**
@@ -99,8 +121,11 @@ public class ConcordProcess {
      */
     public void assertLog(@Language("RegExp") String pattern) throws ApiException {
         byte[] ab = getLog();
-        String msg = "Expected: " + pattern + "\nGot: " + new String(ab);
-        assertEquals(msg, 1, Utils.grep(pattern, ab).size());
+        // no need to look further than the second match
+        int matches = LogGrep.compile(pattern).count(ab, 2);
+        if (matches != 1) {
+            throw new IllegalStateException("Expected: " + pattern + "\nGot: " + new String(ab, UTF_8));
+        }
     }
 
     /**
@@ -108,8 +133,10 @@ public class ConcordProcess {
      */
     public void assertNoLog(@Language("RegExp") String pattern) throws ApiException {
         byte[] ab = getLog();
-        String msg = "Expected: " + pattern + "\nGot: " + new String(ab);
-        assertEquals(msg, 0, Utils.grep(pattern, ab).size());
+        int matches = LogGrep.compile(pattern).count(ab, 1);
+        if (matches != 0) {
+            throw new IllegalStateException("Expected: " + pattern + "\nGot: " + new String(ab, UTF_8));
+        }
     }
 
     /**
@@ -117,8 +144,63 @@ public class ConcordProcess {
      */
     public void assertLogAtLeast(@Language("RegExp") String pattern, int times) throws ApiException {
         byte[] ab = getLog();
-        String msg = "Expected " + pattern + " at least " + times + " time(s)\nGot: " + new String(ab);
-        assertTrue(msg, times <= Utils.grep(pattern, ab).size());
+        int matches = LogGrep.compile(pattern).count(ab, times);
+        if (matches < times) {
+            throw new IllegalStateException("Expected " + pattern + " at least " + times + " time(s)\nGot: " + new String(ab, UTF_8));
+        }
+    }
+
+    /**
+     * Returns a builder for checking multiple log patterns at once.
+     * The log is downloaded and scanned once when {@link LogAssertions#verify()}
+     * is called, all failed expectations are reported together.
+     */
+    public LogAssertions assertLogs() {
+        return new LogAssertions(() -> downloadLog(new ProcessApi(client)));
+    }
+
+    /**
+     * Waits for a line matching the specified pattern (regex) to appear in the process' log.
+     * Only the new parts of the log are downloaded on each check.
+     *
+     * @return the first matching line.
+     * @throws IllegalStateException if the process reaches a final status without
+     *                               a matching line or if the timeout is reached.
+     */
+    public String awaitLog(@Language("RegExp") String pattern, Duration timeout) throws ApiException {
+        long t0 = System.nanoTime();
+        try {
+            return awaitLog(Pattern.compile(pattern), timeout, () -> false);
+        } finally {
+            if (metrics != null) {
+                metrics.recordWait(System.nanoTime() - t0);
+            }
+        }
+    }
+
+    /**
+     * Same as {@link #awaitLog(String, Duration)} but doesn't block the current thread.
+     * Cancelling the returned future stops the log polling.
+     */
+    public CompletableFuture<String> awaitLogAsync(@Language("RegExp") String pattern, Duration timeout) {
+        return awaitLogAsync(pattern, timeout, AWAIT_LOG_EXECUTOR);
+    }
+
+    /**
+     * Same as {@link #awaitLogAsync(String, Duration)} but uses the specified executor.
+     */
+    public CompletableFuture<String> awaitLogAsync(@Language("RegExp") String pattern, Duration timeout, Executor executor) {
+        Pattern p = Pattern.compile(pattern);
+
+        CompletableFuture<String> result = new CompletableFuture<>();
+        executor.execute(() -> {
+            try {
+                result.complete(awaitLog(p, timeout, result::isDone));
+            } catch (Throwable t) {
+                result.completeExceptionally(t);
+            }
+        });
+        return result;
     }
 
     /**
@@ -195,16 +277,39 @@ public class ConcordProcess {
         return processApi.listSubprocesses(instanceId, tags == null ? null : new HashSet<>(Arrays.asList(tags)));
     }
 
+    /**
+     * Returns the process' attachments. Attachments of finished processes
+     * are downloaded only once.
+     */
+    public ProcessAttachments attachments() {
+        ProcessAttachments a = attachments;
+        if (a == null) {
+            a = new ProcessAttachments(client, this);
+            attachments = a;
+        }
+        return a;
+    }
+
     /**
      * Returns process out variables.
      */
-    @SuppressWarnings("unchecked")
     public Map<String, Object> getOutVariables() {
-        ProcessApi processApi = new ProcessApi(client);
-        try (InputStream is = processApi.downloadAttachment(instanceId, "out.json")) {
-            return new ObjectMapper().readValue(is, Map.class);
+        try {
+            return attachments().outVariables();
+        } catch (Exception e) {
+            throw new RuntimeException("Error converting out variables: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Returns process out variables bound to the specified type, e.g. a record.
+     * Unknown variables are ignored.
+     */
+    public <T> T getOutVariables(Class<T> type) {
+        try {
+            return attachments().outVariables(type);
         } catch (Exception e) {
-            throw new RuntimeException("Error converting out variables: " + e.getMessage());
+            throw new RuntimeException("Error converting out variables: " + e.getMessage(), e);
         }
     }
 
@@ -213,27 +318,149 @@ public class ConcordProcess {
     }
 
     public List<String> getLogLines(Predicate<String> lineFilter) throws ApiException {
-        try {
-            byte[] log = getLog();
-            return IOUtils.readLines(new InputStreamReader(new ByteArrayInputStream(log)))
-                    .stream()
-                    .filter(lineFilter)
+        try (Stream<String> lines = logLines()) {
+            return lines.filter(lineFilter)
                     .collect(Collectors.toList());
         } catch (UncheckedIOException e) {
             throw new RuntimeException("Failed to read log lines", e);
         }
     }
 
+    /**
+     * Returns the process' log as a lazily populated stream of lines.
+     * The log is decoded as the stream is consumed, without loading
+     * the whole log into memory.
+     * <p/>
+     * The stream must be closed after use, e.g.
+     * <pre>{@code
+     * try (Stream<String> lines = process.logLines()) {
+     *     long errors = lines.filter(l -> l.contains("ERROR")).count();
+     * }
+     * }</pre>
+     */
+    public Stream<String> logLines() throws ApiException {
+        ProcessApi processApi = new ProcessApi(client);
+        InputStream is = downloadLog(processApi);
+        if (is == null) {
+            return Stream.empty();
+        }
+        return new LogLineReader(is).lines();
+    }
+
+    /**
+     * Downloads the process' log and parses it into indexed records.
+     * Useful to measure time between steps or to find all warnings and errors.
+     *
+     * @see ProcessLogIndex
+     */
+    public ProcessLogIndex logIndex() throws ApiException {
+        return ProcessLogIndex.parse(getLog());
+    }
+
     public byte[] getLog() throws ApiException {
         ProcessApi processApi = new ProcessApi(client);
-        try (InputStream is = processApi.getProcessLog(instanceId, null)) {
+        try (InputStream is = downloadLog(processApi)) {
             return is.readAllBytes();
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
     }
 
-    private static ProcessEntry waitForStatus(ProcessSupplier processSupplier, StatusEnum status, StatusEnum... more) throws ApiException {
+    private String awaitLog(Pattern pattern, Duration timeout, BooleanSupplier cancelled) throws ApiException {
+        long deadline = System.nanoTime() + timeout.toNanos();
+
+        ProcessLogTail tail = new ProcessLogTail(client, instanceId);
+        Matcher m = pattern.matcher("");
+
+        while (!cancelled.getAsBoolean()) {
+            long offset = tail.offset();
+            for (String line : tail.poll(false)) {
+                if (m.reset(line).matches()) {
+                    return line;
+                }
+            }
+
+            if (tail.offset() == offset) {
+                // no new data, check if the process is still running
+                ProcessEntry pe = getEntry();
+                if (ProcessLogStreamer.FINAL_STATUSES.contains(pe.getStatus())) {
+                    // the log might've been updated since the last check
+                    for (String line : tail.poll(true)) {
+                        if (m.reset(line).matches()) {
+                            return line;
+                        }
+                    }
+
+                    throw new IllegalStateException("The process is " + pe.getStatus() + ", no log lines matching " + pattern + " found");
+                }
+            }
+
+            if (System.nanoTime() - deadline >= 0) {
+                throw new IllegalStateException("Timeout waiting for a log line matching " + pattern + " (" + timeout + ")");
+            }
+
+            try {
+                Thread.sleep(AWAIT_LOG_POLL_DELAY);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for a log line matching " + pattern);
+            }
+        }
+
+        throw new CancellationException();
+    }
+
+    private InputStream downloadLog(ProcessApi processApi) throws ApiException {
+        return ConcordMetrics.received(metrics, ConcordMetrics.apiCall(metrics, () -> processApi.getProcessLog(instanceId, null)));
+    }
+
+    void timeline(ProcessTimelineRecorder timeline) {
+        this.timeline = timeline;
+    }
+
+    /**
+     * Returns the metrics of the thread that created this instance, if any.
+     */
+    ConcordMetrics metrics() {
+        return metrics;
+    }
+
+    /**
+     * Returns {@code true} if the process was seen in one of the final statuses.
+     */
+    boolean isFinal() {
+        return finalStatus;
+    }
+
+    private ProcessEntry observe(ProcessEntry pe) {
+        if (pe == null) {
+            return null;
+        }
+
+        if (ProcessLogStreamer.FINAL_STATUSES.contains(pe.getStatus())) {
+            finalStatus = true;
+        }
+
+        ProcessTimelineRecorder t = timeline;
+        if (t != null) {
+            t.observe(this, pe.getStatus());
+        }
+
+        return pe;
+    }
+
+    private ProcessEntry waitForStatus(ProcessSupplier processSupplier, StatusEnum status, StatusEnum... more) throws ApiException {
+        long t0 = System.nanoTime();
+        try {
+            return pollStatus(processSupplier, status, more);
+        } finally {
+            if (metrics != null) {
+                metrics.recordWait(System.nanoTime() - t0);
+            }
+        }
+    }
+
+    private static ProcessEntry pollStatus(ProcessSupplier processSupplier, StatusEnum status, StatusEnum... more) throws ApiException {
         int retries = 10;
 
         while (true) {
@@ -266,26 +493,6 @@ public class ConcordProcess {
         }
     }
 
-    private static void assertEquals(String msg, Object expected, Object actual) {
-        if (expected == null && actual == null) {
-            return;
-        }
-
-        if (expected != null && expected.equals(actual)) {
-            return;
-        }
-
-        throw new IllegalStateException(msg);
-    }
-
-    private static void assertTrue(String msg, boolean value) {
-        if (value) {
-            return;
-        }
-
-        throw new IllegalStateException(msg);
-    }
-
     private interface ProcessSupplier {
 
         List<ProcessEntry> get() throws ApiException;
@@ -0,0 +1,121 @@
+package ca.ibodrov.concord.testcontainers;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2020 Ivan Bodrov
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import com.google.common.hash.Hashing;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Identifies the configuration of a Concord environment, see
+ * {@link Concord#configurationKey()}. Option values are compared using
+ * {@code equals}, listeners, dependencies and suppliers are compared by
+ * identity. Secrets, such as the API token, are kept only as hashes.
+ */
+public final class ConfigurationKey {
+
+    private final List<Object> values = new ArrayList<>();
+    private final List<Object> references = new ArrayList<>();
+
+    ConfigurationKey() {
+    }
+
+    ConfigurationKey value(String name, Object value) {
+        values.add(name);
+        values.add(value);
+        return this;
+    }
+
+    ConfigurationKey secret(String name, String value) {
+        return value(name, value != null ? Hashing.sha256().hashString(value, UTF_8).toString() : null);
+    }
+
+    ConfigurationKey reference(String name, Object reference) {
+        return references(name, reference != null ? Collections.singletonList(reference) : null);
+    }
+
+    ConfigurationKey references(String name, List<?> references) {
+        // the size keeps the references of different options apart
+        value(name, references != null ? references.size() : null);
+        if (references != null) {
+            this.references.addAll(references);
+        }
+        return this;
+    }
+
+    /**
+     * Returns a key without the options compared by identity, e.g. to match
+     * the configurations of rules created anew for each test.
+     */
+    public ConfigurationKey withoutReferences() {
+        ConfigurationKey k = new ConfigurationKey();
+        k.values.addAll(values);
+        return k;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof ConfigurationKey)) {
+            return false;
+        }
+
+        ConfigurationKey that = (ConfigurationKey) o;
+        if (!values.equals(that.values) || references.size() != that.references.size()) {
+            return false;
+        }
+
+        for (int i = 0; i < references.size(); i++) {
+            if (references.get(i) != that.references.get(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        int h = values.hashCode();
+        for (Object r : references) {
+            h = 31 * h + System.identityHashCode(r);
+        }
+        return h;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < values.size(); i += 2) {
+            if (i > 0) {
+                sb.append('|');
+            }
+            sb.append(values.get(i)).append('=').append(Objects.toString(values.get(i + 1)));
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,427 @@
+package ca.ibodrov.concord.testcontainers;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2020 Ivan Bodrov
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import org.intellij.lang.annotations.Language;
+import org.testcontainers.containers.output.OutputFrame;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Keeps the last N bytes of a container's output in an off-heap ring buffer.
+ * Lines are indexed with the time they were received, which allows searching
+ * the captured output without going through the container's full log history.
+ * <p/>
+ * Can be used as a log consumer:
+ * <pre>{@code
+ * ContainerLogBuffer buf = new ContainerLogBuffer(8 * 1024 * 1024);
+ * container.withLogConsumer(buf);
+ * ...
+ * List<String> errors = buf.grep(".*ERROR.*");
+ * }</pre>
+ * When the buffer is full the oldest lines are evicted. Lines longer than
+ * the buffer's capacity are truncated.
+ */
+public final class ContainerLogBuffer implements Consumer<OutputFrame> {
+
+    private static final int INITIAL_INDEX_SIZE = 1024;
+    private static final byte[] EMPTY = new byte[0];
+
+    private final ByteBuffer data;
+    private final int capacity;
+    private final Clock clock;
+
+    // absolute positions of the first (oldest) and the next free byte
+    private long head;
+    private long tail;
+
+    // ring of line records: start position, length and timestamp
+    private long[] starts = new long[INITIAL_INDEX_SIZE];
+    private int[] lengths = new int[INITIAL_INDEX_SIZE];
+    private long[] timestamps = new long[INITIAL_INDEX_SIZE];
+    private int first;
+    private int count;
+
+    private long evicted;
+
+    // incomplete lines from the previous frames, kept until a newline arrives
+    // STDOUT and STDERR frames can interleave, so each stream has its own
+    private final Map<OutputFrame.OutputType, byte[]> pending = new EnumMap<>(OutputFrame.OutputType.class);
+
+    public ContainerLogBuffer(int capacity) {
+        this(capacity, Clock.systemUTC());
+    }
+
+    ContainerLogBuffer(int capacity, Clock clock) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be a positive number: " + capacity);
+        }
+
+        this.data = ByteBuffer.allocateDirect(capacity);
+        this.capacity = capacity;
+        this.clock = clock;
+    }
+
+    @Override
+    public void accept(OutputFrame frame) {
+        if (frame.getType() == OutputFrame.OutputType.END) {
+            synchronized (this) {
+                flush();
+            }
+            return;
+        }
+
+        byte[] ab = frame.getBytes();
+        if (ab != null) {
+            append(frame.getType(), ab, 0, ab.length);
+        }
+    }
+
+    /**
+     * Appends raw output. Complete lines are added to the buffer, the trailing
+     * incomplete line (if any) is kept until the next newline.
+     */
+    public void append(byte[] ab, int off, int len) {
+        append(OutputFrame.OutputType.STDOUT, ab, off, len);
+    }
+
+    private synchronized void append(OutputFrame.OutputType stream, byte[] ab, int off, int len) {
+        long now = clock.millis();
+        byte[] pending = this.pending.getOrDefault(stream, EMPTY);
+
+        int start = off;
+        int end = off + len;
+        for (int i = off; i < end; i++) {
+            if (ab[i] != '\n') {
+                continue;
+            }
+
+            if (pending.length > 0) {
+                byte[] line = new byte[pending.length + (i - start)];
+                System.arraycopy(pending, 0, line, 0, pending.length);
+                System.arraycopy(ab, start, line, pending.length, i - start);
+                pending = EMPTY;
+                addLine(line, 0, line.length, now);
+            } else {
+                addLine(ab, start, i - start, now);
+            }
+
+            start = i + 1;
+        }
+
+        if (start < end) {
+            int n = Math.min(end - start, capacity - pending.length);
+            if (n > 0) {
+                pending = Arrays.copyOf(pending, pending.length + n);
+                System.arraycopy(ab, start, pending, pending.length - n, n);
+            }
+        }
+
+        if (pending.length > 0) {
+            this.pending.put(stream, pending);
+        } else {
+            this.pending.remove(stream);
+        }
+    }
+
+    /**
+     * Returns all lines matching the specified pattern (regex). Patterns are
+     * matched against whole lines, the same way as {@link LogGrep} does.
+     */
+    public List<String> grep(@Language("RegExp") String pattern) {
+        return grep(Pattern.compile(pattern));
+    }
+
+    /**
+     * @see #grep(String)
+     */
+    public synchronized List<String> grep(Pattern pattern) {
+        String literal = RegexLiterals.requiredLiteral(pattern);
+        Matcher m = pattern.matcher("");
+
+        List<String> result = new ArrayList<>();
+        LineDecoder decoder = new LineDecoder();
+        for (int i = 0; i < count; i++) {
+            CharSequence line = decoder.decode(i);
+            if (literal != null && !RegexLiterals.contains(line, literal)) {
+                continue;
+            }
+
+            if (m.reset(line).matches()) {
+                result.add(line.toString());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns all lines received at or after the specified time.
+     */
+    public synchronized List<String> since(Instant since) {
+        long ts = since.toEpochMilli();
+
+        // timestamps are non-decreasing, find the first line using binary search
+        int lo = 0;
+        int hi = count;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (timestamps[slot(mid)] < ts) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+
+        return lines(lo, count);
+    }
+
+    /**
+     * Returns up to {@code n} last lines.
+     */
+    public synchronized List<String> tail(int n) {
+        return lines(Math.max(0, count - n), count);
+    }
+
+    /**
+     * Returns all captured lines.
+     */
+    public synchronized List<String> lines() {
+        return lines(0, count);
+    }
+
+    /**
+     * Writes the captured lines into the specified file. The file is overwritten
+     * if it already exists.
+     */
+    public synchronized void dumpTo(Path dst) {
+        try (FileChannel ch = FileChannel.open(dst, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer newline = ByteBuffer.allocate(1);
+            for (int i = 0; i < count; i++) {
+                int s = slot(i);
+                writeFully(ch, firstPart(starts[s], lengths[s]));
+                writeFully(ch, secondPart(starts[s], lengths[s]));
+                writeFully(ch, newline.clear().put((byte) '\n').flip());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error while writing container logs to " + dst, e);
+        }
+    }
+
+    /**
+     * Returns the number of lines currently in the buffer.
+     */
+    public synchronized int lineCount() {
+        return count;
+    }
+
+    /**
+     * Returns the number of lines evicted from the buffer so far.
+     */
+    public synchronized long evictedLineCount() {
+        return evicted;
+    }
+
+    /**
+     * Returns the number of bytes currently in the buffer.
+     */
+    public synchronized long size() {
+        return tail - head;
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    /**
+     * Removes all captured lines.
+     */
+    public synchronized void clear() {
+        head = tail;
+        first = 0;
+        count = 0;
+        pending.clear();
+    }
+
+    private void flush() {
+        long now = clock.millis();
+        for (byte[] line : pending.values()) {
+            addLine(line, 0, line.length, now);
+        }
+        pending.clear();
+    }
+
+    private void addLine(byte[] ab, int off, int len, long timestamp) {
+        if (len > 0 && ab[off + len - 1] == '\r') {
+            len--;
+        }
+
+        if (len > capacity) {
+            len = capacity;
+        }
+
+        // make room for the new line
+        while (count > 0 && tail + len - head > capacity) {
+            int s = slot(0);
+            head = starts[s] + lengths[s];
+            first = (first + 1) % starts.length;
+            count--;
+            evicted++;
+        }
+
+        if (count == 0) {
+            head = tail;
+        }
+
+        if (count == starts.length) {
+            growIndex();
+        }
+
+        int pos = (int) (tail % capacity);
+        int n1 = Math.min(len, capacity - pos);
+        data.put(pos, ab, off, n1);
+        if (n1 < len) {
+            data.put(0, ab, off + n1, len - n1);
+        }
+
+        int s = slot(count);
+        starts[s] = tail;
+        lengths[s] = len;
+        timestamps[s] = timestamp;
+        count++;
+
+        tail += len;
+    }
+
+    private void growIndex() {
+        int n = starts.length * 2;
+
+        long[] newStarts = new long[n];
+        int[] newLengths = new int[n];
+        long[] newTimestamps = new long[n];
+        for (int i = 0; i < count; i++) {
+            int s = slot(i);
+            newStarts[i] = starts[s];
+            newLengths[i] = lengths[s];
+            newTimestamps[i] = timestamps[s];
+        }
+
+        starts = newStarts;
+        lengths = newLengths;
+        timestamps = newTimestamps;
+        first = 0;
+    }
+
+    private int slot(int i) {
+        return (first + i) % starts.length;
+    }
+
+    private List<String> lines(int from, int to) {
+        List<String> result = new ArrayList<>(to - from);
+        LineDecoder decoder = new LineDecoder();
+        for (int i = from; i < to; i++) {
+            result.add(decoder.decode(i).toString());
+        }
+        return result;
+    }
+
+    /**
+     * Returns a view of the first (or the only) contiguous part of a record.
+     */
+    private ByteBuffer firstPart(long start, int len) {
+        int pos = (int) (start % capacity);
+        int n = Math.min(len, capacity - pos);
+        return data.duplicate().limit(pos + n).position(pos);
+    }
+
+    /**
+     * Returns a view of the wrapped-around part of a record (empty if the record
+     * doesn't wrap around the end of the buffer).
+     */
+    private ByteBuffer secondPart(long start, int len) {
+        int pos = (int) (start % capacity);
+        int n = Math.max(0, len - (capacity - pos));
+        return data.duplicate().limit(n).position(0);
+    }
+
+    private static void writeFully(FileChannel ch, ByteBuffer src) throws IOException {
+        while (src.hasRemaining()) {
+            ch.write(src);
+        }
+    }
+
+    /**
+     * Decodes lines into a reusable buffer.
+     */
+    private final class LineDecoder {
+
+        private final CharsetDecoder decoder = UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+
+        private ByteBuffer bytes = ByteBuffer.allocate(256);
+        private CharBuffer chars = CharBuffer.allocate(256);
+
+        CharSequence decode(int i) {
+            int s = slot(i);
+            int len = lengths[s];
+
+            if (bytes.capacity() < len) {
+                bytes = ByteBuffer.allocate(Math.max(len, bytes.capacity() * 2));
+            }
+
+            bytes.clear();
+            bytes.put(firstPart(starts[s], len));
+            bytes.put(secondPart(starts[s], len));
+            bytes.flip();
+
+            int maxChars = (int) (len * (double) decoder.maxCharsPerByte()) + 1;
+            if (chars.capacity() < maxChars) {
+                chars = CharBuffer.allocate(Math.max(maxChars, chars.capacity() * 2));
+            }
+
+            chars.clear();
+            decoder.reset();
+            decoder.decode(bytes, chars, true);
+            decoder.flush(chars);
+            return chars.flip();
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package ca.ibodrov.concord.testcontainers;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2020 Ivan Bodrov
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testcontainers.containers.Container;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.utility.MountableFile;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.regex.Pattern;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Dumps and restores the Concord DB using {@code pg_dump} and {@code pg_restore}
+ * of the DB container. The dumps are stored in a shared directory, so they can
+ * be reused by other environments and test runs.
+ * <p/>
+ * Each dump has a sidecar file with the version of the environment that
+ * created it (the DB and the server images). Dumps of other versions are
+ * not restored, the schema might be different.
+ */
+final class DbSnapshots {
+
+    private static final Logger log = LoggerFactory.getLogger(DbSnapshots.class);
+
+    private static final Path DIR = Paths.get(System.getProperty("java.io.tmpdir"), "testcontainers-concord", "snapshots");
+    private static final Pattern NAME_PATTERN = Pattern.compile("[A-Za-z0-9._-]+");
+
+    private static final String DB_NAME = "postgres";
+    private static final String DB_USER = "postgres";
+    private static final String CONTAINER_FILE = "/tmp/testcontainers-concord-snapshot.dump";
+
+    /**
+     * The API keys of the current environment (the admin's and the agent's
+     * tokens) must survive the restore.
+     */
+    private static final String SAVE_API_KEYS = "DROP TABLE IF EXISTS tc_saved_api_keys; " +
+            "CREATE TABLE tc_saved_api_keys AS SELECT * FROM api_keys";
+
+    private static final String RESTORE_API_KEYS = "DELETE FROM api_keys; " +
+            "INSERT INTO api_keys SELECT * FROM tc_saved_api_keys; " +
+            "DROP TABLE tc_saved_api_keys";
+
+    static Path file(String name) {
+        if (!NAME_PATTERN.matcher(name).matches()) {
+            throw new IllegalArgumentException("Invalid snapshot name: " + name);
+        }
+        return DIR.resolve(name + ".dump");
+    }
+
+    static Path versionFile(String name) {
+        return DIR.resolve(name + ".version");
+    }
+
+    /**
+     * Returns {@code true} if the snapshot exists and was created by
+     * an environment of the same version.
+     */
+    static boolean exists(String name, String version) {
+        return Files.exists(file(name)) && version.equals(readVersion(name));
+    }
+
+    private static String readVersion(String name) {
+        try {
+            return Files.readString(versionFile(name), UTF_8);
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error while reading the version of the DB snapshot '" + name + "'", e);
+        }
+    }
+
+    /**
+     * @param version identifies the DB schema, e.g. the DB and the server images.
+     */
+    static Path snapshot(GenericContainer<?> db, String name, String version) {
+        Path dst = file(name);
+        long t0 = System.currentTimeMillis();
+        try {
+            exec(db, "pg_dump", "-U", DB_USER, "-d", DB_NAME, "--format=custom", "--file=" + CONTAINER_FILE);
+
+            Files.createDirectories(DIR);
+
+            // other JVMs might be using the same directory
+            Path tmp = Files.createTempFile(DIR, name, ".tmp");
+            try {
+                db.copyFileFromContainer(CONTAINER_FILE, in -> Files.copy(in, tmp, StandardCopyOption.REPLACE_EXISTING));
+                // if interrupted, the dump is left without a version and is never restored
+                Files.deleteIfExists(versionFile(name));
+                Files.move(tmp, dst, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                Files.writeString(versionFile(name), version, UTF_8);
+            } finally {
+                Files.deleteIfExists(tmp);
+            }
+
+            exec(db, "rm", "-f", CONTAINER_FILE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error while creating a DB snapshot '" + name + "'", e);
+        }
+
+        log.info("snapshot ['{}'] -> done in {}ms: {}", name, System.currentTimeMillis() - t0, dst);
+        return dst;
+    }
+
+    static void restore(GenericContainer<?> db, String name, String version) {
+        Path src = file(name);
+        if (!Files.exists(src)) {
+            throw new IllegalStateException("DB snapshot not found: " + name + " (" + src + ")");
+        }
+
+        String snapshotVersion = readVersion(name);
+        if (!version.equals(snapshotVersion)) {
+            throw new IllegalStateException("DB snapshot '" + name + "' was created by a different version of the environment. " +
+                    "Expected: " + version + ", got: " + snapshotVersion + ". Create a new snapshot.");
+        }
+
+        long t0 = System.currentTimeMillis();
+        db.copyFileToContainer(MountableFile.forHostPath(src), CONTAINER_FILE);
+
+        exec(db, "psql", "-U", DB_USER, "-d", DB_NAME, "-v", "ON_ERROR_STOP=1", "-c", SAVE_API_KEYS);
+        exec(db, "pg_restore", "-U", DB_USER, "-d", DB_NAME, "--clean", "--if-exists", "--single-transaction", CONTAINER_FILE);
+        exec(db, "psql", "-U", DB_USER, "-d", DB_NAME, "-v", "ON_ERROR_STOP=1", "-c", RESTORE_API_KEYS);
+        exec(db, "rm", "-f", CONTAINER_FILE);
+
+        log.info("restore ['{}'] -> done in {}ms", name, System.currentTimeMillis() - t0);
+    }
+
+    private static void exec(GenericContainer<?> db, String... cmd) {
+        Container.ExecResult result;
+        try {
+            result = db.execInContainer(cmd);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error while running " + cmd[0], e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while running " + cmd[0]);
+        }
+
+        if (result.getExitCode() != 0) {
+            throw new IllegalStateException(cmd[0] + " failed (exit code " + result.getExitCode() + "): " + result.getStderr());
+        }
+    }
+
+    private DbSnapshots() {
+    }
+}
@@ -20,7 +20,6 @@ package ca.ibodrov.concord.testcontainers;
  * =====
  */
 
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.io.Resources;
 import com.walmartlabs.concord.common.Posix;
 import org.slf4j.Logger;
@@ -64,8 +63,13 @@ public class DockerConcordEnvironment implements ConcordEnvironment {
 
     private final List<GenericContainer<?>> extraContainers;
 
+    private final Map<ContainerType, ContainerLogBuffer> capturedLogs;
+
     private String apiToken;
 
+    // identifies the DB schema of the snapshots
+    private final String snapshotVersion;
+
     public DockerConcordEnvironment(Concord<?> opts) {
         validate(opts);
 
@@ -77,6 +81,8 @@ public class DockerConcordEnvironment implements ConcordEnvironment {
 
         this.network = Network.newNetwork();
 
+        this.snapshotVersion = "db=" + opts.dbImage() + ",server=" + opts.serverImage();
+
         this.db = new GenericContainer<>(opts.dbImage())
                 .withEnv("POSTGRES_PASSWORD", "q1")
                 .withNetworkAliases("db")
@@ -119,6 +125,15 @@ public class DockerConcordEnvironment implements ConcordEnvironment {
             server.withLogConsumer(serverLogConsumer);
         }
 
+        this.capturedLogs = new EnumMap<>(ContainerType.class);
+        if (opts.captureContainerLogs() > 0) {
+            int capacity = Math.multiplyExact(opts.captureContainerLogs(), 1024 * 1024);
+
+            ContainerLogBuffer serverLogs = new ContainerLogBuffer(capacity);
+            server.withLogConsumer(serverLogs);
+            capturedLogs.put(ContainerType.SERVER, serverLogs);
+        }
+
         this.agent = new GenericContainer<>(opts.agentImage())
                 .dependsOn(server)
                 .withImagePullPolicy(pullPolicy)
@@ -134,6 +149,14 @@ public class DockerConcordEnvironment implements ConcordEnvironment {
             agent.withLogConsumer(serverLogConsumer);
         }
 
+        if (opts.captureContainerLogs() > 0) {
+            int capacity = Math.multiplyExact(opts.captureContainerLogs(), 1024 * 1024);
+
+            ContainerLogBuffer agentLogs = new ContainerLogBuffer(capacity);
+            agent.withLogConsumer(agentLogs);
+            capturedLogs.put(ContainerType.AGENT, agentLogs);
+        }
+
         if (opts.sharedContainerDir() != null) {
             agent.withFileSystemBind(opts.sharedContainerDir().toString(), opts.sharedContainerDir().toString());
         }
@@ -220,6 +243,26 @@ public class DockerConcordEnvironment implements ConcordEnvironment {
         }
     }
 
+    @Override
+    public Optional<ContainerLogBuffer> capturedLogs(ContainerType type) {
+        return Optional.ofNullable(capturedLogs.get(type));
+    }
+
+    @Override
+    public Path snapshot(String name) {
+        return DbSnapshots.snapshot(this.db, name, snapshotVersion);
+    }
+
+    @Override
+    public void restore(String name) {
+        DbSnapshots.restore(this.db, name, snapshotVersion);
+    }
+
+    @Override
+    public boolean hasSnapshot(String name) {
+        return DbSnapshots.exists(name, snapshotVersion);
+    }
+
     @Override
     public void start() {
         for (GenericContainer<?> c : this.extraContainers) {
@@ -347,7 +390,7 @@ public class DockerConcordEnvironment implements ConcordEnvironment {
 
         try {
             Path dst = Files.createTempFile("mvn", ".json");
-            Files.write(dst, new ObjectMapper().writeValueAsBytes(m), StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.CREATE);
+            Files.write(dst, ObjectMappers.get().writeValueAsBytes(m), StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.CREATE);
             Files.setPosixFilePermissions(dst, PosixFilePermissions.fromString("rw-r--r--"));
             return dst;
         } catch (IOException e) {
@@ -0,0 +1,329 @@
+package ca.ibodrov.concord.testcontainers;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2020 Ivan Bodrov
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.walmartlabs.concord.client2.ApiClient;
+import com.walmartlabs.concord.client2.ApiException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Describes a set of organizations, projects and secrets to create before
+ * running tests:
+ * <pre>{@code
+ * Fixture fixture = new Fixture();
+ * for (int i = 0; i < 100; i++) {
+ *     fixture.project("tenant" + i, "app")
+ *             .secret("tenant" + i, "token", "...".getBytes())
+ *             .keyPair("tenant" + i, "deploy-key");
+ * }
+ *
+ * try (Fixture.Handle h = fixture.apply(concord.apiClient())) {
+ *     ...
+ * }
+ * }</pre>
+ * Organizations are created first, then projects and secrets. Resources
+ * of the same kind are created in parallel (see {@link #parallelism(int)}).
+ * Resources that already exist are left as is, so the same fixture can be
+ * applied multiple times. Organizations referenced by projects and secrets
+ * are added automatically.
+ */
+public class Fixture {
+
+    private static final Logger log = LoggerFactory.getLogger(Fixture.class);
+
+    private final Map<String, Resource> orgs = new LinkedHashMap<>();
+    private final Map<String, Resource> children = new LinkedHashMap<>();
+
+    private int parallelism = 8;
+
+    public Fixture org(String orgName) {
+        orgs.computeIfAbsent(orgName, k -> new Resource("org", orgName, null,
+                c -> new Organizations(c).isExists(orgName),
+                c -> new Organizations(c).create(orgName),
+                c -> new Organizations(c).delete(orgName)));
+        return this;
+    }
+
+    public Fixture project(String orgName, String projectName) {
+        return child(new Resource("project", orgName, projectName,
+                c -> new Projects(c).isExists(orgName, projectName),
+                c -> new Projects(c).create(orgName, projectName),
+                c -> new Projects(c).delete(orgName, projectName)));
+    }
+
+    /**
+     * Adds a single-value secret.
+     */
+    public Fixture secret(String orgName, String secretName, byte[] value) {
+        byte[] data = value.clone();
+        return secret(orgName, secretName, s -> s.createSecret(query(orgName, secretName), data));
+    }
+
+    /**
+     * Adds a credentials (username/password pair) secret.
+     */
+    public Fixture secret(String orgName, String secretName, String username, String password) {
+        return secret(orgName, secretName, s -> s.createSecret(query(orgName, secretName), username, password));
+    }
+
+    /**
+     * Adds a generated key pair secret.
+     */
+    public Fixture keyPair(String orgName, String secretName) {
+        return secret(orgName, secretName, s -> s.generateKeyPair(query(orgName, secretName)));
+    }
+
+    public int parallelism() {
+        return parallelism;
+    }
+
+    /**
+     * Max number of concurrent API requests. Default is 8.
+     */
+    public Fixture parallelism(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be greater than zero: " + parallelism);
+        }
+        this.parallelism = parallelism;
+        return this;
+    }
+
+    /**
+     * Creates the missing resources. If any of the resources cannot be created,
+     * the resources created so far are removed.
+     *
+     * @return a handle to remove the created resources.
+     */
+    public Handle apply(ApiClient client) throws ApiException {
+        List<Resource> created = Collections.synchronizedList(new ArrayList<>());
+        AtomicInteger existing = new AtomicInteger();
+
+        ExecutorService executor = newExecutor(parallelism);
+        try {
+            for (Collection<Resource> level : List.of(orgs.values(), children.values())) {
+                runAll(executor, level, r -> {
+                    if (r.exists.call(client)) {
+                        existing.incrementAndGet();
+                        return;
+                    }
+                    r.create.call(client);
+                    created.add(r);
+                });
+            }
+        } catch (ApiException | RuntimeException e) {
+            try {
+                new Handle(client, created, existing.get(), parallelism).close();
+            } catch (Exception ex) {
+                e.addSuppressed(ex);
+            }
+            throw e;
+        } finally {
+            executor.shutdownNow();
+        }
+
+        log.info("apply -> created {} resource(s), {} already existed", created.size(), existing.get());
+        return new Handle(client, created, existing.get(), parallelism);
+    }
+
+    private Fixture secret(String orgName, String secretName, SecretCreator creator) {
+        return child(new Resource("secret", orgName, secretName,
+                c -> new Secrets(c).isExists(orgName, secretName),
+                c -> creator.create(new Secrets(c)),
+                c -> new Secrets(c).delete(orgName, secretName)));
+    }
+
+    private Fixture child(Resource r) {
+        org(r.orgName);
+        children.put(r.toString(), r);
+        return this;
+    }
+
+    private static NewSecretQuery query(String orgName, String secretName) {
+        return NewSecretQuery.builder()
+                .org(orgName)
+                .name(secretName)
+                .build();
+    }
+
+    private static ExecutorService newExecutor(int parallelism) {
+        return Executors.newFixedThreadPool(parallelism, new ThreadFactoryBuilder()
+                .setDaemon(true)
+                .setNameFormat("concord-fixture-%d")
+                .build());
+    }
+
+    /**
+     * Runs the action for each resource and waits for all of them to complete.
+     * Rethrows the first error.
+     */
+    private static void runAll(ExecutorService executor, Collection<Resource> resources, ResourceAction action) throws ApiException {
+        List<Future<?>> futures = new ArrayList<>(resources.size());
+        for (Resource r : resources) {
+            futures.add(executor.submit(() -> {
+                action.run(r);
+                return null;
+            }));
+        }
+
+        Throwable error = null;
+        for (Future<?> f : futures) {
+            try {
+                f.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while applying the fixture");
+            } catch (ExecutionException e) {
+                if (error == null) {
+                    error = e.getCause();
+                } else {
+                    error.addSuppressed(e.getCause());
+                }
+            }
+        }
+
+        if (error instanceof ApiException) {
+            throw (ApiException) error;
+        } else if (error instanceof RuntimeException) {
+            throw (RuntimeException) error;
+        } else if (error != null) {
+            throw new RuntimeException(error);
+        }
+    }
+
+    /**
+     * Resources created by {@link #apply(ApiClient)}.
+     */
+    public static final class Handle implements AutoCloseable {
+
+        private final ApiClient client;
+        private final List<Resource> created;
+        private final int existing;
+        private final int parallelism;
+
+        private Handle(ApiClient client, List<Resource> created, int existing, int parallelism) {
+            this.client = client;
+            this.created = List.copyOf(created);
+            this.existing = existing;
+            this.parallelism = parallelism;
+        }
+
+        /**
+         * Descriptions of the created resources, e.g. {@code project:org/name}.
+         */
+        public List<String> created() {
+            List<String> result = new ArrayList<>(created.size());
+            for (Resource r : created) {
+                result.add(r.toString());
+            }
+            return result;
+        }
+
+        /**
+         * Number of resources that already existed and were left as is.
+         */
+        public int existing() {
+            return existing;
+        }
+
+        /**
+         * Removes the created resources: projects and secrets first, then
+         * organizations. Resources that already existed before
+         * {@link #apply(ApiClient)} are not removed.
+         */
+        @Override
+        public void close() throws ApiException {
+            List<Resource> orgs = new ArrayList<>();
+            List<Resource> children = new ArrayList<>();
+            for (Resource r : created) {
+                if (r.name == null) {
+                    orgs.add(r);
+                } else {
+                    children.add(r);
+                }
+            }
+
+            ExecutorService executor = newExecutor(parallelism);
+            try {
+                for (List<Resource> level : List.of(children, orgs)) {
+                    runAll(executor, level, r -> {
+                        try {
+                            r.delete.call(client);
+                        } catch (ApiException e) {
+                            if (e.getCode() != 404) {
+                                throw e;
+                            }
+                        }
+                    });
+                }
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+    }
+
+    private static final class Resource {
+
+        private final String kind;
+        private final String orgName;
+        private final String name;
+        private final ApiCall<Boolean> exists;
+        private final ApiCall<?> create;
+        private final ApiCall<?> delete;
+
+        private Resource(String kind, String orgName, String name, ApiCall<Boolean> exists, ApiCall<?> create, ApiCall<?> delete) {
+            this.kind = kind;
+            this.orgName = orgName;
+            this.name = name;
+            this.exists = exists;
+            this.create = create;
+            this.delete = delete;
+        }
+
+        @Override
+        public String toString() {
+            return kind + ":" + orgName + (name != null ? "/" + name : "");
+        }
+    }
+
+    private interface ApiCall<T> {
+
+        T call(ApiClient client) throws ApiException;
+    }
+
+    private interface SecretCreator {
+
+        Object create(Secrets secrets) throws ApiException;
+    }
+
+    private interface ResourceAction {
+
+        void run(Resource r) throws ApiException;
+    }
+}
@@ -0,0 +1,284 @@
+package ca.ibodrov.concord.testcontainers;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2020 Ivan Bodrov
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.walmartlabs.concord.client2.ApiClient;
+import com.walmartlabs.concord.client2.ApiException;
+import com.walmartlabs.concord.client2.SecretOperationResponse;
+import com.walmartlabs.concord.client2.SecretUpdateRequest;
+import com.walmartlabs.concord.client2.SecretsApi;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Generates key pair secrets in the background, so tests don't have to wait
+ * for the server to generate them. The secrets are created in a reserved
+ * organization and moved into the target organization (and renamed) when
+ * requested.
+ * <p/>
+ * Enabled using {@link Concord#keyPairPoolSize(int)}, in which case
+ * {@link Secrets#generateKeyPair(NewSecretQuery)} takes the secrets from
+ * the pool. Password-protected key pairs are always generated on request.
+ */
+public class KeyPairPool implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(KeyPairPool.class);
+
+    private static final String DEFAULT_ORG_NAME = "testcontainers-keypair-pool";
+
+    private final ApiClient client;
+    private final ConcurrentLinkedQueue<Pooled> available = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger inProgress = new AtomicInteger();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    private String orgName = DEFAULT_ORG_NAME;
+    private int size = 10;
+    private int threads = 2;
+
+    private ExecutorService executor;
+    private volatile boolean closed;
+
+    public KeyPairPool(ApiClient client) {
+        this.client = client;
+    }
+
+    /**
+     * Organization to keep the pre-generated secrets in. Created if necessary.
+     */
+    public KeyPairPool orgName(String orgName) {
+        this.orgName = orgName;
+        return this;
+    }
+
+    /**
+     * Number of key pairs to keep ready. Default is 10.
+     */
+    public KeyPairPool size(int size) {
+        this.size = size;
+        return this;
+    }
+
+    /**
+     * Number of concurrent key pair generation requests. Default is 2.
+     */
+    public KeyPairPool threads(int threads) {
+        this.threads = threads;
+        return this;
+    }
+
+    /**
+     * Creates the organization and starts filling the pool.
+     */
+    public synchronized KeyPairPool start() throws ApiException {
+        if (executor != null) {
+            throw new IllegalStateException("The pool is already started");
+        }
+
+        new Organizations(client).create(orgName);
+
+        executor = Executors.newFixedThreadPool(threads, new ThreadFactoryBuilder()
+                .setDaemon(true)
+                .setNameFormat("concord-keypair-pool-%d")
+                .build());
+
+        refill();
+        return this;
+    }
+
+    /**
+     * Moves a pre-generated key pair into the organization specified in
+     * the query. Generates a new key pair if the pool is empty.
+     */
+    public SecretOperationResponse take(NewSecretQuery query) throws ApiException {
+        Secrets secrets = new Secrets(client);
+        if (query.generatePassword() || query.storePassword() != null) {
+            return secrets.generateKeyPair(query);
+        }
+
+        Pooled p = available.poll();
+        refill();
+
+        if (p == null) {
+            misses.incrementAndGet();
+            return secrets.generateKeyPair(query);
+        }
+
+        try {
+            SecretsApi api = new SecretsApi(client);
+            api.updateSecretV1(orgName, p.name, new SecretUpdateRequest()
+                    .orgName(query.org())
+                    .name(query.name()));
+        } catch (ApiException e) {
+            log.warn("take -> can't move {} into {}/{}: {}", p.name, query.org(), query.name(), e.getMessage());
+            delete(p);
+            misses.incrementAndGet();
+            return secrets.generateKeyPair(query);
+        }
+
+        hits.incrementAndGet();
+        return p.response;
+    }
+
+    public Stats stats() {
+        return new Stats(hits.get(), misses.get(), available.size());
+    }
+
+    /**
+     * Stops the background generation and removes the unused key pairs.
+     */
+    @Override
+    public synchronized void close() {
+        closed = true;
+
+        if (executor != null) {
+            executor.shutdownNow();
+            try {
+                executor.awaitTermination(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        Pooled p;
+        while ((p = available.poll()) != null) {
+            delete(p);
+        }
+
+        log.info("close -> {}", stats());
+    }
+
+    private void refill() {
+        ExecutorService e = executor;
+        if (e == null || closed) {
+            return;
+        }
+
+        while (true) {
+            int n = inProgress.get();
+            if (available.size() + n >= size) {
+                return;
+            }
+
+            if (inProgress.compareAndSet(n, n + 1)) {
+                try {
+                    e.execute(this::generate);
+                } catch (RejectedExecutionException ex) {
+                    // closed concurrently
+                    inProgress.decrementAndGet();
+                    return;
+                }
+            }
+        }
+    }
+
+    private void generate() {
+        try {
+            String name = "pooled_" + UUID.randomUUID();
+            SecretOperationResponse resp = new Secrets(client).generateKeyPair(NewSecretQuery.builder()
+                    .org(orgName)
+                    .name(name)
+                    .build());
+
+            Pooled p = new Pooled(name, resp);
+            if (closed) {
+                delete(p);
+            } else {
+                available.add(p);
+            }
+        } catch (ApiException | RuntimeException e) {
+            // don't retry right away, the next take() triggers another attempt
+            log.warn("generate -> error while generating a key pair: {}", e.getMessage());
+        } finally {
+            inProgress.decrementAndGet();
+        }
+    }
+
+    private void delete(Pooled p) {
+        try {
+            new Secrets(client).delete(orgName, p.name);
+        } catch (ApiException e) {
+            log.warn("delete -> can't remove {}: {}", p.name, e.getMessage());
+        }
+    }
+
+    private static final class Pooled {
+
+        private final String name;
+        private final SecretOperationResponse response;
+
+        private Pooled(String name, SecretOperationResponse response) {
+            this.name = name;
+            this.response = response;
+        }
+    }
+
+    public static final class Stats {
+
+        private final long hits;
+        private final long misses;
+        private final int available;
+
+        private Stats(long hits, long misses, int available) {
+            this.hits = hits;
+            this.misses = misses;
+            this.available = available;
+        }
+
+        /**
+         * Number of requests served from the pool.
+         */
+        public long hits() {
+            return hits;
+        }
+
+        /**
+         * Number of requests that required generating a new key pair
+         * because the pool was empty.
+         */
+        public long misses() {
+            return misses;
+        }
+
+        /**
+         * Number of ready key pairs.
+         */
+        public int available() {
+            return available;
+        }
+
+        @Override
+        public String toString() {
+            return "hits=" + hits + ", misses=" + misses + ", available=" + available;
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package ca.ibodrov.concord.testcontainers;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2020 Ivan Bodrov
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A thread-safe histogram of durations with a fixed memory footprint.
+ * <p/>
+ * Values are recorded with microsecond resolution into log-linear buckets:
+ * values below 64µs are exact, larger values are recorded with a relative
+ * error of less than 1/32. Recording never allocates.
+ */
+public final class LatencyHistogram {
+
+    private static final int LINEAR_BUCKETS = 64;
+    private static final int SUB_BUCKETS = 32;
+    private static final int SUB_BUCKET_BITS = 5;
+    // exponents 6..62, i.e. up to Long.MAX_VALUE microseconds
+    private static final int BUCKET_COUNT = LINEAR_BUCKETS + (63 - 6) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final LongAccumulator min = new LongAccumulator(Math::min, Long.MAX_VALUE);
+    private final LongAccumulator max = new LongAccumulator(Math::max, Long.MIN_VALUE);
+
+    public void record(Duration d) {
+        recordNanos(d.toNanos());
+    }
+
+    public void recordNanos(long nanos) {
+        recordMicros(Math.max(0, nanos / 1000));
+    }
+
+    private void recordMicros(long v) {
+        counts.incrementAndGet(index(v));
+        count.increment();
+        sum.add(v);
+        min.accumulate(v);
+        max.accumulate(v);
+    }
+
+    /**
+     * Adds all values recorded by the specified histogram to this histogram.
+     */
+    public void add(LatencyHistogram other) {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            long n = other.counts.get(i);
+            if (n != 0) {
+                counts.addAndGet(i, n);
+            }
+        }
+        count.add(other.count.sum());
+        sum.add(other.sum.sum());
+        if (other.count() > 0) {
+            min.accumulate(other.min.get());
+            max.accumulate(other.max.get());
+        }
+    }
+
+    public long count() {
+        return count.sum();
+    }
+
+    public Duration min() {
+        return count() == 0 ? Duration.ZERO : micros(min.get());
+    }
+
+    public Duration max() {
+        return count() == 0 ? Duration.ZERO : micros(max.get());
+    }
+
+    public Duration mean() {
+        long n = count();
+        return n == 0 ? Duration.ZERO : micros(sum.sum() / n);
+    }
+
+    /**
+     * Returns the value below which the specified percentage of values fall.
+     *
+     * @param percentile a value between 0 and 100, e.g. {@code 99.9}
+     */
+    public Duration percentile(double percentile) {
+        if (percentile < 0 || percentile > 100) {
+            throw new IllegalArgumentException("Invalid percentile: " + percentile);
+        }
+
+        long n = count();
+        if (n == 0) {
+            return Duration.ZERO;
+        }
+
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * n));
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                // don't report values outside of the recorded range
+                long v = Math.min(Math.max(midpoint(i), min.get()), max.get());
+                return micros(v);
+            }
+        }
+
+        return max();
+    }
+
+    public void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts.set(i, 0);
+        }
+        count.reset();
+        sum.reset();
+        min.reset();
+        max.reset();
+    }
+
+    @Override
+    public String toString() {
+        return "count=" + count() +
+                ", min=" + min().toMillis() + "ms" +
+                ", p50=" + percentile(50).toMillis() + "ms" +
+                ", p99=" + percentile(99).toMillis() + "ms" +
+                ", max=" + max().toMillis() + "ms";
+    }
+
+    static int index(long v) {
+        if (v < LINEAR_BUCKETS) {
+            return (int) v;
+        }
+
+        int exp = 63 - Long.numberOfLeadingZeros(v);
+        int shift = exp - SUB_BUCKET_BITS;
+        int sub = (int) (v >>> shift) - SUB_BUCKETS;
+        return LINEAR_BUCKETS + (exp - 6) * SUB_BUCKETS + sub;
+    }
+
+    static long midpoint(int index) {
+        if (index < LINEAR_BUCKETS) {
+            return index;
+        }
+
+        int i = index - LINEAR_BUCKETS;
+        int exp = i / SUB_BUCKETS + 6;
+        int shift = exp - SUB_BUCKET_BITS;
+        long lower = (long) (SUB_BUCKETS + i % SUB_BUCKETS) << shift;
+        return lower + (1L << shift) / 2;
+    }
+
+    private static Duration micros(long v) {
+        return Duration.ofNanos(v * 1000);
+    }
+}
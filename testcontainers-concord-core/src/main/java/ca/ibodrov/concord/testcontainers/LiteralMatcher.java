@@ -0,0 +1,162 @@
+package ca.ibodrov.concord.testcontainers;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2020 Ivan Bodrov
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import java.util.*;
+
+/**
+ * Finds which of the given literals occur in a text using a single pass
+ * (the Aho-Corasick algorithm).
+ * <p/>
+ * Not thread-safe, each thread should use its own instance.
+ */
+final class LiteralMatcher {
+
+    private final char[][] keys;
+    private final int[][] targets;
+    private final int[] fail;
+    private final int[][] outputs;
+    private final int literalCount;
+
+    private final int[] seen;
+    private int stamp;
+
+    LiteralMatcher(List<String> literals) {
+        this.literalCount = literals.size();
+
+        // build the trie
+        List<TreeMap<Character, Integer>> trie = new ArrayList<>();
+        List<List<Integer>> out = new ArrayList<>();
+        trie.add(new TreeMap<>());
+        out.add(new ArrayList<>());
+
+        for (int id = 0; id < literals.size(); id++) {
+            String s = literals.get(id);
+            int state = 0;
+            for (int i = 0; i < s.length(); i++) {
+                Integer next = trie.get(state).get(s.charAt(i));
+                if (next == null) {
+                    next = trie.size();
+                    trie.add(new TreeMap<>());
+                    out.add(new ArrayList<>());
+                    trie.get(state).put(s.charAt(i), next);
+                }
+                state = next;
+            }
+            out.get(state).add(id);
+        }
+
+        int size = trie.size();
+        this.keys = new char[size][];
+        this.targets = new int[size][];
+        for (int state = 0; state < size; state++) {
+            TreeMap<Character, Integer> edges = trie.get(state);
+            char[] k = new char[edges.size()];
+            int[] t = new int[edges.size()];
+            int i = 0;
+            for (Map.Entry<Character, Integer> e : edges.entrySet()) {
+                k[i] = e.getKey();
+                t[i] = e.getValue();
+                i++;
+            }
+            keys[state] = k;
+            targets[state] = t;
+        }
+
+        // compute the failure links breadth-first
+        this.fail = new int[size];
+        Deque<Integer> queue = new ArrayDeque<>();
+        for (int t : targets[0]) {
+            queue.add(t);
+        }
+
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            for (int i = 0; i < keys[state].length; i++) {
+                char c = keys[state][i];
+                int child = targets[state][i];
+
+                int f = fail[state];
+                int next;
+                while ((next = transition(f, c)) < 0 && f != 0) {
+                    f = fail[f];
+                }
+                fail[child] = next >= 0 && next != child ? next : 0;
+
+                out.get(child).addAll(out.get(fail[child]));
+                queue.add(child);
+            }
+        }
+
+        this.outputs = new int[size][];
+        for (int state = 0; state < size; state++) {
+            outputs[state] = out.get(state).stream().distinct().mapToInt(Integer::intValue).toArray();
+        }
+
+        this.seen = new int[literalCount];
+    }
+
+    /**
+     * Scans the text. After the call {@link #found(int)} returns {@code true}
+     * for every literal that occurs in the text.
+     */
+    void scan(CharSequence s) {
+        stamp++;
+        if (stamp == 0) {
+            // overflow, reset the marks
+            Arrays.fill(seen, 0);
+            stamp = 1;
+        }
+
+        int state = 0;
+        for (int i = 0, n = s.length(); i < n; i++) {
+            char c = s.charAt(i);
+
+            int next;
+            while ((next = transition(state, c)) < 0 && state != 0) {
+                state = fail[state];
+            }
+            state = Math.max(next, 0);
+
+            for (int id : outputs[state]) {
+                seen[id] = stamp;
+            }
+        }
+    }
+
+    /**
+     * Returns {@code true} if the literal with the specified index (in the
+     * original list) was found by the last {@link #scan(CharSequence)}.
+     */
+    boolean found(int id) {
+        return seen[id] == stamp;
+    }
+
+    int literalCount() {
+        return literalCount;
+    }
+
+    private int transition(int state, char c) {
+        char[] k = keys[state];
+        int i = Arrays.binarySearch(k, c);
+        return i >= 0 ? targets[state][i] : -1;
+    }
+}
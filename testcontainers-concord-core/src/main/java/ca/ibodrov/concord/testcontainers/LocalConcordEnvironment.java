@@ -21,6 +21,9 @@ package ca.ibodrov.concord.testcontainers;
  */
 
 import com.google.common.base.Charsets;
+import com.google.common.base.Suppliers;
+import com.google.common.hash.Hashing;
+import com.google.common.io.MoreFiles;
 import com.google.common.io.Resources;
 import com.google.inject.Injector;
 import com.walmartlabs.concord.agent.Agent;
@@ -33,11 +36,15 @@ import org.testcontainers.lifecycle.Startable;
 import java.io.IOException;
 import java.net.ConnectException;
 import java.net.HttpURLConnection;
+import java.net.URISyntaxException;
 import java.net.URL;
+import java.security.CodeSource;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 import java.util.function.Supplier;
@@ -46,6 +53,11 @@ public class LocalConcordEnvironment implements ConcordEnvironment {
 
     private static final Logger log = LoggerFactory.getLogger(LocalConcordEnvironment.class);
 
+    private static final String DB_IMAGE = "library/postgres:10";
+
+    // hashing the JAR is relatively expensive, the classes don't change at runtime
+    private static final Supplier<String> SERVER_VERSION = Suppliers.memoize(LocalConcordEnvironment::serverVersion);
+
     private final GenericContainer<?> db;
     private final String apiToken;
     private final String agentToken;
@@ -53,6 +65,10 @@ public class LocalConcordEnvironment implements ConcordEnvironment {
     private final String pathToRunnerV2;
     private final boolean startAgent;
     private final Supplier<String> extraConfigurationSupplier;
+    private final List<ContainerListener> containerListeners;
+
+    // identifies the DB schema of the snapshots, null if the server's version is unknown
+    private final String snapshotVersion;
 
     private int apiPort;
 
@@ -62,7 +78,11 @@ public class LocalConcordEnvironment implements ConcordEnvironment {
     public LocalConcordEnvironment(Concord<?> opts) {
         validate(opts);
 
-        this.db = new GenericContainer<>("library/postgres:10")
+        // the server runs in the current JVM, use the version of its classes
+        String serverVersion = SERVER_VERSION.get();
+        this.snapshotVersion = serverVersion != null ? "db=" + DB_IMAGE + ",server=local:" + serverVersion : null;
+
+        this.db = new GenericContainer<>(DB_IMAGE)
                 .withEnv("POSTGRES_PASSWORD", "q1")
                 .withNetworkAliases("db")
                 .withExposedPorts(5432);
@@ -83,6 +103,9 @@ public class LocalConcordEnvironment implements ConcordEnvironment {
         this.startAgent = opts.startAgent();
 
         this.extraConfigurationSupplier = Optional.ofNullable(opts.extraConfigurationSupplier()).orElse(() -> "");
+
+        // the Server and the Agent run in the current JVM, only the DB container is reported
+        this.containerListeners = opts.containerListeners() != null ? new ArrayList<>(opts.containerListeners()) : Collections.emptyList();
     }
 
     @Override
@@ -99,13 +122,39 @@ public class LocalConcordEnvironment implements ConcordEnvironment {
         return server;
     }
 
+    @Override
+    public Path snapshot(String name) {
+        assertSnapshotVersion();
+        return DbSnapshots.snapshot(this.db, name, snapshotVersion);
+    }
+
+    @Override
+    public void restore(String name) {
+        assertSnapshotVersion();
+        DbSnapshots.restore(this.db, name, snapshotVersion);
+    }
+
+    @Override
+    public boolean hasSnapshot(String name) {
+        return snapshotVersion != null && DbSnapshots.exists(name, snapshotVersion);
+    }
+
+    private void assertSnapshotVersion() {
+        if (snapshotVersion == null) {
+            throw new UnsupportedOperationException("Snapshots are not supported: unknown version of the server's classes " +
+                    "(no Implementation-Version and not loaded from a JAR)");
+        }
+    }
+
     @Override
     public void start() {
         apiPort = Utils.reservePort(8001);
 
         assertRunnerJar(startAgent, pathToRunnerV1, pathToRunnerV2);
 
+        this.containerListeners.forEach(l -> l.beforeStart(ContainerType.DB));
         this.db.start();
+        this.containerListeners.forEach(l -> l.afterStart(ContainerType.DB, this.db));
 
         try {
             Path conf = prepareConfigurationFile();
@@ -230,6 +279,35 @@ public class LocalConcordEnvironment implements ConcordEnvironment {
         }
     }
 
+    /**
+     * Returns the version of the server's classes: the JAR's
+     * {@code Implementation-Version} or, if missing, the JAR's checksum.
+     * Returns {@code null} if neither is available, e.g. when the classes
+     * are loaded from a directory.
+     */
+    private static String serverVersion() {
+        String version = ConcordServer.class.getPackage().getImplementationVersion();
+        if (version != null) {
+            return version;
+        }
+
+        CodeSource src = ConcordServer.class.getProtectionDomain().getCodeSource();
+        if (src == null || src.getLocation() == null) {
+            return null;
+        }
+
+        try {
+            Path p = Paths.get(src.getLocation().toURI());
+            if (!Files.isRegularFile(p)) {
+                return null;
+            }
+            return "sha256:" + MoreFiles.asByteSource(p).hash(Hashing.sha256());
+        } catch (URISyntaxException | IllegalArgumentException | IOException e) {
+            log.warn("serverVersion -> can't determine the version of the server's classes: {}", e.getMessage());
+            return null;
+        }
+    }
+
     private static String getJavaCmd() {
         return Paths.get(System.getProperties().getProperty("java.home"), "bin", "java")
                 .toAbsolutePath()
@@ -0,0 +1,233 @@
+package ca.ibodrov.concord.testcontainers;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2020 Ivan Bodrov
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import com.walmartlabs.concord.client2.ApiException;
+import org.intellij.lang.annotations.Language;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Checks multiple expectations against a log using a single pass.
+ * Patterns are matched against whole lines (the same way as
+ * {@link ConcordProcess#assertLog(String)} does).
+ * <p/>
+ * Example:
+ * <pre>{@code
+ * process.assertLogs()
+ *         .contains(".*Hello!.*")
+ *         .atLeast(".*Retrying.*", 3)
+ *         .absent(".*ERROR.*")
+ *         .verify();
+ * }</pre>
+ * All failed expectations are reported together in a single exception.
+ */
+public class LogAssertions {
+
+    private static final int MAX_REPORTED_LINES = 10;
+
+    /**
+     * Creates assertions for the specified log data.
+     */
+    public static LogAssertions of(byte[] log) {
+        return new LogAssertions(() -> new ByteArrayInputStream(log));
+    }
+
+    private final LogSource source;
+    private final List<Expectation> expectations = new ArrayList<>();
+
+    LogAssertions(LogSource source) {
+        this.source = source;
+    }
+
+    /**
+     * Expects the pattern to match at least one line.
+     */
+    public LogAssertions contains(@Language("RegExp") String pattern) {
+        return atLeast(pattern, 1);
+    }
+
+    /**
+     * Expects the pattern to match at least the specified number of lines.
+     */
+    public LogAssertions atLeast(@Language("RegExp") String pattern, int times) {
+        expectations.add(new Expectation(pattern, times, Integer.MAX_VALUE));
+        return this;
+    }
+
+    /**
+     * Expects the pattern to match exactly the specified number of lines.
+     */
+    public LogAssertions exactly(@Language("RegExp") String pattern, int times) {
+        expectations.add(new Expectation(pattern, times, times));
+        return this;
+    }
+
+    /**
+     * Expects the pattern to match no lines.
+     */
+    public LogAssertions absent(@Language("RegExp") String pattern) {
+        return exactly(pattern, 0);
+    }
+
+    /**
+     * Reads the log and checks all expectations.
+     *
+     * @throws IllegalStateException if any of the expectations failed.
+     */
+    public void verify() throws ApiException {
+        if (expectations.isEmpty()) {
+            return;
+        }
+
+        try (LogLineReader reader = new LogLineReader(source.open())) {
+            scan(reader);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        List<String> failures = new ArrayList<>();
+        for (Expectation e : expectations) {
+            if (!e.isSatisfied()) {
+                failures.add(e.describeFailure());
+            }
+        }
+
+        if (!failures.isEmpty()) {
+            StringBuilder msg = new StringBuilder("Log assertions failed (")
+                    .append(failures.size()).append(" of ").append(expectations.size()).append("):");
+            for (String f : failures) {
+                msg.append("\n  - ").append(f);
+            }
+            throw new IllegalStateException(msg.toString());
+        }
+    }
+
+    private void scan(LogLineReader reader) throws IOException {
+        int n = expectations.size();
+
+        // literal prefilter: literalIds[i] is the index of the expectation's
+        // literal in the matcher or -1 if the regex must always be evaluated
+        List<String> literals = new ArrayList<>();
+        int[] literalIds = new int[n];
+        Matcher[] matchers = new Matcher[n];
+        for (int i = 0; i < n; i++) {
+            Expectation e = expectations.get(i);
+            e.reset();
+            matchers[i] = e.pattern.matcher("");
+
+            String literal = RegexLiterals.requiredLiteral(e.pattern);
+            if (literal != null) {
+                literalIds[i] = literals.size();
+                literals.add(literal);
+            } else {
+                literalIds[i] = -1;
+            }
+        }
+
+        LiteralMatcher literalMatcher = literals.isEmpty() ? null : new LiteralMatcher(literals);
+
+        CharSequence line;
+        while ((line = reader.next()) != null) {
+            if (literalMatcher != null) {
+                literalMatcher.scan(line);
+            }
+
+            for (int i = 0; i < n; i++) {
+                int literalId = literalIds[i];
+                if (literalId >= 0 && !literalMatcher.found(literalId)) {
+                    continue;
+                }
+
+                if (matchers[i].reset(line).matches()) {
+                    expectations.get(i).onMatch(reader.lineNumber(), line);
+                }
+            }
+        }
+    }
+
+    interface LogSource {
+
+        InputStream open() throws ApiException;
+    }
+
+    private static final class Expectation {
+
+        private final Pattern pattern;
+        private final int min;
+        private final int max;
+
+        private int count;
+        private final List<String> lines = new ArrayList<>();
+
+        private Expectation(String pattern, int min, int max) {
+            this.pattern = Pattern.compile(pattern);
+            this.min = min;
+            this.max = max;
+        }
+
+        private void reset() {
+            count = 0;
+            lines.clear();
+        }
+
+        private void onMatch(long lineNumber, CharSequence line) {
+            count++;
+            if (lines.size() < MAX_REPORTED_LINES) {
+                lines.add(lineNumber + ": " + line);
+            }
+        }
+
+        private boolean isSatisfied() {
+            return count >= min && count <= max;
+        }
+
+        private String describeFailure() {
+            StringBuilder sb = new StringBuilder("expected ");
+            if (max == 0) {
+                sb.append("no matches");
+            } else if (min == max) {
+                sb.append("exactly ").append(min).append(" match(es)");
+            } else {
+                sb.append("at least ").append(min).append(" match(es)");
+            }
+
+            sb.append(" of '").append(pattern.pattern()).append("', found ").append(count);
+
+            for (String l : lines) {
+                sb.append("\n      ").append(l);
+            }
+
+            if (count > lines.size()) {
+                sb.append("\n      ...");
+            }
+
+            return sb.toString();
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package ca.ibodrov.concord.testcontainers;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2020 Ivan Bodrov
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import org.intellij.lang.annotations.Language;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Matches log lines against a pre-compiled regular expression.
+ * A line matches if the whole line matches the pattern (i.e. the same
+ * semantics as {@link String#matches(String)}).
+ * <p/>
+ * The data is decoded as UTF-8 line by line, only matching lines are
+ * converted into {@link String} instances. Lines that don't contain
+ * the literal text required by the pattern are skipped without
+ * evaluating the regex.
+ * <p/>
+ * Instances are immutable and can be shared between threads.
+ */
+public final class LogGrep {
+
+    /**
+     * Compiles the specified regular expression.
+     */
+    public static LogGrep compile(@Language("RegExp") String regex) {
+        return new LogGrep(Pattern.compile(regex));
+    }
+
+    public static LogGrep of(Pattern pattern) {
+        return new LogGrep(pattern);
+    }
+
+    private final Pattern pattern;
+    private final String requiredLiteral;
+
+    private LogGrep(Pattern pattern) {
+        this.pattern = pattern;
+        this.requiredLiteral = RegexLiterals.requiredLiteral(pattern);
+    }
+
+    public Pattern pattern() {
+        return pattern;
+    }
+
+    /**
+     * Returns all lines matching the pattern.
+     */
+    public List<String> grep(byte[] ab) {
+        return grep(ab, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Returns up to {@code maxMatches} lines matching the pattern.
+     */
+    public List<String> grep(byte[] ab, int maxMatches) {
+        try (LogLineReader reader = new LogLineReader(ab, 0, ab.length)) {
+            return grep(reader, maxMatches);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Returns up to {@code maxMatches} lines matching the pattern.
+     * The buffer's position is not modified.
+     */
+    public List<String> grep(ByteBuffer bb, int maxMatches) {
+        try (LogLineReader reader = LogLineReader.of(bb)) {
+            return grep(reader, maxMatches);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Returns up to {@code maxMatches} lines matching the pattern.
+     * Stops reading the stream as soon as {@code maxMatches} lines are found.
+     * The stream is not closed.
+     */
+    public List<String> grep(InputStream in, int maxMatches) throws IOException {
+        LogLineReader reader = new LogLineReader(in);
+        return grep(reader, maxMatches);
+    }
+
+    /**
+     * Counts the lines matching the pattern, stops when {@code limit} matches are found.
+     */
+    public int count(byte[] ab, int limit) {
+        try (LogLineReader reader = new LogLineReader(ab, 0, ab.length)) {
+            return count(reader, limit);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Counts the lines matching the pattern, stops reading the stream
+     * when {@code limit} matches are found. The stream is not closed.
+     */
+    public int count(InputStream in, int limit) throws IOException {
+        LogLineReader reader = new LogLineReader(in);
+        return count(reader, limit);
+    }
+
+    private List<String> grep(LogLineReader reader, int maxMatches) throws IOException {
+        List<String> result = new ArrayList<>();
+        if (maxMatches <= 0) {
+            return result;
+        }
+
+        Matcher m = pattern.matcher("");
+
+        CharSequence line;
+        while ((line = reader.next()) != null) {
+            if (matches(m, line)) {
+                result.add(line.toString());
+                if (result.size() >= maxMatches) {
+                    break;
+                }
+            }
+        }
+
+        return result;
+    }
+
+    private int count(LogLineReader reader, int limit) throws IOException {
+        int result = 0;
+        if (limit <= 0) {
+            return result;
+        }
+
+        Matcher m = pattern.matcher("");
+
+        CharSequence line;
+        while ((line = reader.next()) != null) {
+            if (matches(m, line)) {
+                if (++result >= limit) {
+                    break;
+                }
+            }
+        }
+
+        return result;
+    }
+
+    private boolean matches(Matcher m, CharSequence line) {
+        if (requiredLiteral != null && !RegexLiterals.contains(line, requiredLiteral)) {
+            return false;
+        }
+        return m.reset(line).matches();
+    }
+}
@@ -0,0 +1,283 @@
+package ca.ibodrov.concord.testcontainers;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2020 Ivan Bodrov
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Splits UTF-8 encoded log data into lines without allocating a new
+ * {@link String} per line. The returned {@link CharSequence} is reused
+ * and is only valid until the next call to {@link #next()}.
+ * <p/>
+ * Lines are terminated by {@code \n}, a trailing {@code \r} is removed.
+ */
+final class LogLineReader implements Closeable {
+
+    private static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+    private final InputStream in;
+    private final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+
+    private final byte[] buf;
+    private final ByteBuffer bufView;
+    private int pos;
+    private int limit;
+    private boolean eof;
+
+    // holds the beginning of a line that spans multiple reads
+    private byte[] pending = new byte[0];
+    private ByteBuffer pendingView = ByteBuffer.wrap(pending);
+    private int pendingLength;
+
+    private CharBuffer chars = CharBuffer.allocate(1024);
+
+    private long lineNumber;
+    private long lineOffset;
+    private long nextLineOffset;
+
+    /**
+     * Reads lines from the specified stream. The stream is closed
+     * when the reader is closed.
+     */
+    LogLineReader(InputStream in) {
+        this.in = in;
+        this.buf = new byte[DEFAULT_BUFFER_SIZE];
+        this.bufView = ByteBuffer.wrap(buf);
+    }
+
+    /**
+     * Reads lines from the specified array. The array is not copied.
+     */
+    LogLineReader(byte[] ab, int offset, int length) {
+        this.in = null;
+        this.buf = ab;
+        this.bufView = ByteBuffer.wrap(ab);
+        this.pos = offset;
+        this.limit = offset + length;
+        this.eof = true;
+    }
+
+    /**
+     * Reads lines from the remaining content of the specified buffer.
+     */
+    static LogLineReader of(ByteBuffer bb) {
+        if (bb.hasArray()) {
+            return new LogLineReader(bb.array(), bb.arrayOffset() + bb.position(), bb.remaining());
+        }
+
+        byte[] ab = new byte[bb.remaining()];
+        bb.duplicate().get(ab);
+        return new LogLineReader(ab, 0, ab.length);
+    }
+
+    /**
+     * Returns the next line or {@code null} if there are no more lines.
+     */
+    CharSequence next() throws IOException {
+        while (true) {
+            for (int i = pos; i < limit; i++) {
+                if (buf[i] == '\n') {
+                    int start = pos;
+                    pos = i + 1;
+                    return emit(start, i, i + 1 - start);
+                }
+            }
+
+            // no line terminator in the buffer
+            if (eof || !fill()) {
+                if (pos < limit || pendingLength > 0) {
+                    int start = pos;
+                    int end = limit;
+                    pos = limit;
+                    return emit(start, end, end - start);
+                }
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Returns a lazily populated stream of lines. Closing the stream closes
+     * the reader.
+     */
+    Stream<String> lines() {
+        Iterator<String> it = new Iterator<>() {
+
+            private String nextLine;
+
+            @Override
+            public boolean hasNext() {
+                if (nextLine != null) {
+                    return true;
+                }
+
+                try {
+                    CharSequence line = LogLineReader.this.next();
+                    if (line == null) {
+                        return false;
+                    }
+                    nextLine = line.toString();
+                    return true;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+
+            @Override
+            public String next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+
+                String line = nextLine;
+                nextLine = null;
+                return line;
+            }
+        };
+
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(it, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(() -> {
+                    try {
+                        close();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+    }
+
+    /**
+     * Returns the number (1-based) of the last line returned by {@link #next()}.
+     */
+    long lineNumber() {
+        return lineNumber;
+    }
+
+    /**
+     * Returns the byte offset of the last line returned by {@link #next()}.
+     */
+    long lineOffset() {
+        return lineOffset;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (in != null) {
+            in.close();
+        }
+    }
+
+    /**
+     * Moves the unprocessed bytes into the pending buffer and reads
+     * the next chunk of data.
+     *
+     * @return {@code false} if the end of the stream is reached.
+     */
+    private boolean fill() throws IOException {
+        int remaining = limit - pos;
+        if (remaining > 0) {
+            ensurePendingCapacity(pendingLength + remaining);
+            System.arraycopy(buf, pos, pending, pendingLength, remaining);
+            pendingLength += remaining;
+        }
+
+        pos = 0;
+        limit = 0;
+
+        int n = in.read(buf, 0, buf.length);
+        if (n < 0) {
+            eof = true;
+            return false;
+        }
+
+        limit = n;
+        return true;
+    }
+
+    private CharSequence emit(int start, int end, int consumed) {
+        lineNumber++;
+        lineOffset = nextLineOffset;
+        nextLineOffset += pendingLength + consumed;
+
+        ByteBuffer src;
+        if (pendingLength > 0) {
+            int len = end - start;
+            ensurePendingCapacity(pendingLength + len);
+            System.arraycopy(buf, start, pending, pendingLength, len);
+            src = view(pendingView, 0, pendingLength + len);
+            pendingLength = 0;
+        } else {
+            src = view(bufView, start, end);
+        }
+
+        int lim = src.limit();
+        if (lim > src.position() && src.get(lim - 1) == '\r') {
+            src.limit(lim - 1);
+        }
+
+        return decode(src);
+    }
+
+    private CharSequence decode(ByteBuffer src) {
+        // UTF-8 never produces more chars than there are bytes
+        if (chars.capacity() < src.remaining()) {
+            chars = CharBuffer.allocate(Math.max(src.remaining(), chars.capacity() * 2));
+        }
+
+        chars.clear();
+        decoder.reset();
+        decoder.decode(src, chars, true);
+        decoder.flush(chars);
+        chars.flip();
+        return chars;
+    }
+
+    private void ensurePendingCapacity(int capacity) {
+        if (pending.length < capacity) {
+            byte[] ab = new byte[Math.max(capacity, pending.length * 2)];
+            System.arraycopy(pending, 0, ab, 0, pendingLength);
+            pending = ab;
+            pendingView = ByteBuffer.wrap(ab);
+        }
+    }
+
+    private static ByteBuffer view(ByteBuffer bb, int start, int end) {
+        bb.clear();
+        bb.position(start);
+        bb.limit(end);
+        return bb;
+    }
+}
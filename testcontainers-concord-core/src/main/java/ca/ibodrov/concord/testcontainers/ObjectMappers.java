@@ -0,0 +1,42 @@
+package ca.ibodrov.concord.testcontainers;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2020 Ivan Bodrov
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Shared {@link ObjectMapper} instance. Creating a mapper is expensive and
+ * a configured mapper is thread-safe, so the same instance is used everywhere.
+ */
+final class ObjectMappers {
+
+    private static final ObjectMapper INSTANCE = new ObjectMapper()
+            // typed bindings of out variables shouldn't break when the flow adds a new variable
+            .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+
+    static ObjectMapper get() {
+        return INSTANCE;
+    }
+
+    private ObjectMappers() {
+    }
+}
@@ -43,4 +43,15 @@ public class Organizations {
     public GenericOperationResult delete(String orgName) throws ApiException {
         return organizationsApi.deleteOrg(orgName, "yes");
     }
+
+    public boolean isExists(String orgName) throws ApiException {
+        try {
+            return organizationsApi.getOrg(orgName) != null;
+        } catch (ApiException e) {
+            if (e.getCode() == 404) {
+                return false;
+            }
+            throw e;
+        }
+    }
 }
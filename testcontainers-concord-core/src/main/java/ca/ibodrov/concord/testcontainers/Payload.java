@@ -21,20 +21,33 @@ package ca.ibodrov.concord.testcontainers;
  */
 
 import ca.ibodrov.concord.testcontainers.Concord.Mode;
-import com.walmartlabs.concord.common.IOUtils;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
 import java.net.URI;
 import java.net.URL;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.*;
 
 public class Payload {
 
+    // shared parts of a template, never modified
+    private final Map<String, Object> base;
+    private final List<String> baseTags;
+
     private final Map<String, Object> input = new LinkedHashMap<>();
     private final List<String> tags = new ArrayList<>();
 
+    public Payload() {
+        this(Collections.emptyMap(), Collections.emptyList());
+    }
+
+    Payload(Map<String, Object> base, List<String> baseTags) {
+        this.base = base;
+        this.baseTags = baseTags;
+    }
+
     /**
      * Sets the content of the main concord.yml file.
      */
@@ -43,6 +56,14 @@ public class Payload {
         return this;
     }
 
+    /**
+     * Uses the specified file as the main concord.yml file.
+     * The file is read when the process starts.
+     */
+    public Payload concordYml(Path file) {
+        return file("concord.yml", file);
+    }
+
     public Payload parameter(String key, Object value) {
         input.put(key, value);
         return this;
@@ -53,12 +74,42 @@ public class Payload {
         return this;
     }
 
+    /**
+     * Archives the specified directory and uses it as the payload archive.
+     * Archives are cached using {@link PayloadArchiveCache#shared()}, unchanged
+     * directories are archived only once.
+     *
+     * @see PayloadArchiver
+     */
     public Payload archive(URI uri) {
-        try {
-            return archive(Utils.archive(uri));
-        } catch (IOException e) {
-            throw new RuntimeException(e);
-        }
+        return archive(uri, PayloadArchiveCache.shared());
+    }
+
+    /**
+     * Same as {@link #archive(URI)} but uses the specified cache.
+     */
+    public Payload archive(URI uri, PayloadArchiveCache cache) {
+        input.put("archive", cache.get(Paths.get(uri)));
+        return this;
+    }
+
+    /**
+     * Archives the specified directory using the specified archiver.
+     * Archives are cached using {@link PayloadArchiveCache#shared()}, so repeated
+     * calls don't create new files. The archiver's settings are part of the
+     * cache key.
+     */
+    public Payload archive(URI uri, PayloadArchiver archiver) {
+        input.put("archive", PayloadArchiveCache.shared().get(Paths.get(uri), archiver));
+        return this;
+    }
+
+    /**
+     * Uses the specified ZIP file as the payload archive. The file is read
+     * each time the process is started.
+     */
+    public Payload archive(Path archive) {
+        return file("archive", archive);
     }
 
     public Payload entryPoint(String entryPoint) {
@@ -86,12 +137,30 @@ public class Payload {
         return this;
     }
 
+    /**
+     * Adds the specified file to the payload. The file is read when
+     * the process starts.
+     */
+    public Payload file(String name, Path file) {
+        return file(name, PayloadPart.of(file));
+    }
+
+    /**
+     * Adds a lazily loaded part to the payload.
+     *
+     * @see PayloadPart
+     */
+    public Payload file(String name, PayloadPart part) {
+        input.put(name, part);
+        return this;
+    }
+
+    /**
+     * Adds the specified resource to the payload. The resource is read when
+     * the process starts.
+     */
     public Payload resource(String name, URL url) throws IOException {
-        byte[] ab;
-        try (InputStream in = url.openStream()) {
-            ab = IOUtils.toByteArray(in);
-        }
-        return file(name, ab);
+        return file(name, PayloadPart.of(url));
     }
 
     public Payload parent(UUID parentInstanceId) {
@@ -142,13 +211,35 @@ public class Payload {
     }
 
     Map<String, Object> build() {
-        Map<String, Object> m = new HashMap<>(input);
+        Map<String, Object> m = new HashMap<>(base.size() + input.size() + 1);
+        m.putAll(base);
+        m.putAll(input);
 
-        if (!tags.isEmpty()) {
-            String s = String.join(",", tags);
+        List<String> allTags = allTags();
+        if (!allTags.isEmpty()) {
+            String s = String.join(",", allTags);
             m.put("tags", s);
         }
 
         return m;
     }
+
+    /**
+     * Returns all parameters without the tags, in the order they were added.
+     */
+    Map<String, Object> parameters() {
+        Map<String, Object> m = new LinkedHashMap<>(base);
+        m.putAll(input);
+        return m;
+    }
+
+    List<String> allTags() {
+        if (baseTags.isEmpty()) {
+            return tags;
+        }
+
+        List<String> result = new ArrayList<>(baseTags);
+        result.addAll(tags);
+        return result;
+    }
 }
@@ -0,0 +1,409 @@
+package ca.ibodrov.concord.testcontainers;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2020 Ivan Bodrov
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.google.common.io.MoreFiles;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Caches payload archives of directories. The cache key is a fingerprint of
+ * the directory: its location, relative paths, sizes, modification times and
+ * POSIX modes of all files. Alternatively, the fingerprint can be based on the content of
+ * the files, regardless of the location (see {@link #fullHash(boolean)}).
+ * <p/>
+ * Archives are kept in memory (LRU, limited by the total size) and on disk.
+ * The disk cache can be shared between JVMs and test runs. Archives used
+ * recently, by this or another JVM, are not pruned from disk.
+ * <p/>
+ * {@link Payload#archive(java.net.URI)} uses the {@link #shared()} instance.
+ */
+public class PayloadArchiveCache {
+
+    private static final long DEFAULT_MAX_MEMORY_SIZE = 64 * 1024 * 1024;
+    private static final long DEFAULT_MAX_DISK_SIZE = 512 * 1024 * 1024;
+
+    // archives accessed more recently are not pruned, other JVMs might be reading them
+    private static final long PRUNE_GRACE_PERIOD_MS = 10 * 60 * 1000;
+
+    private static final PayloadArchiveCache SHARED = new PayloadArchiveCache(DEFAULT_MAX_MEMORY_SIZE,
+            Paths.get(System.getProperty("java.io.tmpdir"), "testcontainers-concord", "archives"), DEFAULT_MAX_DISK_SIZE);
+
+    /**
+     * Returns the JVM-wide cache instance.
+     */
+    public static PayloadArchiveCache shared() {
+        return SHARED;
+    }
+
+    private final long maxMemorySize;
+    private final Path diskDir;
+    private final long maxDiskSize;
+
+    private final LinkedHashMap<String, Archive> memory = new LinkedHashMap<>(16, 0.75f, true);
+    private long memorySize;
+
+    // disk-only archives handed out by this instance, their files must not be pruned
+    private final Set<Archive> diskArchives = Collections.newSetFromMap(new WeakHashMap<>());
+
+    private volatile boolean fullHash;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong diskHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * @param maxMemorySize max total size of the archives kept in memory.
+     * @param diskDir       directory to store the archives in or {@code null} to disable the disk cache.
+     * @param maxDiskSize   max total size of the archives kept on disk.
+     */
+    public PayloadArchiveCache(long maxMemorySize, Path diskDir, long maxDiskSize) {
+        this.maxMemorySize = maxMemorySize;
+        this.diskDir = diskDir;
+        this.maxDiskSize = maxDiskSize;
+    }
+
+    public boolean fullHash() {
+        return fullHash;
+    }
+
+    /**
+     * If {@code true} the content of the files is included into the fingerprint.
+     * Slower, but detects changes that don't affect the sizes and the modification
+     * times of the files. Identical directories in different locations share
+     * the same archive. Default is {@code false}.
+     */
+    public PayloadArchiveCache fullHash(boolean fullHash) {
+        this.fullHash = fullHash;
+        return this;
+    }
+
+    /**
+     * Returns the archive of the specified directory created using the default
+     * {@link PayloadArchiver} settings.
+     */
+    public Archive get(Path dir) {
+        return get(dir, new PayloadArchiver());
+    }
+
+    /**
+     * Returns the archive of the specified directory, creating it if necessary.
+     */
+    public Archive get(Path dir, PayloadArchiver archiver) {
+        String key;
+        try {
+            key = fingerprint(dir, archiver);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error while calculating the fingerprint of " + dir, e);
+        }
+
+        synchronized (memory) {
+            Archive a = memory.get(key);
+            if (a != null) {
+                hits.incrementAndGet();
+                return a;
+            }
+        }
+
+        try {
+            Path file = diskDir != null ? diskDir.resolve(key + ".zip") : null;
+            if (file != null && Files.exists(file)) {
+                diskHits.incrementAndGet();
+                // used as the "last access" time when pruning
+                Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+            } else {
+                misses.incrementAndGet();
+                file = create(dir, archiver, key);
+            }
+
+            return cache(key, file);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error while creating an archive of " + dir, e);
+        }
+    }
+
+    /**
+     * Returns the cache statistics.
+     */
+    public Stats stats() {
+        synchronized (memory) {
+            return new Stats(hits.get(), diskHits.get(), misses.get(), memory.size(), memorySize);
+        }
+    }
+
+    /**
+     * Removes all archives from memory. The disk cache is left intact.
+     */
+    public void clear() {
+        synchronized (memory) {
+            memory.clear();
+            memorySize = 0;
+        }
+    }
+
+    private Path create(Path dir, PayloadArchiver archiver, String key) throws IOException {
+        if (diskDir == null) {
+            Path tmp = archiver.toFile(dir);
+            tmp.toFile().deleteOnExit();
+            return tmp;
+        }
+
+        Files.createDirectories(diskDir);
+
+        // write into a temporary file first, other JVMs might be using the same directory
+        Path tmp = Files.createTempFile(diskDir, key, ".tmp");
+        try {
+            archiver.writeTo(dir, tmp);
+            Path dst = diskDir.resolve(key + ".zip");
+            Files.move(tmp, dst, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            pruneDisk(dst);
+            return dst;
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    private Archive cache(String key, Path file) throws IOException {
+        long size = Files.size(file);
+
+        // keep small archives in memory, large ones are read from disk
+        if (size > maxMemorySize / 4) {
+            Archive a = new Archive(key, file, null, size);
+            synchronized (memory) {
+                diskArchives.add(a);
+            }
+            return a;
+        }
+
+        Archive a = new Archive(key, file, Files.readAllBytes(file), size);
+        synchronized (memory) {
+            Archive prev = memory.put(key, a);
+            if (prev != null) {
+                memorySize -= prev.size;
+            }
+            memorySize += size;
+
+            Iterator<Archive> it = memory.values().iterator();
+            while (memorySize > maxMemorySize && it.hasNext()) {
+                Archive eldest = it.next();
+                if (eldest == a) {
+                    break;
+                }
+                memorySize -= eldest.size;
+                it.remove();
+            }
+        }
+        return a;
+    }
+
+    private void pruneDisk(Path keep) throws IOException {
+        List<Path> files;
+        try (Stream<Path> s = Files.list(diskDir)) {
+            files = s.filter(p -> p.getFileName().toString().endsWith(".zip"))
+                    .collect(Collectors.toList());
+        }
+
+        Map<Path, BasicFileAttributes> attrs = new HashMap<>();
+        long total = 0;
+        for (Path p : files) {
+            try {
+                BasicFileAttributes a = Files.readAttributes(p, BasicFileAttributes.class);
+                attrs.put(p, a);
+                total += a.size();
+            } catch (NoSuchFileException e) {
+                // removed by someone else
+            }
+        }
+
+        if (total <= maxDiskSize) {
+            return;
+        }
+
+        long recent = System.currentTimeMillis() - PRUNE_GRACE_PERIOD_MS;
+
+        Set<Path> live = new HashSet<>();
+        synchronized (memory) {
+            for (Archive a : diskArchives) {
+                live.add(a.path);
+            }
+        }
+
+        List<Path> oldestFirst = new ArrayList<>(attrs.keySet());
+        oldestFirst.sort(Comparator.comparing(p -> attrs.get(p).lastModifiedTime()));
+        for (Path p : oldestFirst) {
+            if (total <= maxDiskSize) {
+                break;
+            }
+            if (p.equals(keep) || live.contains(p) || attrs.get(p).lastModifiedTime().toMillis() > recent) {
+                continue;
+            }
+            Files.deleteIfExists(p);
+            total -= attrs.get(p).size();
+        }
+    }
+
+    private String fingerprint(Path dir, PayloadArchiver archiver) throws IOException {
+        List<Path> files;
+        try (Stream<Path> s = Files.walk(dir)) {
+            files = s.sorted().collect(Collectors.toList());
+        }
+
+        // the archiver records the modes only on POSIX file systems
+        boolean posix = dir.getFileSystem().supportedFileAttributeViews().contains("posix");
+
+        Hasher h = Hashing.murmur3_128().newHasher()
+                .putInt(archiver.compressionLevel())
+                .putBoolean(fullHash);
+
+        if (!fullHash) {
+            // sizes and mtimes alone can't tell apart directories with the same layout
+            h.putString(dir.toAbsolutePath().normalize().toString(), UTF_8);
+        }
+
+        for (Path p : files) {
+            BasicFileAttributes a = Files.readAttributes(p, BasicFileAttributes.class);
+            h.putString(dir.relativize(p).toString(), UTF_8)
+                    .putBoolean(a.isDirectory())
+                    .putLong(a.size());
+
+            if (posix) {
+                // e.g. chmod +x doesn't change the size, the content or the mtime
+                h.putInt(PayloadArchiver.unixMode(p));
+            }
+
+            if (!fullHash) {
+                h.putLong(a.lastModifiedTime().toMillis());
+            } else if (a.isRegularFile()) {
+                // mtimes differ between copies and checkouts of the same tree
+                h.putLong(MoreFiles.asByteSource(p).hash(Hashing.murmur3_128()).asLong());
+            }
+        }
+
+        return h.hash().toString();
+    }
+
+    /**
+     * A cached archive. Small archives are kept in memory, large ones are
+     * read from disk each time.
+     */
+    public static final class Archive implements PayloadPart {
+
+        private final String key;
+        private final Path path;
+        private final byte[] data;
+        private final long size;
+
+        private Archive(String key, Path path, byte[] data, long size) {
+            this.key = key;
+            this.path = path;
+            this.data = data;
+            this.size = size;
+        }
+
+        /**
+         * Returns the directory's fingerprint.
+         */
+        public String key() {
+            return key;
+        }
+
+        public long size() {
+            return size;
+        }
+
+        @Override
+        public InputStream open() throws IOException {
+            if (data != null) {
+                return new ByteArrayInputStream(data);
+            }
+
+            // used as the "last access" time when pruning, by this and other JVMs
+            Files.setLastModifiedTime(path, FileTime.fromMillis(System.currentTimeMillis()));
+            return Files.newInputStream(path);
+        }
+    }
+
+    public static final class Stats {
+
+        private final long hits;
+        private final long diskHits;
+        private final long misses;
+        private final int memoryEntries;
+        private final long memorySize;
+
+        private Stats(long hits, long diskHits, long misses, int memoryEntries, long memorySize) {
+            this.hits = hits;
+            this.diskHits = diskHits;
+            this.misses = misses;
+            this.memoryEntries = memoryEntries;
+            this.memorySize = memorySize;
+        }
+
+        /**
+         * Number of requests served from memory.
+         */
+        public long hits() {
+            return hits;
+        }
+
+        /**
+         * Number of requests served from the disk cache.
+         */
+        public long diskHits() {
+            return diskHits;
+        }
+
+        /**
+         * Number of requests that required creating a new archive.
+         */
+        public long misses() {
+            return misses;
+        }
+
+        public int memoryEntries() {
+            return memoryEntries;
+        }
+
+        public long memorySize() {
+            return memorySize;
+        }
+
+        @Override
+        public String toString() {
+            return "hits=" + hits + ", diskHits=" + diskHits + ", misses=" + misses +
+                    ", memoryEntries=" + memoryEntries + ", memorySize=" + memorySize;
+        }
+    }
+}
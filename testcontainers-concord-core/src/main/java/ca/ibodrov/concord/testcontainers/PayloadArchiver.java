@@ -0,0 +1,352 @@
+package ca.ibodrov.concord.testcontainers;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2020 Ivan Bodrov
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.apache.commons.compress.archivers.zip.DefaultBackingStoreSupplier;
+import org.apache.commons.compress.archivers.zip.ParallelScatterZipCreator;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
+import org.apache.commons.compress.parallel.InputStreamSupplier;
+
+import java.io.*;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.PosixFilePermission;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+
+/**
+ * Creates ZIP archives of directories, e.g. to use as process payload archives.
+ * <p/>
+ * The archive can be written directly into a stream or a file, there's no need
+ * to keep the whole archive in memory. The compression level is configurable,
+ * {@link #STORED} disables the compression completely, which is usually
+ * the fastest option for local Concord instances. Files that are already
+ * compressed (e.g. JARs) are always stored as is. Large directories can be
+ * compressed using multiple threads, see {@link #parallelism(int)}.
+ * <p/>
+ * Example:
+ * <pre>{@code
+ * Path archive = new PayloadArchiver()
+ *         .compressionLevel(PayloadArchiver.STORED)
+ *         .toFile(Paths.get("src/test/resources/myFlow"));
+ * }</pre>
+ */
+public class PayloadArchiver {
+
+    /**
+     * Compression level that disables the compression, the files are stored as is.
+     */
+    public static final int STORED = 0;
+
+    /**
+     * Directories smaller than this are always compressed using a single thread.
+     */
+    private static final long PARALLEL_THRESHOLD = 4 * 1024 * 1024;
+
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Files that are already compressed, deflating them only wastes CPU.
+     */
+    private static final Set<String> COMPRESSED_EXTENSIONS = Set.of(
+            ".jar", ".zip", ".gz", ".tgz", ".bz2", ".xz", ".7z",
+            ".png", ".jpg", ".jpeg", ".gif", ".webp");
+
+    private int compressionLevel = Deflater.BEST_SPEED;
+    private int parallelism = 1;
+
+    public int compressionLevel() {
+        return compressionLevel;
+    }
+
+    /**
+     * Compression level, from {@link #STORED} (0) to {@link Deflater#BEST_COMPRESSION} (9).
+     * Default is {@link Deflater#BEST_SPEED}.
+     */
+    public PayloadArchiver compressionLevel(int compressionLevel) {
+        if (compressionLevel != Deflater.DEFAULT_COMPRESSION && (compressionLevel < STORED || compressionLevel > Deflater.BEST_COMPRESSION)) {
+            throw new IllegalArgumentException("Invalid compression level: " + compressionLevel);
+        }
+
+        this.compressionLevel = compressionLevel;
+        return this;
+    }
+
+    public int parallelism() {
+        return parallelism;
+    }
+
+    /**
+     * Number of threads to use to compress entries. Only used for directories
+     * larger than a few megabytes. Default is {@code 1}.
+     */
+    public PayloadArchiver parallelism(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Invalid parallelism value: " + parallelism);
+        }
+
+        this.parallelism = parallelism;
+        return this;
+    }
+
+    /**
+     * Creates an archive of the specified directory in a new temporary file.
+     * The caller is responsible for removing the file.
+     */
+    public Path toFile(Path src) throws IOException {
+        Path dst = Files.createTempFile("payload", ".zip");
+        try {
+            writeTo(src, dst);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(dst);
+            throw e;
+        }
+        return dst;
+    }
+
+    /**
+     * Creates an archive of the specified directory in the specified file.
+     * The file is overwritten if it already exists.
+     */
+    public void writeTo(Path src, Path dst) throws IOException {
+        List<Item> items = scan(src);
+
+        // a seekable destination allows STORED entries without pre-computing their CRC
+        try (ZipArchiveOutputStream zip = new ZipArchiveOutputStream(dst)) {
+            write(items, zip, true);
+        }
+    }
+
+    /**
+     * Creates an archive of the specified directory and writes it into the specified stream.
+     * The stream is not closed.
+     */
+    public void writeTo(Path src, OutputStream out) throws IOException {
+        List<Item> items = scan(src);
+
+        try (ZipArchiveOutputStream zip = new ZipArchiveOutputStream(new NonClosingOutputStream(out))) {
+            write(items, zip, false);
+        }
+    }
+
+    /**
+     * Creates an archive of the specified directory in memory.
+     */
+    public byte[] toByteArray(Path src) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writeTo(src, out);
+        return out.toByteArray();
+    }
+
+    private void write(List<Item> items, ZipArchiveOutputStream zip, boolean seekable) throws IOException {
+        zip.setLevel(compressionLevel == STORED ? Deflater.DEFAULT_COMPRESSION : compressionLevel);
+
+        if (parallelism > 1 && totalSize(items) >= PARALLEL_THRESHOLD) {
+            writeParallel(items, zip);
+            return;
+        }
+
+        byte[] buf = new byte[COPY_BUFFER_SIZE];
+        for (Item i : items) {
+            ZipArchiveEntry e = i.toEntry(compressionLevel == STORED ? ZipEntry.STORED : ZipEntry.DEFLATED);
+            if (e.getMethod() == ZipEntry.STORED && !seekable && !i.directory) {
+                e.setSize(i.size);
+                e.setCrc(crc(i.path, buf));
+            }
+
+            zip.putArchiveEntry(e);
+            if (!i.directory) {
+                try (InputStream in = Files.newInputStream(i.path)) {
+                    int read;
+                    while ((read = in.read(buf)) >= 0) {
+                        zip.write(buf, 0, read);
+                    }
+                }
+            }
+            zip.closeArchiveEntry();
+        }
+    }
+
+    private void writeParallel(List<Item> items, ZipArchiveOutputStream zip) throws IOException {
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism, new ThreadFactoryBuilder()
+                .setDaemon(true)
+                .setNameFormat("concord-payload-archiver-%d")
+                .build());
+
+        // the executor is shut down by the creator
+        ParallelScatterZipCreator creator = new ParallelScatterZipCreator(executor,
+                new DefaultBackingStoreSupplier(null),
+                compressionLevel == STORED ? Deflater.DEFAULT_COMPRESSION : compressionLevel);
+
+        for (Item i : items) {
+            ZipArchiveEntry e = i.toEntry(compressionLevel == STORED || i.directory ? ZipEntry.STORED : ZipEntry.DEFLATED);
+            InputStreamSupplier supplier = () -> {
+                if (i.directory) {
+                    return InputStream.nullInputStream();
+                }
+
+                try {
+                    return Files.newInputStream(i.path);
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+            };
+            creator.addArchiveEntry(e, supplier);
+        }
+
+        try {
+            creator.writeTo(zip);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while creating an archive");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) cause).getCause();
+            }
+            throw new IOException("Error while creating an archive: " + cause.getMessage(), cause);
+        }
+    }
+
+    private static List<Item> scan(Path src) throws IOException {
+        if (!Files.isDirectory(src)) {
+            throw new IllegalArgumentException("Not a directory: " + src);
+        }
+
+        boolean posix = src.getFileSystem().supportedFileAttributeViews().contains("posix");
+
+        List<Item> result = new ArrayList<>();
+        Files.walkFileTree(src, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                if (!dir.equals(src)) {
+                    result.add(new Item(dir, relativeName(src, dir) + "/", true, 0, posix ? unixMode(dir) : -1));
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                if (attrs.isRegularFile()) {
+                    result.add(new Item(file, relativeName(src, file), false, attrs.size(), posix ? unixMode(file) : -1));
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        return result;
+    }
+
+    private static String relativeName(Path root, Path p) {
+        String s = root.relativize(p).toString();
+        return p.getFileSystem().getSeparator().equals("/") ? s : s.replace(p.getFileSystem().getSeparator(), "/");
+    }
+
+    static int unixMode(Path p) throws IOException {
+        Set<PosixFilePermission> perms = Files.getPosixFilePermissions(p);
+
+        int mode = 0;
+        for (PosixFilePermission perm : perms) {
+            // OWNER_READ is the first constant and corresponds to 0400
+            mode |= 1 << (8 - perm.ordinal());
+        }
+        return mode;
+    }
+
+    private static boolean isCompressed(String name) {
+        int i = name.lastIndexOf('.');
+        return i >= 0 && COMPRESSED_EXTENSIONS.contains(name.substring(i).toLowerCase());
+    }
+
+    private static long totalSize(List<Item> items) {
+        long result = 0;
+        for (Item i : items) {
+            result += i.size;
+        }
+        return result;
+    }
+
+    private static long crc(Path p, byte[] buf) throws IOException {
+        CRC32 crc = new CRC32();
+        try (InputStream in = Files.newInputStream(p)) {
+            int read;
+            while ((read = in.read(buf)) >= 0) {
+                crc.update(buf, 0, read);
+            }
+        }
+        return crc.getValue();
+    }
+
+    private static final class Item {
+
+        private final Path path;
+        private final String name;
+        private final boolean directory;
+        private final long size;
+        private final int unixMode;
+
+        private Item(Path path, String name, boolean directory, long size, int unixMode) {
+            this.path = path;
+            this.name = name;
+            this.directory = directory;
+            this.size = size;
+            this.unixMode = unixMode;
+        }
+
+        private ZipArchiveEntry toEntry(int method) {
+            ZipArchiveEntry e = new ZipArchiveEntry(name);
+            e.setMethod(directory || isCompressed(name) ? ZipEntry.STORED : method);
+            if (directory) {
+                e.setSize(0);
+                e.setCrc(0);
+            }
+            if (unixMode >= 0) {
+                e.setUnixMode(unixMode);
+            }
+            return e;
+        }
+    }
+
+    private static final class NonClosingOutputStream extends FilterOutputStream {
+
+        private NonClosingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package ca.ibodrov.concord.testcontainers;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2020 Ivan Bodrov
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * A lazily loaded part of a {@link Payload}. The data is read only when
+ * the process start request is sent, so a payload doesn't keep the content
+ * of its files in memory.
+ * <p/>
+ * Each call to {@link #open()} must return a new stream, the same payload
+ * can be used to start multiple processes.
+ */
+@FunctionalInterface
+public interface PayloadPart {
+
+    static PayloadPart of(Path path) {
+        return () -> Files.newInputStream(path);
+    }
+
+    static PayloadPart of(URL url) {
+        return url::openStream;
+    }
+
+    InputStream open() throws IOException;
+}
@@ -0,0 +1,70 @@
+package ca.ibodrov.concord.testcontainers;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2020 Ivan Bodrov
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An immutable snapshot of a {@link Payload} that can be used to create
+ * many similar payloads. The template's parts (concord.yml, archives,
+ * files, etc.) are shared between all payloads created from it, each
+ * payload stores only its own additions (arguments, tags, parent ID, etc.)
+ * <p/>
+ * Example:
+ * <pre>{@code
+ * PayloadTemplate template = PayloadTemplate.of(new Payload()
+ *         .archive(resourceDir)
+ *         .tag("load-test"));
+ *
+ * for (int i = 0; i < 1000; i++) {
+ *     processes.start(template.newPayload().arg("n", i));
+ * }
+ * }</pre>
+ * Values added to a payload override the template's values with the same name.
+ */
+public final class PayloadTemplate {
+
+    /**
+     * Creates a template from the current state of the specified payload.
+     * Subsequent changes to the payload don't affect the template.
+     */
+    public static PayloadTemplate of(Payload payload) {
+        return new PayloadTemplate(Collections.unmodifiableMap(payload.parameters()),
+                List.copyOf(payload.allTags()));
+    }
+
+    private final Map<String, Object> parameters;
+    private final List<String> tags;
+
+    private PayloadTemplate(Map<String, Object> parameters, List<String> tags) {
+        this.parameters = parameters;
+        this.tags = tags;
+    }
+
+    /**
+     * Creates a new payload based on this template.
+     */
+    public Payload newPayload() {
+        return new Payload(parameters, tags);
+    }
+}
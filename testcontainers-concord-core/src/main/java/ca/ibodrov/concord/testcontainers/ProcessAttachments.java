@@ -0,0 +1,216 @@
+package ca.ibodrov.concord.testcontainers;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2020 Ivan Bodrov
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.walmartlabs.concord.client2.ApiClient;
+import com.walmartlabs.concord.client2.ApiException;
+import com.walmartlabs.concord.client2.ProcessApi;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Access to the attachments of a process, e.g. {@code out.json}.
+ * <p/>
+ * Once the process is seen in a final status (e.g. after
+ * {@link ConcordProcess#waitForStatus}), each attachment is downloaded
+ * only once and kept in the {@link AttachmentCache}. Otherwise, attachments
+ * are downloaded on every call. Callers get their own copies of the data. Use {@link #open(String)} for large
+ * attachments, it doesn't load the whole attachment into memory unless
+ * it's already cached.
+ * <p/>
+ * Tests that inspect several attachments can download all of them at once
+ * using {@link #fetchAll()}. After that, all reads are served from
+ * the {@link AttachmentBundle}.
+ */
+public class ProcessAttachments {
+
+    private static final String OUT_VARIABLES = "out.json";
+
+    private static final TypeReference<Map<String, Object>> MAP_TYPE = new TypeReference<Map<String, Object>>() {
+    };
+
+    private final ApiClient client;
+    private final ConcordProcess process;
+    private final AttachmentCache cache;
+
+    private volatile List<String> names;
+    private volatile AttachmentBundle bundle;
+
+    public ProcessAttachments(ApiClient client, ConcordProcess process) {
+        this(client, process, AttachmentCache.shared());
+    }
+
+    public ProcessAttachments(ApiClient client, ConcordProcess process, AttachmentCache cache) {
+        this.client = client;
+        this.process = process;
+        this.cache = cache;
+    }
+
+    /**
+     * Returns the names of the process' attachments.
+     */
+    public List<String> names() throws ApiException {
+        List<String> result = names;
+        if (result != null) {
+            return result;
+        }
+
+        AttachmentBundle b = bundle;
+        if (b != null) {
+            return List.copyOf(b.names());
+        }
+
+        ProcessApi api = new ProcessApi(client);
+        List<String> l = ConcordMetrics.apiCall(process.metrics(), () -> api.listAttachments(process.instanceId()));
+        result = l != null ? Collections.unmodifiableList(l) : Collections.emptyList();
+
+        if (process.isFinal()) {
+            names = result;
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the content of the attachment.
+     */
+    public byte[] get(String name) throws ApiException {
+        AttachmentBundle b = bundle;
+        if (b != null && b.contains(name)) {
+            return b.get(name);
+        }
+
+        byte[] ab = cache.get(process.instanceId(), name);
+        if (ab != null) {
+            return ab;
+        }
+
+        // check the status first, the attachment can change until the process is done
+        boolean isFinal = process.isFinal();
+
+        ProcessApi api = new ProcessApi(client);
+        try (InputStream in = download(api, name)) {
+            ab = in.readAllBytes();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error while downloading " + name, e);
+        }
+
+        if (isFinal) {
+            cache.put(process.instanceId(), name, ab);
+        }
+
+        return ab;
+    }
+
+    /**
+     * Opens the attachment for reading. The caller is responsible for closing
+     * the stream. Cached attachments are served from memory, otherwise
+     * the attachment is streamed from the server and is not cached.
+     */
+    public InputStream open(String name) throws ApiException {
+        AttachmentBundle b = bundle;
+        if (b != null && b.contains(name)) {
+            return b.open(name);
+        }
+
+        byte[] ab = cache.peek(process.instanceId(), name);
+        if (ab != null) {
+            return new ByteArrayInputStream(ab);
+        }
+
+        ProcessApi api = new ProcessApi(client);
+        return download(api, name);
+    }
+
+    /**
+     * Parses the JSON attachment into an object of the specified type.
+     */
+    public <T> T read(String name, Class<T> type) throws ApiException {
+        try {
+            return ObjectMappers.get().readValue(get(name), type);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error while parsing " + name, e);
+        }
+    }
+
+    /**
+     * Returns the process' out variables.
+     */
+    public Map<String, Object> outVariables() throws ApiException {
+        try {
+            return parseOutVariables(get(OUT_VARIABLES));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error while parsing " + OUT_VARIABLES, e);
+        }
+    }
+
+    static Map<String, Object> parseOutVariables(byte[] data) throws IOException {
+        return ObjectMappers.get().readValue(data, MAP_TYPE);
+    }
+
+    /**
+     * Binds the process' out variables to an object of the specified type,
+     * e.g. a record. Unknown variables are ignored.
+     */
+    public <T> T outVariables(Class<T> type) throws ApiException {
+        return read(OUT_VARIABLES, type);
+    }
+
+    /**
+     * Downloads all attachments of the process in a single request.
+     * If the process is in a final status, subsequent calls of this
+     * and other methods are served from the returned bundle.
+     */
+    public AttachmentBundle fetchAll() throws ApiException {
+        AttachmentBundle b = bundle;
+        if (b != null) {
+            return b;
+        }
+
+        boolean isFinal = process.isFinal();
+
+        ProcessApi api = new ProcessApi(client);
+        ConcordMetrics metrics = process.metrics();
+        try (InputStream in = ConcordMetrics.received(metrics, ConcordMetrics.apiCall(metrics, () -> api.downloadState(process.instanceId())))) {
+            b = AttachmentBundle.read(in);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error while downloading the attachments of " + process.instanceId(), e);
+        }
+
+        if (isFinal) {
+            bundle = b;
+        }
+
+        return b;
+    }
+
+    private InputStream download(ProcessApi api, String name) throws ApiException {
+        ConcordMetrics metrics = process.metrics();
+        return ConcordMetrics.received(metrics, ConcordMetrics.apiCall(metrics, () -> api.downloadAttachment(process.instanceId(), name)));
+    }
+}
@@ -60,7 +60,7 @@ public class ProcessBuilder {
         ConcordProcess p = processes.start(payload);
 
         if (this.streamLogs) {
-            ProcessLogStreamers.start(client, p.instanceId());
+            ProcessLogStreamers.start(processes.owner(), client, p.instanceId());
         }
 
         return p;
@@ -0,0 +1,497 @@
+package ca.ibodrov.concord.testcontainers;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2020 Ivan Bodrov
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import org.intellij.lang.annotations.Language;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Parses a process log into records stored in compact columnar arrays.
+ * Expects the standard Concord log format:
+ * <pre>
+ * 2020-01-01T12:00:00.123+0000 [INFO ] c.w.c.plugins.log.LoggingTaskV2 - Hello!
+ * </pre>
+ * The logger part is optional. Lines without a timestamp (e.g. stack traces)
+ * are appended to the previous record. Messages are decoded only when requested.
+ * <p/>
+ * Example:
+ * <pre>{@code
+ * ProcessLogIndex idx = process.logIndex();
+ * Duration d = idx.durationBetween(".*Step A started.*", ".*Step A done.*");
+ * List<ProcessLogIndex.Entry> problems = idx.entries(Level.WARN, Level.ERROR);
+ * }</pre>
+ */
+public final class ProcessLogIndex {
+
+    private static final int INITIAL_SIZE = 256;
+    private static final long NO_TIMESTAMP = Long.MIN_VALUE;
+    private static final Level[] LEVELS = Level.values();
+
+    /**
+     * Parses the specified log data. The array is referenced, not copied.
+     */
+    public static ProcessLogIndex parse(byte[] log) {
+        ProcessLogIndex idx = new ProcessLogIndex(log);
+        idx.parse();
+        return idx;
+    }
+
+    private final byte[] log;
+
+    private int size;
+    private long[] timestamps = new long[INITIAL_SIZE];
+    private byte[] levels = new byte[INITIAL_SIZE];
+    private int[] loggers = new int[INITIAL_SIZE];
+    private int[] offsets = new int[INITIAL_SIZE];
+    private int[] messageOffsets = new int[INITIAL_SIZE];
+    private int[] ends = new int[INITIAL_SIZE];
+
+    private final List<String> loggerNames = new ArrayList<>();
+    private final Map<String, Integer> loggerIds = new HashMap<>();
+
+    private ProcessLogIndex(byte[] log) {
+        this.log = log;
+    }
+
+    /**
+     * Returns the number of records.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the record's timestamp or {@code null} if the record has no timestamp
+     * (e.g. lines at the beginning of the log, before the first regular record).
+     */
+    public Instant timestamp(int i) {
+        long ts = timestamps[checkIndex(i)];
+        return ts != NO_TIMESTAMP ? Instant.ofEpochMilli(ts) : null;
+    }
+
+    /**
+     * Returns the record's level or {@code null} if the level is unknown.
+     */
+    public Level level(int i) {
+        byte l = levels[checkIndex(i)];
+        return l >= 0 ? LEVELS[l] : null;
+    }
+
+    /**
+     * Returns the record's logger name or {@code null} if the record has no logger.
+     */
+    public String logger(int i) {
+        int id = loggers[checkIndex(i)];
+        return id >= 0 ? loggerNames.get(id) : null;
+    }
+
+    /**
+     * Returns the record's message including any continuation lines.
+     */
+    public String message(int i) {
+        checkIndex(i);
+        return decode(messageOffsets[i], ends[i]);
+    }
+
+    /**
+     * Returns the record's full text as it appears in the log.
+     */
+    public String line(int i) {
+        checkIndex(i);
+        return decode(offsets[i], ends[i]);
+    }
+
+    /**
+     * Returns the offset of the record's first byte in the log.
+     */
+    public int offset(int i) {
+        return offsets[checkIndex(i)];
+    }
+
+    /**
+     * Returns the record.
+     */
+    public Entry entry(int i) {
+        return new Entry(i, timestamp(i), level(i), logger(i), message(i), offset(i));
+    }
+
+    /**
+     * Returns all records with the specified levels.
+     */
+    public List<Entry> entries(Level level, Level... more) {
+        EnumSet<Level> set = EnumSet.of(level, more);
+
+        List<Entry> result = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            byte l = levels[i];
+            if (l >= 0 && set.contains(LEVELS[l])) {
+                result.add(entry(i));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the index of the first record which message matches the specified
+     * pattern (regex) or -1 if there are no such records. Messages with continuation
+     * lines contain {@code \n}, use {@code (?s)} to match them.
+     */
+    public int indexOf(@Language("RegExp") String pattern) {
+        return indexOf(Pattern.compile(pattern), 0);
+    }
+
+    /**
+     * Returns the index of the first record starting from {@code fromIndex}
+     * which message matches the specified pattern or -1 if there are no such records.
+     */
+    public int indexOf(Pattern pattern, int fromIndex) {
+        String literal = RegexLiterals.requiredLiteral(pattern);
+        byte[] literalBytes = literal != null ? literal.getBytes(UTF_8) : null;
+
+        Matcher m = pattern.matcher("");
+        for (int i = Math.max(0, fromIndex); i < size; i++) {
+            if (literalBytes != null && !contains(messageOffsets[i], ends[i], literalBytes)) {
+                continue;
+            }
+
+            if (m.reset(message(i)).matches()) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the time between the first record matching {@code from} and the first
+     * record matching {@code to} that follows it. Patterns are matched against
+     * the whole message (not including the timestamp, the level and the logger).
+     *
+     * @throws IllegalStateException if either of the records is not found or has no timestamp.
+     */
+    public Duration durationBetween(@Language("RegExp") String from, @Language("RegExp") String to) {
+        int a = indexOf(Pattern.compile(from), 0);
+        if (a < 0) {
+            throw new IllegalStateException("No log records matching " + from + " found");
+        }
+
+        int b = indexOf(Pattern.compile(to), a + 1);
+        if (b < 0) {
+            throw new IllegalStateException("No log records matching " + to + " found after record #" + a);
+        }
+
+        return durationBetween(a, b);
+    }
+
+    /**
+     * Returns the time between two records.
+     *
+     * @throws IllegalStateException if either of the records has no timestamp.
+     */
+    public Duration durationBetween(int from, int to) {
+        long a = timestamps[checkIndex(from)];
+        long b = timestamps[checkIndex(to)];
+        if (a == NO_TIMESTAMP || b == NO_TIMESTAMP) {
+            throw new IllegalStateException("Log record #" + (a == NO_TIMESTAMP ? from : to) + " has no timestamp");
+        }
+        return Duration.ofMillis(b - a);
+    }
+
+    private void parse() {
+        Header h = new Header();
+
+        int start = 0;
+        while (start < log.length) {
+            int end = start;
+            while (end < log.length && log[end] != '\n') {
+                end++;
+            }
+
+            int next = end + 1;
+            if (end > start && log[end - 1] == '\r') {
+                end--;
+            }
+
+            if (parseHeader(start, end, h)) {
+                add(h.timestamp, h.level, h.logger, start, h.messageOffset, end);
+            } else if (size > 0) {
+                // continuation of the previous record, e.g. a stack trace
+                ends[size - 1] = end;
+            } else {
+                add(NO_TIMESTAMP, (byte) -1, -1, start, start, end);
+            }
+
+            start = next;
+        }
+    }
+
+    private void add(long timestamp, byte level, int logger, int offset, int messageOffset, int end) {
+        if (size == timestamps.length) {
+            int n = size * 2;
+            timestamps = Arrays.copyOf(timestamps, n);
+            levels = Arrays.copyOf(levels, n);
+            loggers = Arrays.copyOf(loggers, n);
+            offsets = Arrays.copyOf(offsets, n);
+            messageOffsets = Arrays.copyOf(messageOffsets, n);
+            ends = Arrays.copyOf(ends, n);
+        }
+
+        timestamps[size] = timestamp;
+        levels[size] = level;
+        loggers[size] = logger;
+        offsets[size] = offset;
+        messageOffsets[size] = messageOffset;
+        ends[size] = end;
+        size++;
+    }
+
+    /**
+     * Parses {@code yyyy-MM-dd'T'HH:mm:ss.SSS<zone> [LEVEL] [logger - ]message}.
+     */
+    private boolean parseHeader(int start, int end, Header h) {
+        // the shortest possible header: "2020-01-01T00:00:00.000Z [INFO]"
+        if (end - start < 31) {
+            return false;
+        }
+
+        byte[] b = log;
+        int p = start;
+        if (b[p + 4] != '-' || b[p + 7] != '-' || b[p + 10] != 'T' || b[p + 13] != ':' || b[p + 16] != ':' || b[p + 19] != '.') {
+            return false;
+        }
+
+        int year = digits(p, 4);
+        int month = digits(p + 5, 2);
+        int day = digits(p + 8, 2);
+        int hour = digits(p + 11, 2);
+        int minute = digits(p + 14, 2);
+        int second = digits(p + 17, 2);
+        int millis = digits(p + 20, 3);
+        if (year < 0 || month < 1 || month > 12 || day < 1 || day > 31 || hour < 0 || minute < 0 || second < 0 || millis < 0) {
+            return false;
+        }
+
+        p += 23;
+
+        // zone: Z, +HHMM or +HH:MM
+        int offsetSeconds;
+        if (b[p] == 'Z') {
+            offsetSeconds = 0;
+            p++;
+        } else if (b[p] == '+' || b[p] == '-') {
+            int sign = b[p] == '-' ? -1 : 1;
+            int oh = digits(p + 1, 2);
+            int colon = b[p + 3] == ':' ? 1 : 0;
+            int om = digits(p + 3 + colon, 2);
+            if (oh < 0 || om < 0) {
+                return false;
+            }
+            offsetSeconds = sign * (oh * 3600 + om * 60);
+            p += 5 + colon;
+        } else {
+            return false;
+        }
+
+        if (p + 2 >= end || b[p] != ' ' || b[p + 1] != '[') {
+            return false;
+        }
+        p += 2;
+
+        int levelStart = p;
+        while (p < end && b[p] != ']') {
+            p++;
+        }
+        if (p >= end) {
+            return false;
+        }
+        int levelEnd = p;
+        while (levelEnd > levelStart && b[levelEnd - 1] == ' ') {
+            levelEnd--;
+        }
+        p++;
+
+        if (p < end && b[p] == ' ') {
+            p++;
+        }
+
+        long epochDay;
+        try {
+            epochDay = LocalDate.of(year, month, day).toEpochDay();
+        } catch (RuntimeException e) {
+            return false;
+        }
+
+        h.timestamp = (epochDay * 86400 + hour * 3600 + minute * 60 + second - offsetSeconds) * 1000 + millis;
+        h.level = level(levelStart, levelEnd);
+        h.logger = -1;
+        h.messageOffset = p;
+
+        // optional logger name: a dotted name without spaces followed by " - "
+        int q = p;
+        boolean dotted = false;
+        while (q < end && b[q] != ' ') {
+            dotted |= b[q] == '.';
+            q++;
+        }
+        if (dotted && q + 2 < end && b[q + 1] == '-' && b[q + 2] == ' ') {
+            h.logger = loggerId(p, q);
+            h.messageOffset = q + 3;
+        }
+
+        return true;
+    }
+
+    private int digits(int offset, int count) {
+        int result = 0;
+        for (int i = offset; i < offset + count; i++) {
+            int d = log[i] - '0';
+            if (d < 0 || d > 9) {
+                return -1;
+            }
+            result = result * 10 + d;
+        }
+        return result;
+    }
+
+    private byte level(int start, int end) {
+        for (Level l : LEVELS) {
+            String name = l.name();
+            if (name.length() != end - start) {
+                continue;
+            }
+
+            boolean eq = true;
+            for (int i = 0; i < name.length() && eq; i++) {
+                eq = log[start + i] == name.charAt(i);
+            }
+
+            if (eq) {
+                return (byte) l.ordinal();
+            }
+        }
+        return -1;
+    }
+
+    private int loggerId(int start, int end) {
+        String name = decode(start, end);
+        Integer id = loggerIds.get(name);
+        if (id == null) {
+            id = loggerNames.size();
+            loggerNames.add(name);
+            loggerIds.put(name, id);
+        }
+        return id;
+    }
+
+    private boolean contains(int start, int end, byte[] needle) {
+        int last = end - needle.length;
+        outer:
+        for (int i = start; i <= last; i++) {
+            for (int j = 0; j < needle.length; j++) {
+                if (log[i + j] != needle[j]) {
+                    continue outer;
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+
+    private String decode(int start, int end) {
+        return new String(log, start, end - start, UTF_8);
+    }
+
+    private int checkIndex(int i) {
+        return Objects.checkIndex(i, size);
+    }
+
+    public enum Level {
+
+        TRACE,
+        DEBUG,
+        INFO,
+        WARN,
+        ERROR
+    }
+
+    public static final class Entry {
+
+        private final int index;
+        private final Instant timestamp;
+        private final Level level;
+        private final String logger;
+        private final String message;
+        private final int offset;
+
+        private Entry(int index, Instant timestamp, Level level, String logger, String message, int offset) {
+            this.index = index;
+            this.timestamp = timestamp;
+            this.level = level;
+            this.logger = logger;
+            this.message = message;
+            this.offset = offset;
+        }
+
+        public int index() {
+            return index;
+        }
+
+        public Instant timestamp() {
+            return timestamp;
+        }
+
+        public Level level() {
+            return level;
+        }
+
+        public String logger() {
+            return logger;
+        }
+
+        public String message() {
+            return message;
+        }
+
+        public int offset() {
+            return offset;
+        }
+
+        @Override
+        public String toString() {
+            return timestamp + " [" + level + "] " + (logger != null ? logger + " - " : "") + message;
+        }
+    }
+
+    private static final class Header {
+
+        private long timestamp;
+        private byte level;
+        private int logger;
+        private int messageOffset;
+    }
+}
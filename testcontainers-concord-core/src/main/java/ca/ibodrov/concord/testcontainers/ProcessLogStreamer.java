@@ -29,6 +29,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.InputStream;
+import java.io.PrintStream;
 import java.util.*;
 
 public class ProcessLogStreamer implements Runnable {
@@ -38,7 +39,7 @@ public class ProcessLogStreamer implements Runnable {
     private static final long ERROR_DELAY = 5000;
     private static final long REQUEST_DELAY = 3000;
     private static final long RANGE_INCREMENT = 1024;
-    private static final Set<StatusEnum> FINAL_STATUSES = new HashSet<>(Arrays.asList(
+    static final Set<StatusEnum> FINAL_STATUSES = new HashSet<>(Arrays.asList(
             StatusEnum.FINISHED,
             StatusEnum.CANCELLED,
             StatusEnum.FAILED,
@@ -66,11 +67,7 @@ public class ProcessLogStreamer implements Runnable {
                 byte[] ab = is.readAllBytes();
 
                 if (ab.length > 0) {
-                    String data = new String(ab);
-                    for (String line : data.split("\n")) {
-                        System.out.print("[PROCESS] ");
-                        System.out.println(line);
-                    }
+                    print(ab, System.out);
 
                     rangeStart += ab.length;
                     rangeEnd = rangeStart + RANGE_INCREMENT;
@@ -91,6 +88,14 @@ public class ProcessLogStreamer implements Runnable {
         }
     }
 
+    static void print(byte[] ab, PrintStream out) {
+        String data = new String(ab);
+        for (String line : data.split("\n")) {
+            out.print("[PROCESS] ");
+            out.println(line);
+        }
+    }
+
     private static void sleep(long ms) {
         try {
             Thread.sleep(ms);
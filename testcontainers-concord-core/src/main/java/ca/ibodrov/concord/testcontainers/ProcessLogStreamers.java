@@ -20,53 +20,86 @@ package ca.ibodrov.concord.testcontainers;
  * =====
  */
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.walmartlabs.concord.client2.ApiClient;
 
-import java.util.UUID;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.TimeUnit;
+import java.util.*;
+import java.util.concurrent.*;
 
+/**
+ * Streams process logs in the background. A single JVM-wide executor is used,
+ * the streamers are grouped by their owner (e.g. a {@link Concord} instance),
+ * so stopping the streamers of one owner doesn't affect the others, e.g. when
+ * tests are running in parallel.
+ */
 public class ProcessLogStreamers {
 
-    private static final ThreadLocal<ProcessLogStreamers> instance = ThreadLocal.withInitial(ProcessLogStreamers::new);
+    private static final long STOP_TIMEOUT = TimeUnit.SECONDS.toNanos(30);
+
+    private static final Object DEFAULT_OWNER = new Object();
+
+    private static final ExecutorService executor = Executors.newCachedThreadPool(new ThreadFactoryBuilder()
+            .setDaemon(true)
+            .setNameFormat("concord-log-streamer-%d")
+            .build());
+
+    private static final Map<Object, List<Future<?>>> streamers = new HashMap<>();
 
     public static void start(ApiClient client, UUID instanceId) {
-        ProcessLogStreamers s = instance.get();
-        s.doStart(client, instanceId);
+        start(DEFAULT_OWNER, client, instanceId);
     }
 
-    public static void stop() {
-        ProcessLogStreamers s = instance.get();
-        s.doStop();
+    /**
+     * Starts streaming the process' log. The streamer can be awaited
+     * using {@link #stop(Object)} with the same owner.
+     *
+     * @param owner the owner of the streamer or {@code null} for the default group.
+     */
+    public static void start(Object owner, ApiClient client, UUID instanceId) {
+        synchronized (streamers) {
+            List<Future<?>> l = streamers.computeIfAbsent(owner != null ? owner : DEFAULT_OWNER, k -> new ArrayList<>());
+            l.removeIf(Future::isDone);
+            l.add(executor.submit(new ProcessLogStreamer(client, instanceId)));
+        }
     }
 
-    private ExecutorService executor;
-
-    private void doStart(ApiClient client, UUID instanceId) {
-        synchronized (this) {
-            if (executor == null) {
-                this.executor = Executors.newCachedThreadPool();
-            }
-
-            executor.submit(new ProcessLogStreamer(client, instanceId));
+    /**
+     * Waits for all active streamers to finish.
+     */
+    public static void stop() {
+        List<Future<?>> l = new ArrayList<>();
+        synchronized (streamers) {
+            streamers.values().forEach(l::addAll);
+            streamers.clear();
         }
+        await(l);
     }
 
-    private void doStop() {
-        synchronized (this) {
-            if (executor == null) {
-                return;
-            }
+    /**
+     * Waits for the active streamers of the specified owner to finish.
+     * Streamers of other owners are not affected.
+     */
+    public static void stop(Object owner) {
+        List<Future<?>> l;
+        synchronized (streamers) {
+            l = streamers.remove(owner);
+        }
+        if (l != null) {
+            await(l);
+        }
+    }
 
-            executor.shutdown();
+    private static void await(List<Future<?>> futures) {
+        long deadline = System.nanoTime() + STOP_TIMEOUT;
+        for (Future<?> f : futures) {
             try {
-                executor.awaitTermination(30, TimeUnit.SECONDS);
+                f.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
             } catch (InterruptedException e) {
                 Thread.currentThread().interrupt();
+                return;
+            } catch (ExecutionException | TimeoutException e) {
+                // the streamer logs its own errors, a slow streamer is left running
             }
-
-            this.executor = null;
         }
     }
 }
@@ -0,0 +1,127 @@
+package ca.ibodrov.concord.testcontainers;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2020 Ivan Bodrov
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import com.walmartlabs.concord.client2.ApiClient;
+import com.walmartlabs.concord.client2.ApiException;
+import com.walmartlabs.concord.client2.ProcessApi;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Follows a process log using HTTP range requests. Each {@link #poll(boolean)}
+ * downloads only the bytes appended since the previous call.
+ */
+final class ProcessLogTail {
+
+    private final ProcessApi processApi;
+    private final UUID instanceId;
+
+    private long offset;
+
+    // the beginning of an incomplete line
+    private byte[] pending = new byte[0];
+
+    ProcessLogTail(ApiClient client, UUID instanceId) {
+        this.processApi = new ProcessApi(client);
+        this.instanceId = instanceId;
+    }
+
+    /**
+     * Returns the number of bytes received so far.
+     */
+    long offset() {
+        return offset;
+    }
+
+    /**
+     * Fetches the new log data and returns complete lines.
+     *
+     * @param flush if {@code true} the trailing incomplete line (if any) is returned too.
+     *              Should be used once the process is finished.
+     * @return new lines, an empty list if there's no new data.
+     */
+    List<String> poll(boolean flush) throws ApiException {
+        byte[] ab = fetch();
+        offset += ab.length;
+
+        byte[] data;
+        if (pending.length > 0) {
+            data = new byte[pending.length + ab.length];
+            System.arraycopy(pending, 0, data, 0, pending.length);
+            System.arraycopy(ab, 0, data, pending.length, ab.length);
+        } else {
+            data = ab;
+        }
+
+        if (data.length == 0) {
+            return Collections.emptyList();
+        }
+
+        List<String> lines = new ArrayList<>();
+
+        int start = 0;
+        for (int i = 0; i < data.length; i++) {
+            if (data[i] == '\n') {
+                lines.add(decode(data, start, i));
+                start = i + 1;
+            }
+        }
+
+        if (flush && start < data.length) {
+            lines.add(decode(data, start, data.length));
+            start = data.length;
+        }
+
+        pending = start < data.length ? Arrays.copyOfRange(data, start, data.length) : new byte[0];
+        return lines;
+    }
+
+    private byte[] fetch() throws ApiException {
+        try (InputStream is = processApi.getProcessLog(instanceId, "bytes=" + offset + "-")) {
+            return is != null ? is.readAllBytes() : new byte[0];
+        } catch (ApiException e) {
+            if (e.getCode() == 404 || e.getCode() == 416) {
+                // the log doesn't exist yet or there's no new data
+                return new byte[0];
+            }
+            throw e;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static String decode(byte[] ab, int start, int end) {
+        if (end > start && ab[end - 1] == '\r') {
+            end--;
+        }
+        return new String(ab, start, end - start, UTF_8);
+    }
+}
@@ -0,0 +1,303 @@
+package ca.ibodrov.concord.testcontainers;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2020 Ivan Bodrov
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import com.walmartlabs.concord.client2.ApiException;
+import com.walmartlabs.concord.client2.ProcessEntry;
+import com.walmartlabs.concord.client2.ProcessEntry.StatusEnum;
+import com.walmartlabs.concord.client2.ProcessStatusHistoryEntry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Records the status transitions of {@link ConcordProcess} instances and
+ * aggregates them into per-phase histograms. One recorder can be shared by
+ * any number of processes (and {@link Concord} instances) to see where
+ * the time goes across a whole test suite:
+ * <pre>{@code
+ * ProcessTimelineRecorder timeline = new ProcessTimelineRecorder();
+ * Concord<?> concord = new Concord<>().processTimeline(timeline);
+ * ...
+ * concord.close(); // logs the report
+ * }</pre>
+ * The timestamps are taken from the server's status history. If the history
+ * is not available, the statuses observed by the client (e.g. in
+ * {@link ConcordProcess#waitForStatus(StatusEnum, StatusEnum...)}) are used.
+ * <p/>
+ * Processes are recorded once they reach a final status, see {@link #collect()}.
+ */
+public class ProcessTimelineRecorder {
+
+    private static final Logger log = LoggerFactory.getLogger(ProcessTimelineRecorder.class);
+
+    private static final String[] HISTORY = {"history"};
+
+    public enum Phase {
+
+        /**
+         * From NEW to ENQUEUED: the server processes the payload.
+         */
+        PREPARING("preparing"),
+
+        /**
+         * From ENQUEUED to STARTING: waiting for an agent, includes WAITING.
+         */
+        QUEUE_WAIT("queueWait"),
+
+        /**
+         * From STARTING to RUNNING: the agent's dispatch, the state download,
+         * the dependency resolution and the runner JVM start.
+         */
+        AGENT_START("agentStart"),
+
+        /**
+         * From RUNNING to a final status: the flow execution. Includes
+         * the time spent in SUSPENDED and RESUMING.
+         */
+        EXECUTION("execution"),
+
+        /**
+         * From NEW to a final status.
+         */
+        TOTAL("total");
+
+        private final String key;
+
+        Phase(String key) {
+            this.key = key;
+        }
+
+        public String key() {
+            return key;
+        }
+    }
+
+    private final ConcurrentMap<UUID, Timeline> pending = new ConcurrentHashMap<>();
+    private final Map<Phase, LatencyHistogram> histograms = new EnumMap<>(Phase.class);
+    private final Map<StatusEnum, AtomicLong> finalStatuses = new ConcurrentHashMap<>();
+
+    public ProcessTimelineRecorder() {
+        for (Phase p : Phase.values()) {
+            histograms.put(p, new LatencyHistogram());
+        }
+    }
+
+    /**
+     * Starts tracking the specified process.
+     */
+    public ConcordProcess attach(ConcordProcess process) {
+        pending.computeIfAbsent(process.instanceId(), id -> new Timeline(process));
+        process.timeline(this);
+        return process;
+    }
+
+    /**
+     * Fetches the status history of the tracked processes and records
+     * the ones in a final status. The rest are checked again on the next call.
+     */
+    public void collect() {
+        for (Timeline t : pending.values()) {
+            ProcessEntry entry;
+            try {
+                entry = t.process.getEntry(HISTORY);
+            } catch (ApiException e) {
+                if (e.getCode() == 404) {
+                    pending.remove(t.process.instanceId());
+                } else {
+                    log.warn("collect -> error while fetching {}: {}", t.process.instanceId(), e.getMessage());
+                }
+                continue;
+            }
+
+            if (entry == null || !ProcessLogStreamer.FINAL_STATUSES.contains(entry.getStatus())) {
+                continue;
+            }
+
+            if (pending.remove(t.process.instanceId()) == null) {
+                // collected concurrently
+                continue;
+            }
+
+            record(t.transitions(entry), entry.getStatus());
+        }
+    }
+
+    /**
+     * Number of recorded processes.
+     */
+    public long count() {
+        return histograms.get(Phase.TOTAL).count();
+    }
+
+    /**
+     * Number of tracked processes that haven't reached a final status yet
+     * (as of the last {@link #collect()}).
+     */
+    public int pendingCount() {
+        return pending.size();
+    }
+
+    public LatencyHistogram histogram(Phase phase) {
+        return histograms.get(phase);
+    }
+
+    /**
+     * Collects the finished processes and returns a human-readable report.
+     */
+    public String report() {
+        collect();
+
+        StringBuilder sb = new StringBuilder("Process timeline: ")
+                .append(count()).append(" process(es)");
+
+        if (!finalStatuses.isEmpty()) {
+            StringJoiner j = new StringJoiner(", ", " (", ")");
+            new TreeMap<>(finalStatuses).forEach((k, v) -> j.add(k + "=" + v.get()));
+            sb.append(j);
+        }
+
+        sb.append(", ").append(pendingCount()).append(" pending");
+
+        for (Phase p : Phase.values()) {
+            LatencyHistogram h = histograms.get(p);
+            sb.append(String.format("%n  %-11s count=%d, p50=%dms, p90=%dms, p99=%dms, max=%dms",
+                    p.key(), h.count(),
+                    h.percentile(50).toMillis(), h.percentile(90).toMillis(), h.percentile(99).toMillis(),
+                    h.max().toMillis()));
+        }
+
+        return sb.toString();
+    }
+
+    /**
+     * Saves the {@link #report()} into the specified file.
+     */
+    public void writeReport(Path file) throws IOException {
+        Files.writeString(file, report());
+    }
+
+    /**
+     * Clears the recorded histograms. The tracked processes are kept.
+     */
+    public void reset() {
+        histograms.values().forEach(LatencyHistogram::reset);
+        finalStatuses.clear();
+    }
+
+    void observe(ConcordProcess process, StatusEnum status) {
+        Timeline t = pending.get(process.instanceId());
+        if (t != null) {
+            t.observe(status, Instant.now());
+        }
+    }
+
+    void record(Map<StatusEnum, Instant> transitions, StatusEnum finalStatus) {
+        phases(transitions).forEach((k, v) -> histograms.get(k).record(v));
+        finalStatuses.computeIfAbsent(finalStatus, k -> new AtomicLong()).incrementAndGet();
+    }
+
+    /**
+     * Computes the phases using the first time each status was reached.
+     * Phases with missing timestamps are skipped.
+     */
+    static Map<Phase, Duration> phases(Map<StatusEnum, Instant> transitions) {
+        Instant created = transitions.get(StatusEnum.NEW);
+        Instant enqueued = transitions.get(StatusEnum.ENQUEUED);
+        Instant starting = transitions.get(StatusEnum.STARTING);
+        Instant running = transitions.get(StatusEnum.RUNNING);
+
+        Instant end = null;
+        for (StatusEnum s : ProcessLogStreamer.FINAL_STATUSES) {
+            Instant i = transitions.get(s);
+            if (i != null && (end == null || i.isBefore(end))) {
+                end = i;
+            }
+        }
+
+        Map<Phase, Duration> result = new EnumMap<>(Phase.class);
+        put(result, Phase.PREPARING, created, enqueued);
+        put(result, Phase.QUEUE_WAIT, enqueued, starting);
+        put(result, Phase.AGENT_START, starting, running);
+        put(result, Phase.EXECUTION, running, end);
+        put(result, Phase.TOTAL, created, end);
+        return result;
+    }
+
+    private static void put(Map<Phase, Duration> m, Phase phase, Instant from, Instant to) {
+        if (from == null || to == null || to.isBefore(from)) {
+            return;
+        }
+        m.put(phase, Duration.between(from, to));
+    }
+
+    private static final class Timeline {
+
+        private final ConcordProcess process;
+        private final Map<StatusEnum, Instant> observed = new EnumMap<>(StatusEnum.class);
+
+        private Timeline(ConcordProcess process) {
+            this.process = process;
+        }
+
+        private synchronized void observe(StatusEnum status, Instant at) {
+            if (status != null) {
+                observed.putIfAbsent(status, at);
+            }
+        }
+
+        private synchronized Map<StatusEnum, Instant> transitions(ProcessEntry entry) {
+            List<ProcessStatusHistoryEntry> history = entry.getStatusHistory();
+            if (history == null || history.isEmpty()) {
+                Map<StatusEnum, Instant> result = new EnumMap<>(observed);
+                if (entry.getCreatedAt() != null) {
+                    result.put(StatusEnum.NEW, entry.getCreatedAt().toInstant());
+                }
+                return result;
+            }
+
+            Map<StatusEnum, Instant> result = new EnumMap<>(StatusEnum.class);
+            for (ProcessStatusHistoryEntry h : history) {
+                if (h.getStatus() == null || h.getChangeDate() == null) {
+                    continue;
+                }
+
+                Instant at = h.getChangeDate().toInstant();
+                result.merge(h.getStatus(), at, (a, b) -> a.isBefore(b) ? a : b);
+            }
+
+            if (!result.containsKey(StatusEnum.NEW) && entry.getCreatedAt() != null) {
+                result.put(StatusEnum.NEW, entry.getCreatedAt().toInstant());
+            }
+
+            return result;
+        }
+    }
+}
@@ -22,17 +22,41 @@ package ca.ibodrov.concord.testcontainers;
 
 import com.walmartlabs.concord.client2.*;
 
-import java.util.Collections;
-import java.util.List;
-import java.util.Map;
-import java.util.UUID;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.*;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
 
 public class Processes {
 
     private final ApiClient client;
+    private final ProcessTimelineRecorder timeline;
+    private final Object owner;
 
     public Processes(ApiClient client) {
+        this(client, null);
+    }
+
+    /**
+     * @param timeline if not {@code null}, the started processes are attached to the recorder.
+     */
+    public Processes(ApiClient client, ProcessTimelineRecorder timeline) {
+        this(client, timeline, null);
+    }
+
+    /**
+     * @param owner the owner of the log streamers, see {@link ProcessLogStreamers#stop(Object)}.
+     */
+    Processes(ApiClient client, ProcessTimelineRecorder timeline, Object owner) {
         this.client = client;
+        this.timeline = timeline;
+        this.owner = owner;
+    }
+
+    Object owner() {
+        return owner;
     }
 
     /**
@@ -48,9 +72,13 @@ public class Processes {
      * @see <a href="https://concord.walmartlabs.com/docs/api/process.html#form-data">API docs</a>.
      */
     public ConcordProcess start(Map<String, Object> input) throws ApiException {
+        ConcordMetrics metrics = ConcordMetrics.current();
+        Map<String, Object> request = metrics != null ? countSent(metrics, input) : input;
+
         ProcessApi processApi = new ProcessApi(client);
-        StartProcessResponse spr = processApi.startProcess(input);
-        return new ConcordProcess(client, spr.getInstanceId());
+        StartProcessResponse spr = ConcordMetrics.apiCall(metrics, () -> processApi.startProcess(request));
+        ConcordProcess p = new ConcordProcess(client, spr.getInstanceId());
+        return timeline != null ? timeline.attach(p) : p;
     }
 
     /**
@@ -73,7 +101,40 @@ public class Processes {
      * @see #start(Map)
      */
     public ConcordProcess start(Payload builder) throws ApiException {
-        return start(builder.build());
+        Map<String, Object> input = builder.build();
+
+        // lazy parts are opened only when the client writes the request body
+        List<InputStream> streams = new ArrayList<>();
+        try {
+            for (Map.Entry<String, Object> e : input.entrySet()) {
+                if (e.getValue() instanceof PayloadPart) {
+                    InputStream in = new LazyInputStream((PayloadPart) e.getValue());
+                    streams.add(in);
+                    e.setValue(in);
+                }
+            }
+
+            return start(input);
+        } finally {
+            for (InputStream in : streams) {
+                try {
+                    in.close();
+                } catch (IOException e) {
+                    // ignore
+                }
+            }
+        }
+    }
+
+    /**
+     * Uploads the payload into the specified project, unless it was uploaded
+     * already. Use the returned deployment to start processes without sending
+     * the payload again. The org and the project are created if necessary.
+     *
+     * @see ProjectPayloads
+     */
+    public ProjectPayloads.Deployment deploy(String orgName, String projectName, Payload payload) throws ApiException {
+        return new ProjectPayloads(client, timeline, orgName, projectName).deploy(payload);
     }
 
     /**
@@ -83,4 +144,58 @@ public class Processes {
         ProcessV2Api processApi = new ProcessV2Api(client);
         return processApi.listProcesses(filter);
     }
+
+    private static Map<String, Object> countSent(ConcordMetrics metrics, Map<String, Object> input) {
+        Map<String, Object> result = new LinkedHashMap<>(input);
+        for (Map.Entry<String, Object> e : result.entrySet()) {
+            Object v = e.getValue();
+            if (v instanceof InputStream) {
+                e.setValue(ConcordMetrics.sent(metrics, (InputStream) v));
+            } else if (v instanceof byte[]) {
+                metrics.recordSent(((byte[]) v).length);
+            } else if (v instanceof String) {
+                metrics.recordSent(((String) v).getBytes(UTF_8).length);
+            }
+        }
+        return result;
+    }
+
+    private static final class LazyInputStream extends InputStream {
+
+        private final PayloadPart part;
+        private InputStream delegate;
+
+        private LazyInputStream(PayloadPart part) {
+            this.part = part;
+        }
+
+        @Override
+        public int read() throws IOException {
+            return delegate().read();
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            return delegate().read(b, off, len);
+        }
+
+        @Override
+        public long transferTo(OutputStream out) throws IOException {
+            return delegate().transferTo(out);
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (delegate != null) {
+                delegate.close();
+            }
+        }
+
+        private InputStream delegate() throws IOException {
+            if (delegate == null) {
+                delegate = part.open();
+            }
+            return delegate;
+        }
+    }
 }
@@ -0,0 +1,277 @@
+package ca.ibodrov.concord.testcontainers;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2020 Ivan Bodrov
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import com.google.common.hash.Funnels;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.walmartlabs.concord.client2.*;
+import com.walmartlabs.concord.client2.ProcessEntry.StatusEnum;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Uploads payloads into a project once and starts processes by reference.
+ * <p/>
+ * The first {@link #deploy(Payload)} of a payload starts a short "seed" process
+ * in the project. The seed process receives the payload's files and archive,
+ * but runs only a no-op flow. All processes started using the returned
+ * {@link Deployment} are forks of the seed process: the server copies
+ * the seed's state, nothing but the arguments is sent over the network.
+ * <p/>
+ * Deployed payloads are cached JVM-wide, the key is a fingerprint of
+ * the payload's content (see {@link PayloadArchiveCache.Archive#key()})
+ * and the target org and project. Arguments, the entry point, tags and
+ * {@code out} variables are not a part of the fingerprint, they are applied
+ * to each started process. The parent instance ID is passed with each fork
+ * request as well.
+ * <p/>
+ * Requires the server to keep the state of finished processes, i.e. the seed
+ * process must not be removed by the server's process cleanup.
+ */
+public class ProjectPayloads {
+
+    static final String SEED_FLOW = "testcontainersConcordSeed";
+    static final String SEED_FILE = "concord/testcontainers-seed.concord.yml";
+
+    private static final String SEED_YML = "flows:\n" +
+            "  " + SEED_FLOW + ":\n" +
+            "    - log: \"Payload deployed\"\n";
+
+    private static final String DEFAULT_ENTRY_POINT = "default";
+
+    // keys that are applied to each process instead of the seed process
+    private static final Set<String> PER_PROCESS_KEYS = Set.of("entryPoint", "out", "parentInstanceId", "tags");
+
+    private static final ConcurrentMap<String, UUID> DEPLOYED = new ConcurrentHashMap<>();
+
+    private final ApiClient client;
+    private final ProcessTimelineRecorder timeline;
+    private final String orgName;
+    private final String projectName;
+
+    private volatile boolean projectCreated;
+
+    public ProjectPayloads(ApiClient client, String orgName, String projectName) {
+        this(client, null, orgName, projectName);
+    }
+
+    /**
+     * @param timeline if not {@code null}, the started processes are attached to the recorder.
+     */
+    public ProjectPayloads(ApiClient client, ProcessTimelineRecorder timeline, String orgName, String projectName) {
+        this.client = client;
+        this.timeline = timeline;
+        this.orgName = orgName;
+        this.projectName = projectName;
+    }
+
+    /**
+     * Deploys the payload into the project, unless the same payload was deployed
+     * already, and returns a handle to start new processes.
+     */
+    public Deployment deploy(Payload payload) throws ApiException {
+        Map<String, Object> params = payload.parameters();
+
+        Map<String, Object> arguments = new LinkedHashMap<>();
+        Map<String, Object> seed = new HashMap<>();
+        for (Map.Entry<String, Object> e : params.entrySet()) {
+            String k = e.getKey();
+            if (k.startsWith("arguments.")) {
+                arguments.put(k.substring("arguments.".length()), e.getValue());
+            } else if (!PER_PROCESS_KEYS.contains(k)) {
+                seed.put(k, e.getValue());
+            }
+        }
+
+        String entryPoint = (String) params.getOrDefault("entryPoint", DEFAULT_ENTRY_POINT);
+
+        // applied to each fork, the seed doesn't need them
+        Map<String, Object> perProcess = new HashMap<>();
+        List<String> tags = payload.allTags();
+        if (!tags.isEmpty()) {
+            perProcess.put("tags", List.copyOf(tags));
+        }
+        Object out = params.get("out");
+        if (out instanceof String[]) {
+            perProcess.put("out", List.of((String[]) out));
+        }
+        Object parentInstanceId = params.get("parentInstanceId");
+        if (parentInstanceId != null) {
+            perProcess.put("parentInstanceId", parentInstanceId);
+        }
+
+        String key = fingerprint(orgName, projectName, seed);
+        UUID seedId = DEPLOYED.get(key);
+        if (seedId == null || !isAvailable(seedId)) {
+            seedId = startSeed(seed);
+            DEPLOYED.put(key, seedId);
+        }
+
+        return new Deployment(client, timeline, key, seedId, entryPoint, arguments, perProcess);
+    }
+
+    private UUID startSeed(Map<String, Object> seed) throws ApiException {
+        if (!projectCreated) {
+            new Organizations(client).create(orgName);
+            new Projects(client).create(orgName, projectName);
+            projectCreated = true;
+        }
+
+        Payload p = new Payload();
+        seed.forEach(p::parameter);
+        p.org(orgName)
+                .project(projectName)
+                .entryPoint(SEED_FLOW)
+                .file(SEED_FILE, SEED_YML.getBytes(UTF_8));
+
+        ConcordProcess proc = new Processes(client).start(p);
+        proc.expectStatus(StatusEnum.FINISHED);
+        return proc.instanceId();
+    }
+
+    private boolean isAvailable(UUID seedId) throws ApiException {
+        try {
+            ProcessEntry e = new ProcessV2Api(client).getProcess(seedId, Collections.emptySet());
+            return e != null && e.getStatus() == StatusEnum.FINISHED;
+        } catch (ApiException e) {
+            // removed or deployed into a different server
+            if (e.getCode() == 404) {
+                return false;
+            }
+            throw e;
+        }
+    }
+
+    static String fingerprint(String orgName, String projectName, Map<String, Object> seed) {
+        Hasher h = Hashing.murmur3_128().newHasher()
+                .putString(orgName, UTF_8)
+                .putString(projectName, UTF_8);
+
+        try (OutputStream out = Funnels.asOutputStream(h)) {
+            for (String k : new TreeSet<>(seed.keySet())) {
+                h.putString(k, UTF_8);
+
+                Object v = seed.get(k);
+                if (v instanceof PayloadArchiveCache.Archive) {
+                    h.putString(((PayloadArchiveCache.Archive) v).key(), UTF_8);
+                } else if (v instanceof PayloadPart) {
+                    try (InputStream in = ((PayloadPart) v).open()) {
+                        in.transferTo(out);
+                    }
+                } else if (v instanceof byte[]) {
+                    h.putBytes((byte[]) v);
+                } else if (v instanceof Object[]) {
+                    h.putString(Arrays.deepToString((Object[]) v), UTF_8);
+                } else {
+                    h.putString(String.valueOf(v), UTF_8);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error while calculating the payload's fingerprint", e);
+        }
+
+        return h.hash().toString();
+    }
+
+    /**
+     * A payload deployed into a project.
+     */
+    public static final class Deployment {
+
+        private final ApiClient client;
+        private final ProcessTimelineRecorder timeline;
+        private final String key;
+        private final UUID seedInstanceId;
+        private final String entryPoint;
+        private final Map<String, Object> arguments;
+        private final Map<String, Object> perProcess;
+
+        private Deployment(ApiClient client, ProcessTimelineRecorder timeline, String key, UUID seedInstanceId,
+                           String entryPoint, Map<String, Object> arguments, Map<String, Object> perProcess) {
+            this.client = client;
+            this.timeline = timeline;
+            this.key = key;
+            this.seedInstanceId = seedInstanceId;
+            this.entryPoint = entryPoint;
+            this.arguments = arguments;
+            this.perProcess = perProcess;
+        }
+
+        /**
+         * Returns the payload's fingerprint.
+         */
+        public String key() {
+            return key;
+        }
+
+        /**
+         * Returns the ID of the process that received the payload.
+         */
+        public UUID seedInstanceId() {
+            return seedInstanceId;
+        }
+
+        /**
+         * Starts a new process using the payload's entry point and arguments.
+         */
+        public ConcordProcess start() throws ApiException {
+            return start(entryPoint, Collections.emptyMap());
+        }
+
+        /**
+         * Starts a new process using the payload's entry point. The specified
+         * arguments override the payload's arguments.
+         */
+        public ConcordProcess start(Map<String, Object> args) throws ApiException {
+            return start(entryPoint, args);
+        }
+
+        /**
+         * Starts a new process using the specified entry point. The specified
+         * arguments override the payload's arguments.
+         */
+        public ConcordProcess start(String entryPoint, Map<String, Object> args) throws ApiException {
+            Map<String, Object> allArgs = new LinkedHashMap<>(arguments);
+            allArgs.putAll(args);
+
+            Map<String, Object> req = new HashMap<>(perProcess);
+            req.put("entryPoint", entryPoint);
+            req.put("arguments", allArgs);
+
+            @SuppressWarnings("unchecked")
+            List<String> out = (List<String>) perProcess.get("out");
+
+            ProcessApi api = new ProcessApi(client);
+            StartProcessResponse spr = ConcordMetrics.apiCall(ConcordMetrics.current(), () -> api.fork(seedInstanceId, req, false, out));
+            ConcordProcess p = new ConcordProcess(client, spr.getInstanceId());
+            return timeline != null ? timeline.attach(p) : p;
+        }
+    }
+}
@@ -39,4 +39,19 @@ public class Projects {
 
         return projectApi.createOrUpdateProject(orgName, projectEntry);
     }
+
+    public GenericOperationResult delete(String orgName, String projectName) throws ApiException {
+        return projectApi.deleteProject(orgName, projectName);
+    }
+
+    public boolean isExists(String orgName, String projectName) throws ApiException {
+        try {
+            return projectApi.getProject(orgName, projectName) != null;
+        } catch (ApiException e) {
+            if (e.getCode() == 404) {
+                return false;
+            }
+            throw e;
+        }
+    }
 }
@@ -0,0 +1,332 @@
+package ca.ibodrov.concord.testcontainers;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2020 Ivan Bodrov
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import java.util.regex.Pattern;
+
+/**
+ * Extracts literal substrings that must be present in any input matching
+ * a regular expression. Used to skip the regex evaluation for lines that
+ * can't possibly match.
+ * <p/>
+ * The extraction is conservative: when in doubt (alternations, inline flags,
+ * case-insensitive patterns, etc.) no literal is returned.
+ */
+final class RegexLiterals {
+
+    private static final int UNSUPPORTED_FLAGS = Pattern.CASE_INSENSITIVE | Pattern.COMMENTS | Pattern.CANON_EQ;
+
+    /**
+     * Returns the longest literal required by the pattern or {@code null}
+     * if there's no such literal (or the pattern is too complex).
+     */
+    static String requiredLiteral(Pattern pattern) {
+        int flags = pattern.flags();
+        if ((flags & Pattern.LITERAL) != 0) {
+            return (flags & UNSUPPORTED_FLAGS) == 0 && !pattern.pattern().isEmpty() ? pattern.pattern() : null;
+        }
+
+        if ((flags & UNSUPPORTED_FLAGS) != 0) {
+            return null;
+        }
+
+        String s = pattern.pattern();
+        int n = s.length();
+
+        StringBuilder best = new StringBuilder();
+        StringBuilder run = new StringBuilder();
+
+        int i = 0;
+        while (i < n) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '\\': {
+                    if (i + 1 >= n) {
+                        return null;
+                    }
+
+                    char d = s.charAt(i + 1);
+                    if (d == 'Q') {
+                        int end = s.indexOf("\\E", i + 2);
+                        if (end < 0) {
+                            end = n;
+                        }
+                        run.append(s, i + 2, end);
+                        i = Math.min(n, end + 2);
+                    } else if (Character.isLetterOrDigit(d)) {
+                        // character classes, anchors, back references, etc
+                        endRun(run, best);
+                        i = skipEscape(s, i + 1);
+                    } else {
+                        run.append(d);
+                        i += 2;
+                    }
+                    break;
+                }
+                case '[': {
+                    endRun(run, best);
+                    i = skipClass(s, i);
+                    if (i < 0) {
+                        return null;
+                    }
+                    break;
+                }
+                case '(': {
+                    if (i + 2 < n && s.charAt(i + 1) == '?' && (Character.isLetter(s.charAt(i + 2)) || s.charAt(i + 2) == '-')) {
+                        // inline flags, e.g. (?i)
+                        return null;
+                    }
+                    endRun(run, best);
+                    i = skipGroup(s, i);
+                    if (i < 0) {
+                        return null;
+                    }
+                    break;
+                }
+                case '|':
+                case ')': {
+                    return null;
+                }
+                case '*':
+                case '?': {
+                    // the previous character is optional
+                    removeLast(run);
+                    endRun(run, best);
+                    i++;
+                    break;
+                }
+                case '{': {
+                    removeLast(run);
+                    endRun(run, best);
+                    int end = s.indexOf('}', i);
+                    if (end < 0) {
+                        return null;
+                    }
+                    i = end + 1;
+                    break;
+                }
+                case '+':
+                case '.':
+                case '^':
+                case '$': {
+                    endRun(run, best);
+                    i++;
+                    break;
+                }
+                default: {
+                    run.append(c);
+                    i++;
+                }
+            }
+        }
+
+        endRun(run, best);
+        return best.length() > 0 ? best.toString() : null;
+    }
+
+    /**
+     * Returns {@code true} if {@code s} contains {@code literal}.
+     */
+    static boolean contains(CharSequence s, String literal) {
+        int len = literal.length();
+        int max = s.length() - len;
+        if (max < 0) {
+            return false;
+        }
+
+        char first = literal.charAt(0);
+        for (int i = 0; i <= max; i++) {
+            if (s.charAt(i) != first) {
+                continue;
+            }
+
+            int j = 1;
+            while (j < len && s.charAt(i + j) == literal.charAt(j)) {
+                j++;
+            }
+
+            if (j == len) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private static void endRun(StringBuilder run, StringBuilder best) {
+        if (run.length() > best.length()) {
+            best.setLength(0);
+            best.append(run);
+        }
+        run.setLength(0);
+    }
+
+    private static void removeLast(StringBuilder run) {
+        int n = run.length();
+        if (n == 0) {
+            return;
+        }
+
+        // don't split surrogate pairs, the quantifier applies to the whole code point
+        if (n > 1 && Character.isLowSurrogate(run.charAt(n - 1)) && Character.isHighSurrogate(run.charAt(n - 2))) {
+            run.setLength(n - 2);
+        } else {
+            run.setLength(n - 1);
+        }
+    }
+
+    /**
+     * @param i position of the escaped character (right after the backslash)
+     * @return position after the escape sequence
+     */
+    private static int skipEscape(String s, int i) {
+        int n = s.length();
+        char d = s.charAt(i);
+        i++;
+
+        if ((d == 'p' || d == 'P' || d == 'x' || d == 'N') && i < n && s.charAt(i) == '{') {
+            int end = s.indexOf('}', i);
+            return end < 0 ? n : end + 1;
+        }
+
+        if (d == 'k' && i < n && s.charAt(i) == '<') {
+            int end = s.indexOf('>', i);
+            return end < 0 ? n : end + 1;
+        }
+
+        int max;
+        switch (d) {
+            case 'x':
+                max = 2;
+                break;
+            case 'u':
+                max = 4;
+                break;
+            case 'c':
+            case 'p':
+            case 'P':
+                max = 1;
+                break;
+            case '0':
+                max = 3;
+                break;
+            default:
+                // back references, e.g. \12
+                max = Character.isDigit(d) ? Integer.MAX_VALUE : 0;
+        }
+
+        int count = 0;
+        while (count < max && i < n && (d == 'c' || d == 'p' || d == 'P' || Character.isLetterOrDigit(s.charAt(i)))) {
+            i++;
+            count++;
+        }
+
+        return i;
+    }
+
+    /**
+     * @return position after the closing bracket or -1 if the class is not closed
+     */
+    private static int skipClass(String s, int i) {
+        int n = s.length();
+        int depth = 0;
+
+        while (i < n) {
+            char c = s.charAt(i);
+            if (c == '\\') {
+                i += 2;
+                continue;
+            }
+
+            if (c == '[') {
+                depth++;
+                i++;
+                if (i < n && s.charAt(i) == '^') {
+                    i++;
+                }
+                if (i < n && s.charAt(i) == ']') {
+                    // a literal ']' right after the opening bracket
+                    i++;
+                }
+                continue;
+            }
+
+            if (c == ']') {
+                depth--;
+                if (depth == 0) {
+                    return i + 1;
+                }
+            }
+
+            i++;
+        }
+
+        return -1;
+    }
+
+    /**
+     * @return position after the closing parenthesis or -1 if the group is not closed
+     */
+    private static int skipGroup(String s, int i) {
+        int n = s.length();
+        int depth = 0;
+
+        while (i < n) {
+            char c = s.charAt(i);
+            if (c == '\\') {
+                if (i + 1 < n && s.charAt(i + 1) == 'Q') {
+                    int end = s.indexOf("\\E", i + 2);
+                    if (end < 0) {
+                        return -1;
+                    }
+                    i = end + 2;
+                } else {
+                    i += 2;
+                }
+                continue;
+            }
+
+            if (c == '[') {
+                i = skipClass(s, i);
+                if (i < 0) {
+                    return -1;
+                }
+                continue;
+            }
+
+            if (c == '(') {
+                depth++;
+            } else if (c == ')') {
+                depth--;
+                if (depth == 0) {
+                    return i + 1;
+                }
+            }
+
+            i++;
+        }
+
+        return -1;
+    }
+
+    private RegexLiterals() {
+    }
+}
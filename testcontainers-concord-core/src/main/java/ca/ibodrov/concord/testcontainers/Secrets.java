@@ -20,7 +20,6 @@ package ca.ibodrov.concord.testcontainers;
  * =====
  */
 
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.walmartlabs.concord.client2.*;
 
 import java.util.HashMap;
@@ -29,9 +28,18 @@ import java.util.Map;
 public class Secrets {
 
     private final ApiClient apiClient;
+    private final KeyPairPool keyPairPool;
 
     public Secrets(ApiClient apiClient) {
+        this(apiClient, null);
+    }
+
+    /**
+     * @param keyPairPool if not {@code null}, key pairs are taken from the pool.
+     */
+    public Secrets(ApiClient apiClient, KeyPairPool keyPairPool) {
         this.apiClient = apiClient;
+        this.keyPairPool = keyPairPool;
     }
 
     /**
@@ -57,13 +65,25 @@ public class Secrets {
         return api.createSecret(query.org(), m);
     }
 
+    /**
+     * Creates a new key pair secret. Uses the {@link KeyPairPool}, if configured.
+     */
     public SecretOperationResponse generateKeyPair(NewSecretQuery query) throws ApiException {
+        if (keyPairPool != null) {
+            return keyPairPool.take(query);
+        }
+
         Map<String, Object> m = serialize(query);
         m.put("type", SecretEntryV2.TypeEnum.KEY_PAIR.toString());
         SecretsApi api = new SecretsApi(apiClient);
         return api.createSecret(query.org(), m);
     }
 
+    public GenericOperationResult delete(String orgName, String secretName) throws ApiException {
+        SecretsApi api = new SecretsApi(apiClient);
+        return api.delete(orgName, secretName);
+    }
+
     public boolean isExists(String orgName, String secretName) throws ApiException {
         SecretsV2Api secretsApi = new SecretsV2Api(apiClient);
         try {
@@ -77,9 +97,8 @@ public class Secrets {
     }
 
     @SuppressWarnings("unchecked")
-    private static Map<String, Object> serialize(NewSecretQuery query) {
-        ObjectMapper om = new ObjectMapper();
-        Map<String, Object> m = om.convertValue(query, Map.class);
+    static Map<String, Object> serialize(NewSecretQuery query) {
+        Map<String, Object> m = ObjectMappers.get().convertValue(query, Map.class);
         // make it mutable
         return new HashMap<>(m);
     }
@@ -21,8 +21,6 @@ package ca.ibodrov.concord.testcontainers;
  */
 
 import com.walmartlabs.concord.client2.*;
-import com.walmartlabs.concord.common.IOUtils;
-import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
 
 import java.io.*;
 import java.net.ServerSocket;
@@ -36,12 +34,13 @@ public final class Utils {
 
     private static final char[] RANDOM_CHARS = "abcdef0123456789".toCharArray();
 
+    /**
+     * Archives the specified directory in memory.
+     *
+     * @see PayloadArchiver
+     */
     public static byte[] archive(URI uri) throws IOException {
-        ByteArrayOutputStream out = new ByteArrayOutputStream();
-        try (ZipArchiveOutputStream zip = new ZipArchiveOutputStream(out)) {
-            IOUtils.zip(zip, Paths.get(uri));
-        }
-        return out.toByteArray();
+        return new PayloadArchiver().toByteArray(Paths.get(uri));
     }
 
     public static int reservePort(int start) {
@@ -72,19 +71,13 @@ public final class Utils {
         return false;
     }
 
+    /**
+     * Returns all lines matching the specified pattern (regex).
+     *
+     * @see LogGrep
+     */
     public static List<String> grep(String pattern, byte[] ab) {
-        List<String> result = new ArrayList<>();
-        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new ByteArrayInputStream(ab)))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                if (line.matches(pattern)) {
-                    result.add(line);
-                }
-            }
-        } catch (IOException e) {
-            throw new RuntimeException(e);
-        }
-        return result;
+        return LogGrep.compile(pattern).grep(ab);
     }
 
     public static String randomString() {
@@ -0,0 +1,90 @@
+package ca.ibodrov.concord.testcontainers;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2020 Ivan Bodrov
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.*;
+
+class AttachmentBundleTest {
+
+    @Test
+    void testRead() throws Exception {
+        byte[] large = new byte[256 * 1024];
+        for (int i = 0; i < large.length; i++) {
+            large[i] = (byte) i;
+        }
+
+        ByteArrayOutputStream zip = new ByteArrayOutputStream();
+        try (ZipOutputStream out = new ZipOutputStream(zip)) {
+            put(out, "concord.yml", "flows: {}".getBytes(UTF_8));
+            put(out, "_attachments/", null);
+            put(out, "_attachments/out.json", "{\"x\":123}".getBytes(UTF_8));
+            put(out, "_attachments/empty.txt", new byte[0]);
+            put(out, "_attachments/custom/large.bin", large);
+        }
+
+        AttachmentBundle bundle = AttachmentBundle.read(new ByteArrayInputStream(zip.toByteArray()));
+
+        assertEquals(Set.of("out.json", "empty.txt", "custom/large.bin"), bundle.names());
+        assertFalse(bundle.contains("concord.yml"));
+        assertNull(bundle.get("concord.yml"));
+        assertEquals(-1, bundle.size("concord.yml"));
+
+        assertEquals("{\"x\":123}", new String(bundle.get("out.json"), UTF_8));
+        assertEquals(0, bundle.get("empty.txt").length);
+        assertArrayEquals(large, bundle.get("custom/large.bin"));
+        assertEquals(large.length, bundle.size("custom/large.bin"));
+
+        ByteBuffer b = bundle.buffer("custom/large.bin");
+        assertTrue(b.isReadOnly());
+        assertEquals((byte) 100, b.get(100));
+
+        try (InputStream in = bundle.open("custom/large.bin")) {
+            assertEquals(10, in.skip(10));
+            assertEquals(10, in.read());
+            assertArrayEquals(Arrays.copyOfRange(large, 11, large.length), in.readAllBytes());
+            assertEquals(-1, in.read());
+        }
+
+        // reads are independent
+        assertEquals("{\"x\":123}", new String(bundle.get("out.json"), UTF_8));
+    }
+
+    private static void put(ZipOutputStream out, String name, byte[] data) throws IOException {
+        out.putNextEntry(new ZipEntry(name));
+        if (data != null) {
+            out.write(data);
+        }
+        out.closeEntry();
+    }
+}
@@ -0,0 +1,95 @@
+package ca.ibodrov.concord.testcontainers;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2020 Ivan Bodrov
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AttachmentCacheTest {
+
+    @Test
+    void testEviction() {
+        AttachmentCache cache = new AttachmentCache(100);
+        UUID id = UUID.randomUUID();
+
+        assertTrue(cache.put(id, "a", new byte[20]));
+        assertTrue(cache.put(id, "b", new byte[20]));
+        assertTrue(cache.put(id, "c", new byte[20]));
+        assertTrue(cache.put(id, "d", new byte[20]));
+
+        // "a" becomes the most recently used
+        assertNotNull(cache.get(id, "a"));
+
+        assertTrue(cache.put(id, "e", new byte[25]));
+        assertNull(cache.get(id, "b"));
+        assertNotNull(cache.get(id, "a"));
+        assertNotNull(cache.get(id, "e"));
+
+        AttachmentCache.Stats stats = cache.stats();
+        assertEquals(4, stats.entries());
+        assertEquals(85, stats.size());
+        assertEquals(3, stats.hits());
+        assertEquals(1, stats.misses());
+    }
+
+    @Test
+    void testLargeAttachments() {
+        AttachmentCache cache = new AttachmentCache(100);
+        UUID id = UUID.randomUUID();
+
+        assertFalse(cache.put(id, "large", new byte[26]));
+        assertNull(cache.get(id, "large"));
+        assertEquals(0, cache.stats().size());
+    }
+
+    @Test
+    void testKeys() {
+        AttachmentCache cache = new AttachmentCache(100);
+        UUID a = UUID.randomUUID();
+        UUID b = UUID.randomUUID();
+
+        cache.put(a, "out.json", new byte[]{1});
+        cache.put(b, "out.json", new byte[]{2});
+
+        assertEquals(1, cache.get(a, "out.json")[0]);
+        assertEquals(2, cache.get(b, "out.json")[0]);
+        assertNull(cache.get(a, "other.json"));
+    }
+
+    @Test
+    void testCopies() {
+        AttachmentCache cache = new AttachmentCache(100);
+        UUID id = UUID.randomUUID();
+
+        byte[] data = {1, 2, 3};
+        cache.put(id, "out.json", data);
+        data[0] = 0;
+
+        // neither the original nor the returned arrays affect the cached data
+        byte[] ab = cache.get(id, "out.json");
+        assertEquals(1, ab[0]);
+        ab[0] = 0;
+        assertEquals(1, cache.get(id, "out.json")[0]);
+    }
+}
@@ -0,0 +1,79 @@
+package ca.ibodrov.concord.testcontainers;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2020 Ivan Bodrov
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConcordMetricsTest {
+
+    @Test
+    void testApiCalls() throws Exception {
+        ConcordMetrics m = new ConcordMetrics();
+
+        assertEquals("ok", ConcordMetrics.apiCall(m, () -> "ok"));
+        assertEquals("ok", ConcordMetrics.apiCall(null, () -> "ok"));
+        assertEquals(1, m.apiCalls());
+
+        try (InputStream in = ConcordMetrics.received(m, new ByteArrayInputStream(new byte[100]))) {
+            assertEquals(100, in.readAllBytes().length);
+        }
+        assertEquals(100, m.bytesReceived());
+        assertEquals(0, m.bytesSent());
+    }
+
+    @Test
+    void testBind() {
+        ConcordMetrics m = new ConcordMetrics();
+        ConcordMetrics.bind(m);
+        try {
+            assertSame(m, ConcordMetrics.current());
+        } finally {
+            ConcordMetrics.unbind();
+        }
+        assertNull(ConcordMetrics.current());
+    }
+
+    @Test
+    void testAdd() {
+        ConcordMetrics a = new ConcordMetrics();
+        a.recordStartup(2_000_000);
+        a.recordSent(10);
+
+        ConcordMetrics b = new ConcordMetrics();
+        b.recordStartup(3_000_000);
+        b.recordWait(1_000_000);
+        b.recordReceived(5);
+
+        a.add(b);
+
+        Map<String, String> m = a.toMap();
+        assertEquals("5", m.get("concord.startupMs"));
+        assertEquals("1", m.get("concord.waitMs"));
+        assertEquals("10", m.get("concord.bytesSent"));
+        assertEquals("5", m.get("concord.bytesReceived"));
+    }
+}
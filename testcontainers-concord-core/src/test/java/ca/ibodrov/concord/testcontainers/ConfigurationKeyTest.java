@@ -0,0 +1,56 @@
+package ca.ibodrov.concord.testcontainers;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2020 Ivan Bodrov
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import org.junit.jupiter.api.Test;
+
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConfigurationKeyTest {
+
+    @Test
+    void testReferences() {
+        Supplier<String> a = () -> "a";
+        Supplier<String> b = () -> "a";
+
+        assertEquals(new ConfigurationKey().value("x", 1).reference("s", a),
+                new ConfigurationKey().value("x", 1).reference("s", a));
+        assertEquals(new ConfigurationKey().value("x", 1).reference("s", a).hashCode(),
+                new ConfigurationKey().value("x", 1).reference("s", a).hashCode());
+
+        // compared by identity, not by toString() or equals()
+        assertNotEquals(new ConfigurationKey().reference("s", a), new ConfigurationKey().reference("s", b));
+        assertNotEquals(new ConfigurationKey().reference("s", a), new ConfigurationKey().reference("s", null));
+
+        assertEquals(new ConfigurationKey().value("x", 1).reference("s", a).withoutReferences(),
+                new ConfigurationKey().value("x", 1).reference("s", b).withoutReferences());
+    }
+
+    @Test
+    void testSecrets() {
+        ConfigurationKey k = new ConfigurationKey().secret("apiToken", "mySecretToken");
+        assertFalse(k.toString().contains("mySecretToken"), k.toString());
+        assertEquals(k, new ConfigurationKey().secret("apiToken", "mySecretToken"));
+        assertNotEquals(k, new ConfigurationKey().secret("apiToken", "anotherToken"));
+    }
+}
@@ -0,0 +1,146 @@
+package ca.ibodrov.concord.testcontainers;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2020 Ivan Bodrov
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.testcontainers.containers.output.OutputFrame;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ContainerLogBufferTest {
+
+    @Test
+    void testPartialFrames() {
+        ContainerLogBuffer buf = new ContainerLogBuffer(1024);
+
+        buf.accept(new OutputFrame(OutputFrame.OutputType.STDOUT, "Hello, ".getBytes(UTF_8)));
+        buf.accept(new OutputFrame(OutputFrame.OutputType.STDOUT, "Concord!\r\nSecond".getBytes(UTF_8)));
+        assertEquals(List.of("Hello, Concord!"), buf.lines());
+
+        buf.accept(new OutputFrame(OutputFrame.OutputType.STDOUT, " line\nThird".getBytes(UTF_8)));
+        buf.accept(OutputFrame.END);
+        assertEquals(List.of("Hello, Concord!", "Second line", "Third"), buf.lines());
+    }
+
+    @Test
+    void testInterleavedStreams() {
+        ContainerLogBuffer buf = new ContainerLogBuffer(1024);
+
+        buf.accept(new OutputFrame(OutputFrame.OutputType.STDOUT, "out ".getBytes(UTF_8)));
+        buf.accept(new OutputFrame(OutputFrame.OutputType.STDERR, "err ".getBytes(UTF_8)));
+        buf.accept(new OutputFrame(OutputFrame.OutputType.STDOUT, "line\n".getBytes(UTF_8)));
+        buf.accept(new OutputFrame(OutputFrame.OutputType.STDERR, "line\n".getBytes(UTF_8)));
+        assertEquals(List.of("out line", "err line"), buf.lines());
+    }
+
+    @Test
+    void testEviction() {
+        // 10 bytes per line (including the line number), 4 lines max
+        ContainerLogBuffer buf = new ContainerLogBuffer(45);
+        for (int i = 0; i < 100; i++) {
+            append(buf, String.format("line %05d", i));
+        }
+
+        assertEquals(4, buf.lineCount());
+        assertEquals(96, buf.evictedLineCount());
+        assertEquals(List.of("line 00096", "line 00097", "line 00098", "line 00099"), buf.lines());
+        assertEquals(List.of("line 00098", "line 00099"), buf.tail(2));
+        assertEquals(List.of("line 00097"), buf.grep(".*0097"));
+    }
+
+    @Test
+    void testLongLineIsTruncated() {
+        ContainerLogBuffer buf = new ContainerLogBuffer(8);
+        append(buf, "short");
+        append(buf, "a very long line");
+
+        assertEquals(List.of("a very l"), buf.lines());
+    }
+
+    @Test
+    void testSince() {
+        MutableClock clock = new MutableClock();
+        ContainerLogBuffer buf = new ContainerLogBuffer(1024, clock);
+
+        for (int i = 0; i < 10; i++) {
+            clock.millis = i * 1000;
+            append(buf, "line " + i);
+        }
+
+        assertEquals(List.of("line 7", "line 8", "line 9"), buf.since(Instant.ofEpochMilli(6500)));
+        assertEquals(10, buf.since(Instant.EPOCH).size());
+        assertEquals(List.of(), buf.since(Instant.ofEpochMilli(10_000)));
+    }
+
+    @Test
+    void testDump(@TempDir Path tempDir) throws Exception {
+        ContainerLogBuffer buf = new ContainerLogBuffer(32);
+        for (int i = 0; i < 10; i++) {
+            append(buf, "line " + i + " ✓");
+        }
+
+        Path dst = tempDir.resolve("server.log");
+        buf.dumpTo(dst);
+
+        assertEquals(buf.lines(), Files.readAllLines(dst, UTF_8));
+        assertEquals(List.of("line 9 ✓"), buf.grep(".*9 ✓"));
+    }
+
+    private static void append(ContainerLogBuffer buf, String line) {
+        byte[] ab = (line + "\n").getBytes(UTF_8);
+        buf.append(ab, 0, ab.length);
+    }
+
+    private static final class MutableClock extends Clock {
+
+        private long millis;
+
+        @Override
+        public long millis() {
+            return millis;
+        }
+
+        @Override
+        public Instant instant() {
+            return Instant.ofEpochMilli(millis);
+        }
+
+        @Override
+        public ZoneOffset getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package ca.ibodrov.concord.testcontainers;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2020 Ivan Bodrov
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static ca.ibodrov.concord.testcontainers.Utils.randomString;
+import static org.junit.jupiter.api.Assertions.*;
+
+class DbSnapshotsTest {
+
+    @Test
+    void testVersion() throws Exception {
+        String name = "test-" + randomString();
+        Path dump = DbSnapshots.file(name);
+        Path version = DbSnapshots.versionFile(name);
+        Files.createDirectories(dump.getParent());
+
+        try {
+            Files.write(dump, new byte[]{1});
+            // dumps without the version are not restored
+            assertFalse(DbSnapshots.exists(name, "db=postgres:10,server=concord-server:1"));
+
+            Files.writeString(version, "db=postgres:10,server=concord-server:1");
+            assertTrue(DbSnapshots.exists(name, "db=postgres:10,server=concord-server:1"));
+            assertFalse(DbSnapshots.exists(name, "db=postgres:10,server=concord-server:2"));
+
+            // checked before touching the container
+            assertThrows(IllegalStateException.class, () -> DbSnapshots.restore(null, name, "db=postgres:10,server=concord-server:2"));
+        } finally {
+            Files.deleteIfExists(dump);
+            Files.deleteIfExists(version);
+        }
+    }
+
+    @Test
+    void testNotSupported() {
+        ConcordEnvironment env = new RemoteConcordEnvironment(new Concord<>()
+                .mode(Concord.Mode.REMOTE)
+                .apiBaseUrl("http://localhost:8001"));
+
+        assertFalse(env.hasSnapshot("any"));
+        assertThrows(UnsupportedOperationException.class, () -> env.restore("any"));
+    }
+}
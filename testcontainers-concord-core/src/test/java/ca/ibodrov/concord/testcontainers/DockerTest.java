@@ -26,7 +26,11 @@ import com.walmartlabs.concord.client2.ProcessListFilter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.time.Duration;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 
 import org.junit.jupiter.api.AfterAll;
@@ -36,6 +40,9 @@ import org.junit.jupiter.api.Test;
 import static ca.ibodrov.concord.testcontainers.Utils.randomString;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class DockerTest {
 
@@ -172,4 +179,188 @@ class DockerTest {
         p.assertLog(".*Hello, Concord!.*");
     }
 
+    @Test
+    void testAwaitLog() throws Exception {
+        String yml = """
+                flows:
+                  default:
+                    - log: Milestone 1
+                    - log: Milestone 2
+                """;
+
+        ConcordProcess p = concord.processes().start(new Payload().concordYml(yml));
+
+        CompletableFuture<String> milestone2 = p.awaitLogAsync(".*Milestone 2.*", Duration.ofMinutes(1));
+        assertTrue(p.awaitLog(".*Milestone 1.*", Duration.ofMinutes(1)).endsWith("Milestone 1"));
+        assertTrue(milestone2.get(1, TimeUnit.MINUTES).endsWith("Milestone 2"));
+
+        p.waitForStatus(ProcessEntry.StatusEnum.FINISHED);
+        assertThrows(IllegalStateException.class, () -> p.awaitLog(".*Milestone 3.*", Duration.ofMinutes(1)));
+    }
+
+    @Test
+    void testDeployedPayload() throws Exception {
+        String orgName = "org_" + randomString();
+        String projectName = "project_" + randomString();
+
+        String yml = """
+                flows:
+                  default:
+                    - log: Hello, ${name}!
+                """;
+
+        Payload payload = new Payload()
+                .concordYml(yml)
+                .arg("name", "Concord");
+
+        ProjectPayloads.Deployment d1 = concord.processes().deploy(orgName, projectName, payload);
+        ProjectPayloads.Deployment d2 = concord.processes().deploy(orgName, projectName, payload.arg("name", "again"));
+        assertEquals(d1.seedInstanceId(), d2.seedInstanceId());
+
+        ConcordProcess p1 = d1.start();
+        p1.waitForStatus(ProcessEntry.StatusEnum.FINISHED);
+        p1.assertLog(".*Hello, Concord!.*");
+
+        ConcordProcess p2 = d2.start(Map.of("name", "fork"));
+        p2.waitForStatus(ProcessEntry.StatusEnum.FINISHED);
+        p2.assertLog(".*Hello, fork!.*");
+    }
+
+    @Test
+    void testDeployedPayloadTagsAndOut() throws Exception {
+        String orgName = "org_" + randomString();
+        String projectName = "project_" + randomString();
+
+        String yml = """
+                flows:
+                  default:
+                    - set:
+                        result: "Hello, ${name}!"
+                """;
+
+        Payload payload = new Payload()
+                .concordYml(yml)
+                .arg("name", "Concord")
+                .tag("deployed")
+                .out("result");
+
+        ConcordProcess p = concord.processes().deploy(orgName, projectName, payload).start();
+        ProcessEntry pe = p.expectStatus(ProcessEntry.StatusEnum.FINISHED);
+        assertEquals(List.of("deployed"), pe.getTags());
+        assertEquals("Hello, Concord!", p.getOutVariables().get("result"));
+    }
+
+    @Test
+    void testOutVariables() throws Exception {
+        String yml = """
+                flows:
+                  default:
+                    - set:
+                        name: "Concord"
+                        count: 3
+                        ignored: true
+                """;
+
+        Payload payload = new Payload()
+                .concordYml(yml)
+                .out("name", "count", "ignored");
+
+        ConcordProcess p = concord.processes().start(payload);
+        p.expectStatus(ProcessEntry.StatusEnum.FINISHED);
+
+        Out out = p.getOutVariables(Out.class);
+        assertEquals("Concord", out.name());
+        assertEquals(3, out.count());
+
+        // served from the cache
+        long hits = AttachmentCache.shared().stats().hits();
+        assertEquals("Concord", p.getOutVariables().get("name"));
+        assertTrue(AttachmentCache.shared().stats().hits() > hits);
+
+        assertTrue(p.attachments().names().contains("out.json"));
+    }
+
+    @Test
+    void testFetchAllAttachments() throws Exception {
+        Payload payload = new Payload()
+                .concordYml("flows:\n  default:\n    - set:\n        x: 123\n")
+                .out("x");
+
+        ConcordProcess p = concord.processes().start(payload);
+        p.expectStatus(ProcessEntry.StatusEnum.FINISHED);
+
+        AttachmentBundle bundle = p.attachments().fetchAll();
+        assertTrue(bundle.contains("out.json"));
+        assertEquals(123, p.getOutVariables().get("x"));
+    }
+
+    @Test
+    void testFixture() throws Exception {
+        String prefix = "tenant_" + randomString() + "_";
+
+        Fixture fixture = new Fixture().parallelism(4);
+        for (int i = 0; i < 3; i++) {
+            fixture.project(prefix + i, "app")
+                    .secret(prefix + i, "token", "secret".getBytes())
+                    .secret(prefix + i, "creds", "user", "pwd")
+                    .keyPair(prefix + i, "key");
+        }
+
+        try (Fixture.Handle h = fixture.apply(concord.apiClient())) {
+            // 3 orgs, 3 projects, 9 secrets
+            assertEquals(15, h.created().size());
+            assertTrue(concord.secrets().isExists(prefix + 2, "key"));
+
+            // idempotent
+            try (Fixture.Handle again = fixture.apply(concord.apiClient())) {
+                assertEquals(0, again.created().size());
+                assertEquals(15, again.existing());
+            }
+        }
+
+        assertFalse(concord.organizations().isExists(prefix + 0));
+    }
+
+    @Test
+    void testKeyPairPool() throws Exception {
+        String orgName = "org_" + randomString();
+        concord.organizations().create(orgName);
+
+        try (KeyPairPool pool = new KeyPairPool(concord.apiClient()).size(2).start()) {
+            long deadline = System.currentTimeMillis() + 60_000;
+            while (pool.stats().available() < 2 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(100);
+            }
+
+            Secrets secrets = new Secrets(concord.apiClient(), pool);
+            secrets.generateKeyPair(NewSecretQuery.builder()
+                    .org(orgName)
+                    .name("key")
+                    .build());
+
+            assertEquals(1, pool.stats().hits());
+            assertTrue(secrets.isExists(orgName, "key"));
+        }
+    }
+
+    @Test
+    void testSnapshot() throws Exception {
+        String before = "org_" + randomString();
+        String after = "org_" + randomString();
+        String name = "docker-test-" + randomString();
+
+        concord.organizations().create(before);
+        concord.environment().snapshot(name);
+        assertTrue(concord.environment().hasSnapshot(name));
+
+        concord.organizations().create(after);
+        concord.environment().restore(name);
+
+        // the API token is still valid
+        assertTrue(concord.organizations().isExists(before));
+        assertFalse(concord.organizations().isExists(after));
+    }
+
+    record Out(String name, int count) {
+    }
 }
@@ -0,0 +1,82 @@
+package ca.ibodrov.concord.testcontainers;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2020 Ivan Bodrov
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LatencyHistogramTest {
+
+    @Test
+    void testPercentiles() {
+        LatencyHistogram h = new LatencyHistogram();
+        for (int i = 1; i <= 1000; i++) {
+            h.record(Duration.ofMillis(i));
+        }
+
+        assertEquals(1000, h.count());
+        assertEquals(Duration.ofMillis(1), h.min());
+        assertEquals(Duration.ofMillis(1000), h.max());
+        assertEquals(500.5, h.mean().toNanos() / 1_000_000.0, 0.01);
+
+        assertClose(500, h.percentile(50));
+        assertClose(990, h.percentile(99));
+        assertClose(1000, h.percentile(100));
+        assertEquals(Duration.ofMillis(1), h.percentile(0));
+    }
+
+    @Test
+    void testAdd() {
+        LatencyHistogram a = new LatencyHistogram();
+        LatencyHistogram b = new LatencyHistogram();
+        a.record(Duration.ofMillis(10));
+        b.record(Duration.ofSeconds(10));
+
+        a.add(b);
+        assertEquals(2, a.count());
+        assertEquals(Duration.ofMillis(10), a.min());
+        assertEquals(Duration.ofSeconds(10), a.max());
+
+        a.reset();
+        assertEquals(0, a.count());
+        assertEquals(Duration.ZERO, a.percentile(99));
+    }
+
+    @Test
+    void testBuckets() {
+        long prev = -1;
+        for (long v : new long[]{0, 1, 63, 64, 65, 127, 128, 1000, 123_456_789, Long.MAX_VALUE}) {
+            int i = LatencyHistogram.index(v);
+            assertTrue(i >= prev, "index must be monotonic: " + v);
+            long mid = LatencyHistogram.midpoint(i);
+            assertTrue(Math.abs(mid - v) <= v / 32, v + " vs " + mid);
+            prev = i;
+        }
+    }
+
+    private static void assertClose(long expectedMillis, Duration actual) {
+        double error = Math.abs(actual.toMillis() - expectedMillis) / (double) expectedMillis;
+        assertTrue(error < 1.0 / 32, "expected ~" + expectedMillis + "ms, got " + actual.toMillis() + "ms");
+    }
+}
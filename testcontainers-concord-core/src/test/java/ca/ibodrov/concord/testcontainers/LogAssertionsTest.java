@@ -0,0 +1,82 @@
+package ca.ibodrov.concord.testcontainers;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2020 Ivan Bodrov
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.*;
+
+class LogAssertionsTest {
+
+    private static final byte[] LOG = ("" +
+            "12:00:00 [INFO ] Hello, Concord!\n" +
+            "12:00:01 [WARN ] Retrying (1)\n" +
+            "12:00:02 [WARN ] Retrying (2)\n" +
+            "12:00:03 [INFO ] done\n").getBytes(UTF_8);
+
+    @Test
+    void testSuccess() throws Exception {
+        LogAssertions.of(LOG)
+                .contains(".*Hello, Concord!.*")
+                .atLeast(".*Retrying \\(\\d\\).*", 2)
+                .exactly(".*\\[INFO \\].*", 2)
+                .absent(".*ERROR.*")
+                .contains("\\d+:\\d+:\\d+ .*done")
+                .verify();
+    }
+
+    @Test
+    void testAllFailuresAreReported() {
+        IllegalStateException e = assertThrows(IllegalStateException.class, () -> LogAssertions.of(LOG)
+                .contains(".*Hello, Concord!.*")
+                .atLeast(".*Retrying.*", 3)
+                .absent(".*WARN.*")
+                .contains(".*(foo|bar).*")
+                .verify());
+
+        String msg = e.getMessage();
+        assertTrue(msg.startsWith("Log assertions failed (3 of 4)"), msg);
+        assertTrue(msg.contains("expected at least 3 match(es) of '.*Retrying.*', found 2"), msg);
+        assertTrue(msg.contains("expected no matches of '.*WARN.*', found 2"), msg);
+        assertTrue(msg.contains("2: 12:00:01 [WARN ] Retrying (1)"), msg);
+        assertTrue(msg.contains("3: 12:00:02 [WARN ] Retrying (2)"), msg);
+        assertTrue(msg.contains("expected at least 1 match(es) of '.*(foo|bar).*', found 0"), msg);
+    }
+
+    @Test
+    void testLiteralMatcher() {
+        LiteralMatcher m = new LiteralMatcher(List.of("he", "she", "his", "hers", "Retrying"));
+
+        m.scan("ushers");
+        assertTrue(m.found(0));
+        assertTrue(m.found(1));
+        assertFalse(m.found(2));
+        assertTrue(m.found(3));
+        assertFalse(m.found(4));
+
+        m.scan("[WARN ] Retrying (1)");
+        assertFalse(m.found(0));
+        assertTrue(m.found(4));
+    }
+}
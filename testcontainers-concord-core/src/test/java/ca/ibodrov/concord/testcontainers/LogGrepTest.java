@@ -0,0 +1,88 @@
+package ca.ibodrov.concord.testcontainers;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2020 Ivan Bodrov
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LogGrepTest {
+
+    @Test
+    void testGrep() {
+        byte[] ab = "first\r\nHello, Concord!\nthird\nHello, again!".getBytes(UTF_8);
+
+        assertEquals(List.of("Hello, Concord!", "Hello, again!"), LogGrep.compile(".*Hello.*").grep(ab));
+        assertEquals(List.of("Hello, Concord!"), LogGrep.compile(".*Hello.*").grep(ab, 1));
+        assertEquals(List.of("first"), LogGrep.compile("first").grep(ab));
+        assertEquals(List.of(), LogGrep.compile("Hello").grep(ab));
+        assertEquals(Utils.grep(".*Hello.*", ab), LogGrep.compile(".*Hello.*").grep(ByteBuffer.wrap(ab), 10));
+    }
+
+    @Test
+    void testLinesSpanningReads() throws Exception {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 100_000; i++) {
+            sb.append("line ").append(i).append(" é€\n");
+        }
+        // a single line larger than the read buffer
+        sb.append("x".repeat(200_000)).append("END");
+        byte[] ab = sb.toString().getBytes(UTF_8);
+
+        LogGrep grep = LogGrep.compile("line \\d*7 é€");
+        assertEquals(10_000, grep.count(new ByteArrayInputStream(ab), Integer.MAX_VALUE));
+        assertEquals(3, grep.count(new ByteArrayInputStream(ab), 3));
+        assertEquals(List.of("line 99997 é€"), LogGrep.compile("line 99997.*").grep(new ByteArrayInputStream(ab), 10));
+        assertEquals(1, LogGrep.compile("x+END").count(new ByteArrayInputStream(ab), 10));
+    }
+
+    @Test
+    void testLinesStream() {
+        AtomicBoolean closed = new AtomicBoolean();
+        InputStream in = new ByteArrayInputStream("a\r\nb\n\nc".getBytes(UTF_8)) {
+            @Override
+            public void close() {
+                closed.set(true);
+            }
+        };
+
+        try (Stream<String> lines = new LogLineReader(in).lines()) {
+            assertEquals(List.of("a", "b", "", "c"), lines.collect(Collectors.toList()));
+        }
+        assertTrue(closed.get());
+
+        // lazily evaluated, only the required part of the data is decoded
+        byte[] ab = "line\n".repeat(1_000_000).getBytes(UTF_8);
+        try (Stream<String> lines = new LogLineReader(new ByteArrayInputStream(ab)).lines()) {
+            assertEquals(List.of("line", "line"), lines.limit(2).collect(Collectors.toList()));
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package ca.ibodrov.concord.testcontainers;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2020 Ivan Bodrov
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.nio.file.attribute.PosixFilePermissions;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class PayloadArchiveCacheTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testHitsAndMisses() throws Exception {
+        Path src = Files.createDirectories(tempDir.resolve("src"));
+        Path yml = Files.writeString(src.resolve("concord.yml"), "flows:\n  default:\n    - log: Hello!\n");
+        Path diskDir = tempDir.resolve("cache");
+
+        PayloadArchiveCache cache = new PayloadArchiveCache(1024 * 1024, diskDir, 1024 * 1024);
+
+        PayloadArchiveCache.Archive a1 = cache.get(src);
+        PayloadArchiveCache.Archive a2 = cache.get(src);
+        assertSame(a1, a2);
+        assertStats(cache, 1, 0, 1);
+
+        // another instance (e.g. another JVM) reuses the disk cache
+        PayloadArchiveCache another = new PayloadArchiveCache(1024 * 1024, diskDir, 1024 * 1024);
+        assertEquals(a1.key(), another.get(src).key());
+        assertStats(another, 0, 1, 0);
+
+        // different archiver settings produce a different archive
+        assertNotEquals(a1.key(), cache.get(src, new PayloadArchiver().compressionLevel(PayloadArchiver.STORED)).key());
+        assertStats(cache, 1, 0, 2);
+
+        // any change to the directory invalidates the cache
+        Files.writeString(yml, "flows:\n  default:\n    - log: Bye!\n");
+        PayloadArchiveCache.Archive a3 = cache.get(src);
+        assertNotEquals(a1.key(), a3.key());
+        assertStats(cache, 1, 0, 3);
+
+        try (InputStream in = a3.open()) {
+            assertEquals(Files.readAllBytes(diskDir.resolve(a3.key() + ".zip")).length, in.readAllBytes().length);
+        }
+    }
+
+    @Test
+    void testFullHash() throws Exception {
+        Path src = Files.createDirectories(tempDir.resolve("src"));
+        Path yml = Files.writeString(src.resolve("concord.yml"), "aaa");
+        FileTime mtime = Files.getLastModifiedTime(yml);
+
+        PayloadArchiveCache cache = new PayloadArchiveCache(1024 * 1024, null, 0);
+        String k1 = cache.get(src).key();
+
+        // same size and mtime, different content
+        Files.writeString(yml, "bbb");
+        Files.setLastModifiedTime(yml, mtime);
+        assertEquals(k1, cache.get(src).key());
+
+        cache.fullHash(true);
+        String k2 = cache.get(src).key();
+        Files.writeString(yml, "ccc");
+        Files.setLastModifiedTime(yml, mtime);
+        assertNotEquals(k2, cache.get(src).key());
+    }
+
+    @Test
+    void testFullHashIgnoresLocation() throws Exception {
+        Path src = Files.createDirectories(tempDir.resolve("src"));
+        Path yml = Files.writeString(src.resolve("concord.yml"), "flows:\n  default:\n    - log: Hello!\n");
+
+        PayloadArchiveCache cache = new PayloadArchiveCache(1024 * 1024, null, 0).fullHash(true);
+        String k1 = cache.get(src).key();
+
+        // a copy with different modification times
+        Path copy = Files.createDirectories(tempDir.resolve("copy"));
+        Path copyYml = Files.copy(yml, copy.resolve("concord.yml"));
+        Files.setLastModifiedTime(copyYml, FileTime.fromMillis(Files.getLastModifiedTime(yml).toMillis() - 60_000));
+
+        assertEquals(k1, cache.get(copy).key());
+        assertStats(cache, 1, 0, 1);
+    }
+
+    @Test
+    void testLiveArchivesAreNotPruned() throws Exception {
+        Path diskDir = tempDir.resolve("cache");
+        // nothing is kept in memory, the disk cache fits a single archive
+        PayloadArchiveCache cache = new PayloadArchiveCache(0, diskDir, 1);
+
+        Path src1 = Files.createDirectories(tempDir.resolve("src1"));
+        Files.writeString(src1.resolve("concord.yml"), "flows:\n  default:\n    - log: One\n");
+        PayloadArchiveCache.Archive a1 = cache.get(src1);
+
+        Path src2 = Files.createDirectories(tempDir.resolve("src2"));
+        Files.writeString(src2.resolve("concord.yml"), "flows:\n  default:\n    - log: Two\n");
+        cache.get(src2);
+
+        try (InputStream in = a1.open()) {
+            assertTrue(in.readAllBytes().length > 0);
+        }
+    }
+
+    @Test
+    void testModeChangeInvalidatesCache() throws Exception {
+        Path src = Files.createDirectories(tempDir.resolve("src"));
+        assumeTrue(src.getFileSystem().supportedFileAttributeViews().contains("posix"));
+
+        Path script = Files.writeString(src.resolve("run.sh"), "echo Hello!\n");
+        FileTime mtime = Files.getLastModifiedTime(script);
+
+        PayloadArchiveCache cache = new PayloadArchiveCache(1024 * 1024, null, 0);
+        String k1 = cache.get(src).key();
+
+        Files.setPosixFilePermissions(script, PosixFilePermissions.fromString("rwxr-xr-x"));
+        Files.setLastModifiedTime(script, mtime);
+        assertNotEquals(k1, cache.get(src).key());
+    }
+
+    @Test
+    void testRecentArchivesAreNotPruned() throws Exception {
+        Path diskDir = tempDir.resolve("cache");
+
+        Path src1 = Files.createDirectories(tempDir.resolve("src1"));
+        Files.writeString(src1.resolve("concord.yml"), "flows:\n  default:\n    - log: One\n");
+        PayloadArchiveCache.Archive a1 = new PayloadArchiveCache(0, diskDir, 1).get(src1);
+        Path f1 = diskDir.resolve(a1.key() + ".zip");
+
+        // another instance (e.g. another JVM) keeps the archive used recently
+        Path src2 = Files.createDirectories(tempDir.resolve("src2"));
+        Files.writeString(src2.resolve("concord.yml"), "flows:\n  default:\n    - log: Two\n");
+        new PayloadArchiveCache(0, diskDir, 1).get(src2);
+        assertTrue(Files.exists(f1));
+
+        // but not the ones unused for a long time
+        Files.setLastModifiedTime(f1, FileTime.fromMillis(System.currentTimeMillis() - 3600_000));
+        Path src3 = Files.createDirectories(tempDir.resolve("src3"));
+        Files.writeString(src3.resolve("concord.yml"), "flows:\n  default:\n    - log: Three\n");
+        new PayloadArchiveCache(0, diskDir, 1).get(src3);
+        assertFalse(Files.exists(f1));
+    }
+
+    @Test
+    void testMemoryBudget() throws Exception {
+        PayloadArchiveCache cache = new PayloadArchiveCache(1024, null, 0);
+
+        for (int i = 0; i < 10; i++) {
+            Path src = Files.createDirectories(tempDir.resolve("src" + i));
+            Files.writeString(src.resolve("concord.yml"), "flows:\n  default:\n    - log: Hello " + i + "\n");
+            cache.get(src);
+        }
+
+        PayloadArchiveCache.Stats stats = cache.stats();
+        assertEquals(10, stats.misses());
+        assertTrue(stats.memorySize() <= 1024, stats.toString());
+        assertTrue(stats.memoryEntries() < 10, stats.toString());
+    }
+
+    private static void assertStats(PayloadArchiveCache cache, long hits, long diskHits, long misses) {
+        PayloadArchiveCache.Stats stats = cache.stats();
+        assertEquals(hits, stats.hits(), stats.toString());
+        assertEquals(diskHits, stats.diskHits(), stats.toString());
+        assertEquals(misses, stats.misses(), stats.toString());
+    }
+}
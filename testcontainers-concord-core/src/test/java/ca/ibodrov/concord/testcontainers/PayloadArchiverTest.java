@@ -0,0 +1,135 @@
+package ca.ibodrov.concord.testcontainers;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2020 Ivan Bodrov
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipFile;
+import org.apache.commons.compress.utils.SeekableInMemoryByteChannel;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.*;
+import java.util.zip.ZipEntry;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PayloadArchiverTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testStoredAndDeflated() throws Exception {
+        Path src = createTree(false);
+
+        for (int level : new int[]{PayloadArchiver.STORED, 1, 9}) {
+            PayloadArchiver archiver = new PayloadArchiver().compressionLevel(level);
+
+            // in memory (non-seekable)
+            assertContent(src, archiver.toByteArray(src), level == PayloadArchiver.STORED ? ZipEntry.STORED : ZipEntry.DEFLATED);
+
+            // temporary file (seekable)
+            Path archive = archiver.toFile(src);
+            try {
+                assertContent(src, Files.readAllBytes(archive), level == PayloadArchiver.STORED ? ZipEntry.STORED : ZipEntry.DEFLATED);
+            } finally {
+                Files.delete(archive);
+            }
+        }
+    }
+
+    @Test
+    void testParallel() throws Exception {
+        Path src = createTree(true);
+
+        for (int level : new int[]{PayloadArchiver.STORED, 1}) {
+            byte[] ab = new PayloadArchiver()
+                    .compressionLevel(level)
+                    .parallelism(4)
+                    .toByteArray(src);
+
+            assertContent(src, ab, level == PayloadArchiver.STORED ? ZipEntry.STORED : ZipEntry.DEFLATED);
+        }
+    }
+
+    private Path createTree(boolean large) throws IOException {
+        Path src = Files.createDirectory(tempDir.resolve("src"));
+        Files.writeString(src.resolve("concord.yml"), "flows:\n  default:\n    - log: Hello!\n");
+
+        Path scripts = Files.createDirectories(src.resolve("scripts/nested"));
+        Path script = Files.writeString(scripts.resolve("run.sh"), "#!/bin/sh\necho hello\n");
+        Files.setPosixFilePermissions(script, PosixFilePermissions.fromString("rwxr-x---"));
+
+        Files.createDirectories(src.resolve("empty"));
+
+        if (large) {
+            Random rng = new Random(123);
+            for (int i = 0; i < 10; i++) {
+                byte[] ab = new byte[1024 * 1024];
+                rng.nextBytes(ab);
+                Files.write(src.resolve("lib" + i + ".jar"), ab);
+            }
+        }
+
+        return src;
+    }
+
+    private static void assertContent(Path src, byte[] archive, int expectedMethod) throws IOException {
+        Map<String, ZipArchiveEntry> entries = new HashMap<>();
+
+        SeekableByteChannel ch = new SeekableInMemoryByteChannel(archive);
+        try (ZipFile zip = ZipFile.builder().setSeekableByteChannel(ch).get()) {
+            for (ZipArchiveEntry e : Collections.list(zip.getEntries())) {
+                entries.put(e.getName(), e);
+
+                if (e.isDirectory()) {
+                    assertTrue(Files.isDirectory(src.resolve(e.getName())), e.getName());
+                    continue;
+                }
+
+                int method = e.getName().endsWith(".jar") ? ZipEntry.STORED : expectedMethod;
+                assertEquals(method, e.getMethod(), e.getName());
+                try (InputStream in = zip.getInputStream(e)) {
+                    assertArrayEquals(Files.readAllBytes(src.resolve(e.getName())), in.readAllBytes(), e.getName());
+                }
+            }
+        }
+
+        assertEquals(0750, entries.get("scripts/nested/run.sh").getUnixMode() & 0777);
+        assertEquals(Set.of("scripts/", "scripts/nested/", "empty/"), directories(entries));
+    }
+
+    private static Set<String> directories(Map<String, ZipArchiveEntry> entries) {
+        Set<String> result = new HashSet<>();
+        for (ZipArchiveEntry e : entries.values()) {
+            if (e.isDirectory()) {
+                result.add(e.getName());
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,108 @@
+package ca.ibodrov.concord.testcontainers;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2020 Ivan Bodrov
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PayloadTest {
+
+    @Test
+    void testLazyParts(@TempDir Path tempDir) throws Exception {
+        Path yml = Files.writeString(tempDir.resolve("concord.yml"), "flows:\n  default:\n    - log: Hello!\n");
+        Path script = tempDir.resolve("script.js");
+
+        Payload payload = new Payload()
+                .concordYml(yml)
+                .file("script.js", script)
+                .resource("resource.txt", PayloadTest.class.getResource("PayloadTest.class"));
+
+        // the file doesn't exist yet, nothing is read until the process starts
+        Files.writeString(script, "print('hi')");
+
+        Map<String, Object> m = payload.build();
+        for (String k : new String[]{"concord.yml", "script.js", "resource.txt"}) {
+            assertInstanceOf(PayloadPart.class, m.get(k), k);
+        }
+
+        try (InputStream in = ((PayloadPart) m.get("script.js")).open()) {
+            assertEquals("print('hi')", new String(in.readAllBytes()));
+        }
+
+        // parts can be opened multiple times
+        for (int i = 0; i < 2; i++) {
+            try (InputStream in = ((PayloadPart) m.get("concord.yml")).open()) {
+                assertArrayEquals(Files.readAllBytes(yml), in.readAllBytes());
+            }
+        }
+    }
+
+    @Test
+    void testArchiveWithArchiver(@TempDir Path tempDir) throws Exception {
+        Path dir = Files.createDirectory(tempDir.resolve("flow"));
+        Files.writeString(dir.resolve("concord.yml"), "flows:\n  default:\n    - log: Hello!\n");
+
+        PayloadArchiver archiver = new PayloadArchiver().compressionLevel(9);
+
+        // no new temporary files for repeated calls
+        Object a1 = new Payload().archive(dir.toUri(), archiver).build().get("archive");
+        Object a2 = new Payload().archive(dir.toUri(), archiver).build().get("archive");
+        assertInstanceOf(PayloadArchiveCache.Archive.class, a1);
+        assertSame(a1, a2);
+    }
+
+    @Test
+    void testTemplate() {
+        Payload base = new Payload()
+                .concordYml("flows:\n  default:\n    - log: ${n}\n")
+                .arg("n", 0)
+                .tag("base");
+
+        PayloadTemplate template = PayloadTemplate.of(base);
+
+        // changes to the original payload don't affect the template
+        base.arg("extra", true);
+
+        UUID parent = UUID.randomUUID();
+        Map<String, Object> m1 = template.newPayload().arg("n", 1).tag("first").parent(parent).build();
+        Map<String, Object> m2 = template.newPayload().build();
+
+        assertEquals(1, m1.get("arguments.n"));
+        assertEquals("base,first", m1.get("tags"));
+        assertEquals(parent.toString(), m1.get("parentInstanceId"));
+        assertFalse(m1.containsKey("arguments.extra"));
+
+        assertEquals(0, m2.get("arguments.n"));
+        assertEquals("base", m2.get("tags"));
+        assertFalse(m2.containsKey("parentInstanceId"));
+
+        // shared parts are not copied
+        assertSame(m1.get("concord.yml"), m2.get("concord.yml"));
+    }
+}
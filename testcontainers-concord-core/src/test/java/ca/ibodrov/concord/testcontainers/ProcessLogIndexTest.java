@@ -0,0 +1,93 @@
+package ca.ibodrov.concord.testcontainers;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2020 Ivan Bodrov
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import ca.ibodrov.concord.testcontainers.ProcessLogIndex.Entry;
+import ca.ibodrov.concord.testcontainers.ProcessLogIndex.Level;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProcessLogIndexTest {
+
+    private static final byte[] LOG = ("" +
+            "Acquired by: Agent\n" +
+            "2020-01-01T12:00:00.000+0000 [INFO ] Process state download took 10ms\n" +
+            "2020-01-01T12:00:01.250+0000 [INFO ] c.w.c.plugins.log.LoggingTaskV2 - Step A started\r\n" +
+            "2020-01-01T12:00:02.000+0000 [WARN ] c.w.c.plugins.log.LoggingTaskV2 - Retrying - 1\n" +
+            "2020-01-01T12:00:03.750+0000 [ERROR] c.w.c.runtime.v2.Main - Boom\n" +
+            "java.lang.RuntimeException: Boom\n" +
+            "\tat Main.main(Main.java:1)\n" +
+            "2020-01-01T08:00:04.000-04:00 [INFO ] c.w.c.plugins.log.LoggingTaskV2 - Step A done\n" +
+            "2020-01-01T12:00:05.000Z [DEBUG] Bye - see you\n").getBytes(UTF_8);
+
+    @Test
+    void testParse() {
+        ProcessLogIndex idx = ProcessLogIndex.parse(LOG);
+        assertEquals(7, idx.size());
+
+        assertNull(idx.timestamp(0));
+        assertNull(idx.level(0));
+        assertEquals("Acquired by: Agent", idx.message(0));
+
+        assertEquals(Instant.parse("2020-01-01T12:00:00Z"), idx.timestamp(1));
+        assertEquals(Level.INFO, idx.level(1));
+        assertNull(idx.logger(1));
+        assertEquals("Process state download took 10ms", idx.message(1));
+
+        assertEquals("c.w.c.plugins.log.LoggingTaskV2", idx.logger(2));
+        assertEquals("Step A started", idx.message(2));
+        assertEquals("Retrying - 1", idx.message(3));
+
+        assertEquals("Boom\njava.lang.RuntimeException: Boom\n\tat Main.main(Main.java:1)", idx.message(4));
+        assertEquals(Instant.parse("2020-01-01T12:00:04Z"), idx.timestamp(5));
+
+        assertEquals(Level.DEBUG, idx.level(6));
+        assertNull(idx.logger(6));
+        assertEquals("Bye - see you", idx.message(6));
+
+        assertEquals(new String(LOG, UTF_8).indexOf("2020-01-01T12:00:03.750"), idx.offset(4));
+    }
+
+    @Test
+    void testQueries() {
+        ProcessLogIndex idx = ProcessLogIndex.parse(LOG);
+
+        assertEquals(Duration.ofMillis(2750), idx.durationBetween("Step A started", "Step A done"));
+        assertEquals(Duration.ofMillis(4000), idx.durationBetween(".*download.*", ".*done"));
+        assertThrows(IllegalStateException.class, () -> idx.durationBetween("Step A done", "Step A started"));
+        assertThrows(IllegalStateException.class, () -> idx.durationBetween(".*Agent", "Step A done"));
+
+        List<Entry> problems = idx.entries(Level.WARN, Level.ERROR);
+        assertEquals(2, problems.size());
+        assertEquals(3, problems.get(0).index());
+        assertEquals(Level.ERROR, problems.get(1).level());
+        assertTrue(problems.get(1).message().startsWith("Boom"));
+
+        assertEquals(4, idx.indexOf("(?s)Boom.*"));
+        assertEquals(-1, idx.indexOf("Step B.*"));
+    }
+}
@@ -0,0 +1,94 @@
+package ca.ibodrov.concord.testcontainers;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2020 Ivan Bodrov
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import ca.ibodrov.concord.testcontainers.ProcessTimelineRecorder.Phase;
+import com.walmartlabs.concord.client2.ProcessEntry.StatusEnum;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.EnumMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProcessTimelineRecorderTest {
+
+    private static final Instant T0 = Instant.parse("2020-01-01T00:00:00Z");
+
+    @Test
+    void testPhases() {
+        Map<StatusEnum, Instant> transitions = new EnumMap<>(StatusEnum.class);
+        transitions.put(StatusEnum.NEW, T0);
+        transitions.put(StatusEnum.ENQUEUED, T0.plusMillis(100));
+        transitions.put(StatusEnum.STARTING, T0.plusMillis(600));
+        transitions.put(StatusEnum.RUNNING, T0.plusMillis(2600));
+        transitions.put(StatusEnum.FINISHED, T0.plusMillis(3600));
+
+        Map<Phase, Duration> phases = ProcessTimelineRecorder.phases(transitions);
+        assertEquals(Duration.ofMillis(100), phases.get(Phase.PREPARING));
+        assertEquals(Duration.ofMillis(500), phases.get(Phase.QUEUE_WAIT));
+        assertEquals(Duration.ofMillis(2000), phases.get(Phase.AGENT_START));
+        assertEquals(Duration.ofMillis(1000), phases.get(Phase.EXECUTION));
+        assertEquals(Duration.ofMillis(3600), phases.get(Phase.TOTAL));
+    }
+
+    @Test
+    void testMissingStatuses() {
+        Map<StatusEnum, Instant> transitions = new EnumMap<>(StatusEnum.class);
+        transitions.put(StatusEnum.NEW, T0);
+        transitions.put(StatusEnum.ENQUEUED, T0.plusMillis(100));
+        transitions.put(StatusEnum.FAILED, T0.plusMillis(200));
+
+        Map<Phase, Duration> phases = ProcessTimelineRecorder.phases(transitions);
+        assertEquals(Duration.ofMillis(100), phases.get(Phase.PREPARING));
+        assertEquals(Duration.ofMillis(200), phases.get(Phase.TOTAL));
+        assertFalse(phases.containsKey(Phase.QUEUE_WAIT));
+        assertFalse(phases.containsKey(Phase.AGENT_START));
+        assertFalse(phases.containsKey(Phase.EXECUTION));
+    }
+
+    @Test
+    void testReport() {
+        ProcessTimelineRecorder recorder = new ProcessTimelineRecorder();
+        for (int i = 0; i < 10; i++) {
+            Map<StatusEnum, Instant> transitions = new EnumMap<>(StatusEnum.class);
+            transitions.put(StatusEnum.NEW, T0);
+            transitions.put(StatusEnum.ENQUEUED, T0.plusMillis(10));
+            transitions.put(StatusEnum.STARTING, T0.plusMillis(20 + i));
+            transitions.put(StatusEnum.RUNNING, T0.plusMillis(1000));
+            transitions.put(StatusEnum.FINISHED, T0.plusMillis(1500));
+            recorder.record(transitions, StatusEnum.FINISHED);
+        }
+
+        assertEquals(10, recorder.count());
+        assertEquals(10, recorder.histogram(Phase.QUEUE_WAIT).count());
+        assertEquals(500, recorder.histogram(Phase.EXECUTION).percentile(50).toMillis(), 10);
+
+        String report = recorder.report();
+        assertTrue(report.contains("10 process(es) (FINISHED=10)"), report);
+        assertTrue(report.contains("agentStart"), report);
+
+        recorder.reset();
+        assertEquals(0, recorder.count());
+    }
+}
@@ -0,0 +1,60 @@
+package ca.ibodrov.concord.testcontainers;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2020 Ivan Bodrov
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+class ProjectPayloadsTest {
+
+    @Test
+    void testFingerprint(@TempDir Path tempDir) throws Exception {
+        Path script = Files.writeString(tempDir.resolve("script.js"), "print('hi')");
+
+        String k1 = ProjectPayloads.fingerprint("org", "project", Map.of(
+                "concord.yml", "flows: {}".getBytes(),
+                "script.js", PayloadPart.of(script)));
+
+        String k2 = ProjectPayloads.fingerprint("org", "project", Map.of(
+                "script.js", PayloadPart.of(script),
+                "concord.yml", "flows: {}".getBytes()));
+
+        assertEquals(k1, k2);
+
+        // same payload in a different project
+        assertNotEquals(k1, ProjectPayloads.fingerprint("org", "another", Map.of(
+                "concord.yml", "flows: {}".getBytes(),
+                "script.js", PayloadPart.of(script))));
+
+        // lazy parts are read
+        Files.writeString(script, "print('bye')");
+        assertNotEquals(k1, ProjectPayloads.fingerprint("org", "project", Map.of(
+                "concord.yml", "flows: {}".getBytes(),
+                "script.js", PayloadPart.of(script))));
+    }
+}
@@ -0,0 +1,65 @@
+package ca.ibodrov.concord.testcontainers;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2020 Ivan Bodrov
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import org.junit.jupiter.api.Test;
+
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RegexLiteralsTest {
+
+    @Test
+    void testRequiredLiteral() {
+        assertEquals("Hello, Concord!", literal(".*Hello, Concord!.*"));
+        assertEquals("Hello, ", literal(".*Hello, \\w+!.*"));
+        assertEquals(" value=", literal("\\d+ value=[0-9a-f]+"));
+        assertEquals("a.b", literal(".*a\\.b.*"));
+        assertEquals("abc", literal("\\Qabc\\E"));
+        assertEquals("Hello, ", literal(".*Hello, (Concord|World)!.*"));
+        assertEquals("ab", literal("abc?d"));
+        assertEquals("cd", literal("ab*cd"));
+        // surrogate pairs are removed as a whole
+        assertEquals("ab", literal("ab\uD83D\uDE00?d"));
+        assertEquals("xyz", literal("\uD83D\uDE00*xyz"));
+        assertEquals("BC", literal("\\x41BC"));
+        assertEquals("x.y", RegexLiterals.requiredLiteral(Pattern.compile("x.y", Pattern.LITERAL)));
+
+        assertNull(literal("foo|bar"));
+        assertNull(literal("(?i).*hello.*"));
+        assertNull(RegexLiterals.requiredLiteral(Pattern.compile(".*hello.*", Pattern.CASE_INSENSITIVE)));
+        assertNull(literal(".*"));
+        assertNull(literal("a?"));
+    }
+
+    @Test
+    void testContains() {
+        assertTrue(RegexLiterals.contains("Hello, Concord!", "Concord"));
+        assertTrue(RegexLiterals.contains("aab", "ab"));
+        assertFalse(RegexLiterals.contains("Hello", "Concord"));
+        assertFalse(RegexLiterals.contains("ab", "abc"));
+    }
+
+    private static String literal(String regex) {
+        return RegexLiterals.requiredLiteral(Pattern.compile(regex));
+    }
+}
@@ -0,0 +1,146 @@
+package ca.ibodrov.concord.testcontainers;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2020 Ivan Bodrov
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import com.walmartlabs.concord.common.IOUtils;
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Compares {@link PayloadArchiver} settings with the original in-memory
+ * implementation of {@link Utils#archive(java.net.URI)}.
+ * <p/>
+ * The resulting archive sizes are reported as the {@code archiveBytes}
+ * secondary result.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ArchiveBenchmark {
+
+    /**
+     * Number of 1MB binary files in the directory.
+     */
+    @Param({"1", "32"})
+    public int jars;
+
+    /**
+     * Compression level, 0 means STORED.
+     */
+    @Param({"0", "1", "6"})
+    public int level;
+
+    @Param({"1", "4"})
+    public int parallelism;
+
+    private Path src;
+    private PayloadArchiver archiver;
+
+    @Setup
+    public void setUp() throws IOException {
+        src = SyntheticData.flowDirectory(Files.createTempDirectory("bench"), 50, jars, 1024 * 1024);
+        archiver = new PayloadArchiver()
+                .compressionLevel(level)
+                .parallelism(parallelism);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(src)) {
+            files.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public byte[] legacyArchive(Size size) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ZipArchiveOutputStream zip = new ZipArchiveOutputStream(out)) {
+            IOUtils.zip(zip, src);
+        }
+        byte[] ab = out.toByteArray();
+        size.archiveBytes = ab.length;
+        return ab;
+    }
+
+    /**
+     * Streams the archive, e.g. directly into a request body.
+     */
+    @Benchmark
+    public long archive(Size size) throws IOException {
+        CountingOutputStream out = new CountingOutputStream();
+        archiver.writeTo(src, out);
+        size.archiveBytes = out.count;
+        return out.count;
+    }
+
+    @Benchmark
+    public long archiveToFile(Size size) throws IOException {
+        Path p = archiver.toFile(src);
+        try {
+            size.archiveBytes = Files.size(p);
+            return size.archiveBytes;
+        } finally {
+            Files.delete(p);
+        }
+    }
+
+    /**
+     * Size of the last archive, reported alongside the timings.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Size {
+
+        public long archiveBytes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            archiveBytes = 0;
+        }
+    }
+
+    private static final class CountingOutputStream extends OutputStream {
+
+        private long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package ca.ibodrov.concord.testcontainers;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2020 Ivan Bodrov
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+
+/**
+ * Runs the benchmarks and compares the results with a baseline. Exits with
+ * a non-zero code if any benchmark is slower than the baseline by more than
+ * the threshold. Used by the {@code jmh-regression} profile:
+ * <pre>{@code
+ * ./mvnw verify -Pjmh-regression -pl testcontainers-concord-jmh -am
+ * }</pre>
+ * Configuration (system properties):
+ * <ul>
+ *     <li>{@code jmh.include} - regex of the benchmarks to run, default {@code .*};</li>
+ *     <li>{@code jmh.baseline} - path to the baseline file. Created if it doesn't exist;</li>
+ *     <li>{@code jmh.threshold} - allowed relative difference, default {@code 0.25};</li>
+ *     <li>{@code jmh.updateBaseline} - if {@code true} the results are saved as
+ *     the new baseline;</li>
+ *     <li>{@code jmh.forks}, {@code jmh.warmupIterations}, {@code jmh.measurementIterations},
+ *     {@code jmh.iterationTime} (seconds) - override the benchmarks' settings.</li>
+ * </ul>
+ * Baselines are machine specific, record them on the same machine (or the same
+ * CI runner type) that runs the check.
+ */
+public final class BenchmarkRegressionCheck {
+
+    private static final ObjectMapper objectMapper = new ObjectMapper()
+            .enable(SerializationFeature.INDENT_OUTPUT);
+
+    public static void main(String[] args) throws Exception {
+        String include = System.getProperty("jmh.include", ".*");
+        Path baselineFile = Paths.get(System.getProperty("jmh.baseline", "jmh-baseline.json"));
+        double threshold = Double.parseDouble(System.getProperty("jmh.threshold", "0.25"));
+        boolean updateBaseline = Boolean.getBoolean("jmh.updateBaseline");
+
+        ChainedOptionsBuilder opts = new OptionsBuilder().include(include);
+
+        Integer forks = Integer.getInteger("jmh.forks");
+        if (forks != null) {
+            opts.forks(forks);
+        }
+        Integer warmupIterations = Integer.getInteger("jmh.warmupIterations");
+        if (warmupIterations != null) {
+            opts.warmupIterations(warmupIterations);
+        }
+        Integer measurementIterations = Integer.getInteger("jmh.measurementIterations");
+        if (measurementIterations != null) {
+            opts.measurementIterations(measurementIterations);
+        }
+        Integer iterationTime = Integer.getInteger("jmh.iterationTime");
+        if (iterationTime != null) {
+            opts.warmupTime(TimeValue.seconds(iterationTime));
+            opts.measurementTime(TimeValue.seconds(iterationTime));
+        }
+
+        Map<String, Score> current = scores(new Runner(opts.build()).run());
+
+        if (updateBaseline || !Files.exists(baselineFile)) {
+            save(baselineFile, current);
+            System.out.println("Baseline saved: " + baselineFile.toAbsolutePath());
+            return;
+        }
+
+        List<String> regressions = compare(load(baselineFile), current, threshold);
+        if (!regressions.isEmpty()) {
+            System.err.println("Performance regressions (threshold " + Math.round(threshold * 100) + "%):");
+            regressions.forEach(r -> System.err.println("  " + r));
+            System.exit(1);
+        }
+
+        System.out.println("No performance regressions compared to " + baselineFile.toAbsolutePath());
+    }
+
+    /**
+     * Returns the descriptions of all benchmarks that are worse than
+     * the baseline by more than the specified threshold. Benchmarks missing
+     * from the baseline are ignored.
+     */
+    static List<String> compare(Map<String, Score> baseline, Map<String, Score> current, double threshold) {
+        List<String> result = new ArrayList<>();
+
+        for (Map.Entry<String, Score> e : current.entrySet()) {
+            Score base = baseline.get(e.getKey());
+            Score cur = e.getValue();
+            if (base == null || !base.unit.equals(cur.unit) || !base.mode.equals(cur.mode) || base.score <= 0) {
+                continue;
+            }
+
+            // higher is better only for throughput
+            double ratio = "thrpt".equals(cur.mode) ? base.score / cur.score : cur.score / base.score;
+            if (ratio > 1 + threshold) {
+                result.add(String.format("%s: %.3f -> %.3f %s (%+.0f%%)", e.getKey(), base.score, cur.score, cur.unit, (ratio - 1) * 100));
+            }
+        }
+
+        return result;
+    }
+
+    private static Map<String, Score> scores(Collection<RunResult> results) {
+        Map<String, Score> m = new TreeMap<>();
+        for (RunResult r : results) {
+            BenchmarkParams params = r.getParams();
+
+            // e.g. ca.ibodrov.concord.testcontainers.GrepBenchmark.logGrep:lines=10000
+            StringJoiner key = new StringJoiner(",", params.getBenchmark() + ":", "")
+                    .setEmptyValue(params.getBenchmark());
+            new TreeSet<>(params.getParamsKeys()).forEach(k -> key.add(k + "=" + params.getParam(k)));
+
+            Result<?> primary = r.getPrimaryResult();
+            m.put(key.toString(), new Score(params.getMode().shortLabel(), primary.getScore(), primary.getScoreUnit()));
+        }
+        return m;
+    }
+
+    private static Map<String, Score> load(Path file) throws IOException {
+        return objectMapper.readValue(file.toFile(), new TypeReference<TreeMap<String, Score>>() {
+        });
+    }
+
+    private static void save(Path file, Map<String, Score> scores) throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        objectMapper.writeValue(file.toFile(), scores);
+    }
+
+    static final class Score {
+
+        public String mode;
+        public double score;
+        public String unit;
+
+        public Score() {
+        }
+
+        Score(String mode, double score, String unit) {
+            this.mode = mode;
+            this.score = score;
+            this.unit = unit;
+        }
+    }
+
+    private BenchmarkRegressionCheck() {
+    }
+}
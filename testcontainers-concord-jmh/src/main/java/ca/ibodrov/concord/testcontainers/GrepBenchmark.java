@@ -0,0 +1,96 @@
+package ca.ibodrov.concord.testcontainers;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2020 Ivan Bodrov
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares {@link LogGrep} with the original {@code String#matches} based
+ * implementation of {@link Utils#grep(String, byte[])}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GrepBenchmark {
+
+    private static final String PATTERN = ".*Hello, Concord!.*";
+
+    @Param({"10000", "100000"})
+    public int lines;
+
+    private byte[] log;
+
+    @Setup
+    public void setUp() {
+        log = SyntheticData.processLog(lines, "Hello, Concord!");
+    }
+
+    @Benchmark
+    public List<String> legacyGrep() {
+        return legacyGrep(PATTERN, log);
+    }
+
+    @Benchmark
+    public List<String> logGrep() {
+        return LogGrep.compile(PATTERN).grep(log);
+    }
+
+    @Benchmark
+    public List<String> utilsGrep() {
+        return Utils.grep(PATTERN, log);
+    }
+
+    @Benchmark
+    public int logGrepStream() throws IOException {
+        return LogGrep.compile(PATTERN).count(new ByteArrayInputStream(log), Integer.MAX_VALUE);
+    }
+
+    /**
+     * The same check as {@link ConcordProcess#assertLog(String)} does.
+     */
+    @Benchmark
+    public int logGrepEarlyStop() {
+        return LogGrep.compile(PATTERN).count(log, 2);
+    }
+
+    private static List<String> legacyGrep(String pattern, byte[] ab) {
+        List<String> result = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new ByteArrayInputStream(ab)))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.matches(pattern)) {
+                    result.add(line);
+                }
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,81 @@
+package ca.ibodrov.concord.testcontainers;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2020 Ivan Bodrov
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the JSON (de)serialization done by the client: parsing
+ * of {@code out.json} and serialization of secret requests.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JsonBenchmark {
+
+    private NewSecretQuery secretQuery;
+
+    @Setup
+    public void setUp() {
+        secretQuery = NewSecretQuery.builder()
+                .org("Default")
+                .name("mySecret")
+                .generatePassword(true)
+                .build();
+    }
+
+    @State(Scope.Benchmark)
+    public static class OutJson {
+
+        /**
+         * Number of out variables.
+         */
+        @Param({"10", "1000"})
+        public int vars;
+
+        private byte[] data;
+
+        @Setup
+        public void setUp() {
+            data = SyntheticData.outVariables(vars);
+        }
+    }
+
+    /**
+     * The parsing part of {@link ProcessAttachments#outVariables()}.
+     */
+    @Benchmark
+    public Map<String, Object> outVariables(OutJson outJson) throws IOException {
+        return ProcessAttachments.parseOutVariables(outJson.data);
+    }
+
+    @Benchmark
+    public Map<String, Object> secretsSerialize() {
+        return Secrets.serialize(secretQuery);
+    }
+}
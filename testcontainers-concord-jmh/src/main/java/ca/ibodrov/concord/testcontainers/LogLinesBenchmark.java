@@ -0,0 +1,82 @@
+package ca.ibodrov.concord.testcontainers;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2020 Ivan Bodrov
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import org.apache.commons.io.IOUtils;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStreamReader;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Compares {@link ConcordProcess#getLogLines()} with the original implementation
+ * that copied the whole log before splitting it into lines. The log is
+ * served from memory, the network transfer is not included.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LogLinesBenchmark {
+
+    @Param({"10000", "100000"})
+    public int lines;
+
+    private byte[] log;
+
+    @Setup
+    public void setUp() {
+        log = SyntheticData.processLog(lines, "Hello, Concord!");
+    }
+
+    @Benchmark
+    public List<String> legacyLogLines() {
+        return IOUtils.readLines(new InputStreamReader(new ByteArrayInputStream(log)))
+                .stream()
+                .filter(line -> true)
+                .collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public List<String> logLines() {
+        try (Stream<String> s = new LogLineReader(new ByteArrayInputStream(log)).lines()) {
+            return s.filter(line -> true)
+                    .collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * Filtering without collecting all lines, e.g. counting warnings.
+     */
+    @Benchmark
+    public long logLinesCount() {
+        try (Stream<String> s = new LogLineReader(new ByteArrayInputStream(log)).lines()) {
+            return s.filter(line -> line.contains("[WARN "))
+                    .count();
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package ca.ibodrov.concord.testcontainers;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2020 Ivan Bodrov
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how {@link ProcessLogStreamer} turns the received log chunks into
+ * lines. The output is discarded.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LogStreamerBenchmark {
+
+    /**
+     * Size of a log chunk in bytes.
+     */
+    @Param({"1024", "65536"})
+    public int chunkSize;
+
+    private byte[] chunk;
+    private PrintStream out;
+
+    @Setup
+    public void setUp() {
+        byte[] log = SyntheticData.processLog(chunkSize / 64 + 1, "Hello, Concord!");
+        chunk = Arrays.copyOf(log, Math.min(log.length, chunkSize));
+        out = new PrintStream(OutputStream.nullOutputStream());
+    }
+
+    @Benchmark
+    public void chunkToLines() {
+        ProcessLogStreamer.print(chunk, out);
+    }
+}
@@ -0,0 +1,78 @@
+package ca.ibodrov.concord.testcontainers;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2020 Ivan Bodrov
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link Payload#build()}, called for each started process.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PayloadBenchmark {
+
+    @Param({"10", "100"})
+    public int args;
+
+    private Payload payload;
+    private PayloadTemplate template;
+
+    @Setup
+    public void setUp() {
+        byte[] archive = new byte[64 * 1024];
+        new Random(42).nextBytes(archive);
+
+        payload = new Payload()
+                .concordYml("flows:\n  default:\n    - log: Hello!\n")
+                .archive(archive)
+                .activeProfiles("default")
+                .tag("benchmark");
+
+        for (int i = 0; i < args; i++) {
+            payload.arg("arg" + i, "value" + i);
+        }
+
+        template = PayloadTemplate.of(payload);
+    }
+
+    @Benchmark
+    public Map<String, Object> build() {
+        return payload.build();
+    }
+
+    /**
+     * A typical high fan-out case: the shared parts plus a per-process argument.
+     */
+    @Benchmark
+    public Map<String, Object> templateBuild() {
+        return template.newPayload()
+                .arg("run", 1)
+                .build();
+    }
+}
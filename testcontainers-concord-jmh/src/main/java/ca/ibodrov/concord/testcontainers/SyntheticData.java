@@ -0,0 +1,131 @@
+package ca.ibodrov.concord.testcontainers;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2020 Ivan Bodrov
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Random;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Generates reproducible data for benchmarks.
+ */
+final class SyntheticData {
+
+    private static final DateTimeFormatter TIMESTAMP = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSSZ")
+            .withZone(ZoneOffset.UTC);
+
+    private static final String[] LEVELS = {"INFO ", "INFO ", "INFO ", "DEBUG", "WARN "};
+
+    /**
+     * Returns a log similar to the ones produced by Concord processes.
+     * The {@code marker} line is added once, close to the end of the log.
+     */
+    static byte[] processLog(int lines, String marker) {
+        Random rng = new Random(42);
+        long t = Instant.parse("2020-01-01T00:00:00Z").toEpochMilli();
+
+        StringBuilder sb = new StringBuilder(lines * 96);
+        for (int i = 0; i < lines; i++) {
+            t += rng.nextInt(50);
+            sb.append(TIMESTAMP.format(Instant.ofEpochMilli(t)))
+                    .append(" [").append(LEVELS[rng.nextInt(LEVELS.length)]).append("] ");
+
+            if (i == lines - lines / 10 - 1) {
+                sb.append(marker);
+            } else {
+                sb.append("c.w.c.plugins.log.LoggingTaskV2 - step ").append(i)
+                        .append(" value=").append(Long.toHexString(rng.nextLong()));
+            }
+
+            sb.append('\n');
+        }
+
+        return sb.toString().getBytes(UTF_8);
+    }
+
+    /**
+     * Creates a directory similar to a typical flow directory: a few text files
+     * (well compressible) and {@code jars} binary files of {@code jarSize} bytes each
+     * (incompressible).
+     */
+    static Path flowDirectory(Path dst, int textFiles, int jars, int jarSize) throws IOException {
+        Random rng = new Random(42);
+
+        Files.createDirectories(dst);
+        Files.writeString(dst.resolve("concord.yml"), "flows:\n  default:\n    - log: Hello!\n");
+
+        Path flows = Files.createDirectories(dst.resolve("concord"));
+        for (int i = 0; i < textFiles; i++) {
+            StringBuilder sb = new StringBuilder("flows:\n  flow" + i + ":\n");
+            for (int j = 0; j < 200; j++) {
+                sb.append("    - log: \"step ").append(j).append(" value=").append(Long.toHexString(rng.nextLong())).append("\"\n");
+            }
+            Files.writeString(flows.resolve("flow" + i + ".concord.yml"), sb);
+        }
+
+        Path lib = Files.createDirectories(dst.resolve("lib"));
+        byte[] ab = new byte[jarSize];
+        for (int i = 0; i < jars; i++) {
+            rng.nextBytes(ab);
+            Files.write(lib.resolve("dep" + i + ".jar"), ab);
+        }
+
+        return dst;
+    }
+
+    /**
+     * Returns an {@code out.json} attachment with the specified number of
+     * variables: strings, numbers, lists and nested objects.
+     */
+    static byte[] outVariables(int vars) {
+        Random rng = new Random(42);
+
+        StringBuilder sb = new StringBuilder("{");
+        for (int i = 0; i < vars; i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append("\"var").append(i).append("\":");
+            int kind = i % 4;
+            if (kind == 0) {
+                sb.append('"').append(Long.toHexString(rng.nextLong())).append('"');
+            } else if (kind == 1) {
+                sb.append(rng.nextInt());
+            } else if (kind == 2) {
+                sb.append("[1,2,3,\"").append(Long.toHexString(rng.nextLong())).append("\"]");
+            } else {
+                sb.append("{\"name\":\"item").append(i).append("\",\"enabled\":true,\"size\":").append(rng.nextInt(1000)).append('}');
+            }
+        }
+        sb.append('}');
+
+        return sb.toString().getBytes(UTF_8);
+    }
+
+    private SyntheticData() {
+    }
+}
@@ -0,0 +1,113 @@
+package ca.ibodrov.concord.testcontainers.junit5;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2020 Ivan Bodrov
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import ca.ibodrov.concord.testcontainers.Fixture;
+import ca.ibodrov.concord.testcontainers.Payload;
+import com.walmartlabs.concord.client2.ApiClient;
+import com.walmartlabs.concord.client2.ApiException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static ca.ibodrov.concord.testcontainers.Utils.randomString;
+
+/**
+ * An organization and a project created for a single test. Allows tests to
+ * share the same Concord instance without interfering with each other.
+ * Inject it as a test method parameter:
+ * <pre>{@code
+ * @Test
+ * void test(ConcordNamespace ns) throws Exception {
+ *     concord.processes().start(ns.payload().concordYml(...));
+ * }
+ * }</pre>
+ * The org and the project are removed after the test. If the test class
+ * registers multiple rules, the namespace is created by the first one.
+ */
+public class ConcordNamespace {
+
+    private static final Logger log = LoggerFactory.getLogger(ConcordNamespace.class);
+
+    private final String prefix;
+    private final String orgName;
+    private final String projectName;
+    private final Fixture.Handle fixture;
+
+    private ConcordNamespace(String prefix, Fixture.Handle fixture) {
+        this.prefix = prefix;
+        this.orgName = prefix + "org";
+        this.projectName = prefix + "project";
+        this.fixture = fixture;
+    }
+
+    static ConcordNamespace create(ApiClient client) throws ApiException {
+        String prefix = "ns_" + randomString() + "_";
+        Fixture.Handle fixture = new Fixture()
+                .project(prefix + "org", prefix + "project")
+                .apply(client);
+        return new ConcordNamespace(prefix, fixture);
+    }
+
+    public String orgName() {
+        return orgName;
+    }
+
+    public String projectName() {
+        return projectName;
+    }
+
+    /**
+     * Tag to mark the processes started by the test.
+     */
+    public String tag() {
+        return prefix + "tag";
+    }
+
+    /**
+     * Returns a unique name for any other resource, e.g. a secret.
+     */
+    public String name(String name) {
+        return prefix + name;
+    }
+
+    /**
+     * Returns a new payload with the org, the project and the tag of the namespace.
+     */
+    public Payload payload() {
+        return new Payload()
+                .org(orgName)
+                .project(projectName)
+                .tag(tag());
+    }
+
+    void close() {
+        try {
+            fixture.close();
+        } catch (ApiException | RuntimeException e) {
+            log.warn("close -> error while removing the namespace {}: {}", prefix, e.getMessage());
+        }
+    }
+
+    @Override
+    public String toString() {
+        return orgName + "/" + projectName;
+    }
+}
@@ -0,0 +1,120 @@
+package ca.ibodrov.concord.testcontainers.junit5;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2020 Ivan Bodrov
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.junit.platform.engine.support.descriptor.ClassSource;
+import org.junit.platform.launcher.TestExecutionListener;
+import org.junit.platform.launcher.TestIdentifier;
+import org.junit.platform.launcher.TestPlan;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Starts the environments of {@link PrestartConcord} test classes once the
+ * test plan is ready, before any test class is executed. Registered
+ * automatically using {@code META-INF/services}. Can be disabled with
+ * {@code junit.platform.execution.listeners.deactivate}.
+ * <p/>
+ * Prestarted environments that weren't used by any test (e.g. when the
+ * class is filtered out or skipped) are stopped at the end of the test plan.
+ */
+public class ConcordPrestartListener implements TestExecutionListener {
+
+    private static final Logger log = LoggerFactory.getLogger(ConcordPrestartListener.class);
+
+    private final List<ConcordRuleBase<?>> rules = new ArrayList<>();
+    private ExecutorService executor;
+
+    @Override
+    public void testPlanExecutionStarted(TestPlan testPlan) {
+        Set<Class<?>> classes = new LinkedHashSet<>();
+        for (TestIdentifier root : testPlan.getRoots()) {
+            for (TestIdentifier id : testPlan.getDescendants(root)) {
+                id.getSource()
+                        .filter(ClassSource.class::isInstance)
+                        .map(s -> ((ClassSource) s).getJavaClass())
+                        .filter(c -> c.isAnnotationPresent(PrestartConcord.class))
+                        .ifPresent(classes::add);
+            }
+        }
+
+        if (classes.isEmpty()) {
+            return;
+        }
+
+        executor = Executors.newCachedThreadPool(new ThreadFactoryBuilder()
+                .setDaemon(true)
+                .setNameFormat("concord-prestart-%d")
+                .build());
+
+        for (Class<?> c : classes) {
+            for (ConcordRuleBase<?> rule : findRules(c)) {
+                if (rule.prestart(executor)) {
+                    log.info("testPlanExecutionStarted -> prestarting {} ({})", c.getName(), rule.mode());
+                    rules.add(rule);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void testPlanExecutionFinished(TestPlan testPlan) {
+        for (ConcordRuleBase<?> rule : rules) {
+            rule.cancelPrestart();
+        }
+        rules.clear();
+
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+    }
+
+    private static List<ConcordRuleBase<?>> findRules(Class<?> testClass) {
+        List<ConcordRuleBase<?>> result = new ArrayList<>();
+        for (Class<?> c = testClass; c != null && c != Object.class; c = c.getSuperclass()) {
+            for (Field f : c.getDeclaredFields()) {
+                if (!Modifier.isStatic(f.getModifiers()) || !ConcordRuleBase.class.isAssignableFrom(f.getType())) {
+                    continue;
+                }
+
+                try {
+                    f.setAccessible(true);
+                    Object rule = f.get(null);
+                    if (rule != null) {
+                        result.add((ConcordRuleBase<?>) rule);
+                    }
+                } catch (ReflectiveOperationException | RuntimeException | ExceptionInInitializerError e) {
+                    // the error will be reported by JUnit when the class is executed
+                    log.warn("findRules -> can't read {}.{}: {}", c.getName(), f.getName(), e.getMessage());
+                }
+            }
+        }
+        return result;
+    }
+}
@@ -22,53 +22,425 @@ package ca.ibodrov.concord.testcontainers.junit5;
 
 import ca.ibodrov.concord.testcontainers.Concord;
 import ca.ibodrov.concord.testcontainers.ConcordEnvironment;
-import ca.ibodrov.concord.testcontainers.ProcessLogStreamers;
+import ca.ibodrov.concord.testcontainers.ConcordMetrics;
+import ca.ibodrov.concord.testcontainers.ConfigurationKey;
+import ca.ibodrov.concord.testcontainers.ProcessTimelineRecorder;
+import com.walmartlabs.concord.client2.ApiException;
 import org.junit.jupiter.api.extension.*;
 
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+
+/**
+ * Starts the Concord environment before the tests and stops it afterwards.
+ * <p/>
+ * If registered using a static field, the environment is shared by all tests
+ * in the class (and all classes using the same field). Otherwise, a new
+ * environment is started for each test.
+ * <p/>
+ * Safe to use with the JUnit's parallel execution
+ * ({@code junit.jupiter.execution.parallel.enabled}). The environment is
+ * started by the first test that needs it and stopped after the last one.
+ * Tests can use {@link ConcordNamespace} parameters to get their own org
+ * and project. If multiple rules are registered, namespaces are created by
+ * the first one (see {@link org.junit.jupiter.api.Order}).
+ * <p/>
+ * In the {@link #shared(boolean)} mode, the environment is shared by all
+ * test classes with the same configuration and stopped at the end of
+ * the test run.
+ * <p/>
+ * Test classes annotated with {@link PrestartConcord} start their
+ * environments in background before the test execution begins.
+ * <p/>
+ * With {@link #standby(int)}, non-static rules take an environment booted
+ * in background while the previous tests were running.
+ * <p/>
+ * The time spent on Concord by each test (see {@link ConcordMetrics}) is
+ * published as report entries and summarized at the end of the test run.
+ */
 public class ConcordRuleBase<T extends Concord<T>>
-        extends Concord<T> implements BeforeAllCallback, BeforeEachCallback, AfterAllCallback, AfterEachCallback {
+        extends Concord<T> implements BeforeAllCallback, BeforeEachCallback, AfterAllCallback, AfterEachCallback, ParameterResolver {
+
+    private static final ExtensionContext.Namespace NAMESPACE = ExtensionContext.Namespace.create(ConcordRuleBase.class);
+
+    // shared by all rules of the same test or class
+    private static final String CLASS_METRICS_KEY = "classMetrics";
+    private static final String METHOD_METRICS_KEY = "methodMetrics";
+    private static final String METRICS_SUMMARY_KEY = "metricsSummary";
+    private static final String NAMESPACE_RESOLVER_KEY = "namespaceResolver";
+
+    // prestarted shared environments by configuration key
+    private static final Map<ConfigurationKey, ConcordRuleBase<?>> prestartedShared = new ConcurrentHashMap<>();
+
+    // per-instance keys, multiple rules can be registered in the same test class
+    private final Object classKey = new Object();
+    private final Object methodKey = new Object();
+    private final Object classNamespaceKey = new Object();
+    private final Object methodNamespaceKey = new Object();
+
+    private final Object lock = new Object();
+    private int users;
+    private CompletableFuture<Void> prestart;
 
-    private ConcordEnvironment env;
-    private boolean isNonStatic = false;
+    private boolean shared;
+
+    public boolean shared() {
+        return shared;
+    }
+
+    /**
+     * If {@code true}, the environment is reused by all rules with the same
+     * {@link #configurationKey()} and stopped once all tests are finished.
+     * Saves the startup time when multiple test classes use the same
+     * configuration. Disabled by default.
+     * <p/>
+     * Per-rule options, such as {@link #keyPairPoolSize(int)} and
+     * {@link #processTimeline(ProcessTimelineRecorder)}, are not supported
+     * in this mode.
+     */
+    public T shared(boolean shared) {
+        this.shared = shared;
+        return (T) this;
+    }
+
+    private int standby;
+
+    public int standby() {
+        return standby;
+    }
+
+    /**
+     * Number of environments to boot in background, ahead of time. Meant for
+     * non-static rules, i.e. when each test needs a fresh environment: while
+     * a test is running, the next environments are starting, and used
+     * environments are stopped in background. Requires more resources, at
+     * least {@code standby + 1} environments are running at the same time.
+     * Rules that differ only in listeners, dependencies or suppliers share
+     * the same environments, created using the options of the first rule.
+     * Ignored in the {@link #shared(boolean)} mode. Disabled by default.
+     */
+    public T standby(int standby) {
+        this.standby = standby;
+        return (T) this;
+    }
+
+    private StandbyEnvironments standbyEnvironments;
+
+    private boolean reportMetrics = true;
+
+    public boolean reportMetrics() {
+        return reportMetrics;
+    }
+
+    /**
+     * If {@code true}, the time spent on the environment startup, process
+     * waits and API calls, and the number of bytes transferred are published
+     * for each test using {@link ExtensionContext#publishReportEntry(Map)}.
+     * Enabled by default.
+     */
+    public T reportMetrics(boolean reportMetrics) {
+        this.reportMetrics = reportMetrics;
+        return (T) this;
+    }
 
     @Override
     public void beforeAll(ExtensionContext context) {
-        startEnvIfRequired();
+        bindMetrics(context, CLASS_METRICS_KEY);
+        acquire(context);
+        context.getStore(NAMESPACE).put(classKey, Boolean.TRUE);
     }
 
     @Override
     public void beforeEach(ExtensionContext context) {
-        if (env == null) {
-            isNonStatic = true;
-            startEnvIfRequired();
+        bindMetrics(context, METHOD_METRICS_KEY);
+
+        ExtensionContext.Store store = context.getStore(NAMESPACE);
+        // the store's lookup includes the parent (class) context
+        if (store.get(classKey) == null) {
+            acquire(context);
+            store.put(methodKey, Boolean.TRUE);
         }
     }
 
     @Override
     public void afterAll(ExtensionContext context) {
-        stopEnvIfRunning();
+        closeNamespace(context);
+
+        if (context.getStore(NAMESPACE).remove(classKey) != null) {
+            release();
+        }
+
+        publishMetrics(context, CLASS_METRICS_KEY);
     }
 
     @Override
     public void afterEach(ExtensionContext context) {
-        if (isNonStatic) {
-            stopEnvIfRunning();
+        if (context.getExecutionException().isPresent()) {
+            dumpLogsIfRequired(context);
+        }
+
+        closeNamespace(context);
+
+        if (context.getStore(NAMESPACE).remove(methodKey) != null) {
+            release();
+        }
+
+        publishMetrics(context, METHOD_METRICS_KEY);
+    }
+
+    @Override
+    public boolean supportsParameter(ParameterContext parameterContext, ExtensionContext extensionContext) {
+        if (parameterContext.getParameter().getType() != ConcordNamespace.class) {
+            return false;
+        }
+
+        // with multiple rules only the first registered one resolves namespaces,
+        // otherwise JUnit rejects the competing resolvers
+        Object resolver = extensionContext.getStore(NAMESPACE).getOrComputeIfAbsent(NAMESPACE_RESOLVER_KEY, k -> this);
+        return resolver == this;
+    }
+
+    @Override
+    public Object resolveParameter(ParameterContext parameterContext, ExtensionContext extensionContext) {
+        // one namespace per test (or per class for @BeforeAll/@AfterAll methods)
+        return extensionContext.getStore(NAMESPACE).getOrComputeIfAbsent(namespaceKey(extensionContext), k -> {
+            try {
+                return ConcordNamespace.create(apiClient());
+            } catch (ApiException e) {
+                throw new ParameterResolutionException("Error while creating a namespace: " + e.getMessage(), e);
+            }
+        }, ConcordNamespace.class);
+    }
+
+    private void closeNamespace(ExtensionContext context) {
+        // removed explicitly, the environment might be stopped before the context is closed
+        ConcordNamespace ns = context.getStore(NAMESPACE).remove(namespaceKey(context), ConcordNamespace.class);
+        if (ns != null) {
+            ns.close();
         }
     }
 
-    private void stopEnvIfRunning() {
-        if (env != null) {
-            env.close();
-            env = null;
+    private Object namespaceKey(ExtensionContext context) {
+        return context.getTestMethod().isPresent() ? methodNamespaceKey : classNamespaceKey;
+    }
+
+    private void dumpLogsIfRequired(ExtensionContext context) {
+        Path dir = dumpLogsOnFailure();
+        if (dir == null || environment() == null) {
+            return;
+        }
+
+        String name = context.getRequiredTestClass().getSimpleName() + "." + context.getDisplayName();
+        dumpCapturedLogs(dir.resolve(name.replaceAll("[^A-Za-z0-9._-]", "_")));
+    }
 
-            ProcessLogStreamers.stop();
+    private void bindMetrics(ExtensionContext context, String key) {
+        if (!reportMetrics) {
+            return;
         }
+
+        ConcordMetrics metrics = context.getStore(NAMESPACE).getOrComputeIfAbsent(key, k -> new ConcordMetrics(), ConcordMetrics.class);
+        ConcordMetrics.bind(metrics);
     }
 
-    private void startEnvIfRequired() {
-        if (env == null) {
-            env = initEnvironment();
+    private void publishMetrics(ExtensionContext context, String key) {
+        // published once, by the first rule
+        ExtensionContext.Store store = context.getStore(NAMESPACE);
+        ConcordMetrics metrics = store.remove(key, ConcordMetrics.class);
+
+        // restore the enclosing class' metrics, e.g. for @AfterAll methods
+        ConcordMetrics outer = store.get(CLASS_METRICS_KEY, ConcordMetrics.class);
+        if (outer != null) {
+            ConcordMetrics.bind(outer);
+        } else {
+            ConcordMetrics.unbind();
+        }
+
+        if (metrics == null) {
+            return;
+        }
+
+        context.publishReportEntry(metrics.toMap());
+
+        MetricsSummary summary = context.getRoot().getStore(NAMESPACE)
+                .getOrComputeIfAbsent(METRICS_SUMMARY_KEY, k -> new MetricsSummary(), MetricsSummary.class);
+        String name = context.getRequiredTestClass().getSimpleName();
+        if (context.getTestMethod().isPresent()) {
+            name += "." + context.getDisplayName();
+        }
+        summary.add(name, metrics);
+    }
+
+    private void acquire(ExtensionContext context) {
+        long t0 = System.nanoTime();
+        try {
+            doAcquire(context);
+        } finally {
+            ConcordMetrics metrics = ConcordMetrics.current();
+            if (metrics != null) {
+                metrics.recordStartup(System.nanoTime() - t0);
+            }
+        }
+    }
+
+    private void doAcquire(ExtensionContext context) {
+        synchronized (lock) {
+            if (users == 0) {
+                if (shared) {
+                    useEnvironment(sharedEnvironment(context));
+                } else if (standby > 0) {
+                    standbyEnvironments = standbyEnvironments(context);
+                    useEnvironment(standbyEnvironments.take(standby));
+                    startResources();
+                } else {
+                    startOrAwait();
+                }
+            }
+            users++;
+        }
+    }
+
+    private void release() {
+        synchronized (lock) {
+            if (--users > 0) {
+                return;
+            }
+
+            if (shared) {
+                // shared environments are stopped by the root context,
+                // but each rule has its own resources, e.g. log streamers
+                closeResources();
+            } else if (standbyEnvironments != null) {
+                // the rule can be reused before the environment is stopped,
+                // e.g. a static rule in multiple classes
+                ConcordEnvironment env = environment();
+                closeResources();
+                standbyEnvironments.discard(env::stop);
+                standbyEnvironments = null;
+            } else {
+                close();
+            }
+        }
+    }
+
+    private ConcordEnvironment sharedEnvironment(ExtensionContext context) {
+        // only the owner's start() runs, the other rules would silently ignore these
+        if (keyPairPoolSize() > 0) {
+            throw new IllegalStateException("keyPairPoolSize is not supported in the shared mode");
+        }
+        if (processTimeline() != null) {
+            throw new IllegalStateException("processTimeline is not supported in the shared mode");
+        }
+
+        ExtensionContext.Store store = context.getRoot().getStore(NAMESPACE);
+        return store.getOrComputeIfAbsent(configurationKey(), k -> {
+            ConcordRuleBase<?> owner = prestartedShared.remove(k);
+            return new SharedEnvironment(owner != null ? owner : this);
+        }, SharedEnvironment.class).owner.environment();
+    }
+
+    private StandbyEnvironments standbyEnvironments(ExtensionContext context) {
+        ExtensionContext.Store store = context.getRoot().getStore(NAMESPACE);
+        // non-static rules are created anew for each test, with new listeners, suppliers, etc.
+        return store.getOrComputeIfAbsent(List.of("standby", configurationKey().withoutReferences()), k -> new StandbyEnvironments(() -> {
+            ConcordEnvironment env = createEnvironment();
             env.start();
+            return env;
+        }), StandbyEnvironments.class);
+    }
+
+    /**
+     * Starts the environment asynchronously, {@link #beforeAll(ExtensionContext)}
+     * waits for the startup to finish. Returns {@code false} if the environment
+     * is already started or will be started by another rule.
+     *
+     * @see ConcordPrestartListener
+     */
+    boolean prestart(Executor executor) {
+        synchronized (lock) {
+            if (users > 0 || prestart != null) {
+                return false;
+            }
+
+            if (shared && prestartedShared.putIfAbsent(configurationKey(), this) != null) {
+                return false;
+            }
+
+            prestart = CompletableFuture.runAsync(this::start, executor);
+            return true;
+        }
+    }
+
+    /**
+     * Stops the prestarted environment if it wasn't used by any test.
+     */
+    void cancelPrestart() {
+        CompletableFuture<Void> f;
+        synchronized (lock) {
+            f = prestart;
+            prestart = null;
+            if (shared) {
+                prestartedShared.remove(configurationKey(), this);
+            }
+        }
+
+        if (f == null) {
+            return;
+        }
+
+        try {
+            f.join();
+        } catch (CompletionException e) {
+            // nothing to stop
+            return;
+        }
+
+        close();
+    }
+
+    private void startOrAwait() {
+        CompletableFuture<Void> f;
+        synchronized (lock) {
+            f = prestart;
+            prestart = null;
+        }
+
+        if (f == null) {
+            start();
+            return;
+        }
+
+        try {
+            f.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new RuntimeException("Error while starting the environment: " + cause.getMessage(), cause);
+        }
+    }
+
+    /**
+     * Keeps the first rule that started the environment, stops it at the end of the test run.
+     */
+    private static final class SharedEnvironment implements ExtensionContext.Store.CloseableResource {
+
+        private final ConcordRuleBase<?> owner;
+
+        private SharedEnvironment(ConcordRuleBase<?> owner) {
+            owner.startOrAwait();
+            this.owner = owner;
+        }
+
+        @Override
+        public void close() {
+            owner.close();
         }
     }
 }
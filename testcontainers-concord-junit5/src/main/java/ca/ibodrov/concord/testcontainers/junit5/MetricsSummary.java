@@ -0,0 +1,75 @@
+package ca.ibodrov.concord.testcontainers.junit5;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2020 Ivan Bodrov
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import ca.ibodrov.concord.testcontainers.ConcordMetrics;
+import org.junit.jupiter.api.extension.ExtensionContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Aggregates {@link ConcordMetrics} of all tests. Stored in the root
+ * extension context, the summary is logged at the end of the test run.
+ */
+final class MetricsSummary implements ExtensionContext.Store.CloseableResource {
+
+    private static final Logger log = LoggerFactory.getLogger(MetricsSummary.class);
+
+    private static final int TOP = 10;
+
+    private final ConcordMetrics total = new ConcordMetrics();
+    private final Map<String, ConcordMetrics> tests = new ConcurrentHashMap<>();
+
+    void add(String name, ConcordMetrics metrics) {
+        total.add(metrics);
+        tests.merge(name, metrics, (a, b) -> {
+            ConcordMetrics m = new ConcordMetrics();
+            m.add(a);
+            m.add(b);
+            return m;
+        });
+    }
+
+    String report() {
+        List<Map.Entry<String, ConcordMetrics>> l = new ArrayList<>(tests.entrySet());
+        l.sort(Comparator.comparingLong((Map.Entry<String, ConcordMetrics> e) -> e.getValue().startupMillis() + e.getValue().waitMillis()).reversed());
+
+        StringBuilder sb = new StringBuilder("Concord time, total: ").append(total);
+        sb.append("\nSlowest tests (startup + wait):");
+        for (Map.Entry<String, ConcordMetrics> e : l.subList(0, Math.min(TOP, l.size()))) {
+            sb.append("\n  ").append(e.getKey()).append(": ").append(e.getValue());
+        }
+        return sb.toString();
+    }
+
+    @Override
+    public void close() {
+        if (!tests.isEmpty()) {
+            log.info("close -> {}", report());
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package ca.ibodrov.concord.testcontainers.junit5;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2020 Ivan Bodrov
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import java.lang.annotation.*;
+
+/**
+ * Starts the Concord environments of the annotated test class as soon as
+ * the test plan is discovered, in background. The environments are taken
+ * from the static {@link ConcordRule} fields of the class:
+ * <pre>{@code
+ * @PrestartConcord
+ * class MyTest {
+ *
+ *     @RegisterExtension
+ *     static ConcordRule concord = new ConcordRule();
+ * }
+ * }</pre>
+ * While the environments are booting, JUnit can run other test classes.
+ * {@code beforeAll} waits for the environment to finish the startup.
+ * Environments of rules with the same configuration in the
+ * {@link ConcordRuleBase#shared(boolean) shared} mode are started only once.
+ *
+ * @see ConcordPrestartListener
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+@Documented
+@Inherited
+public @interface PrestartConcord {
+}
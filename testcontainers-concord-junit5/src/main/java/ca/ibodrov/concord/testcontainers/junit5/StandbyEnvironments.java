@@ -0,0 +1,127 @@
+package ca.ibodrov.concord.testcontainers.junit5;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2020 Ivan Bodrov
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import ca.ibodrov.concord.testcontainers.ConcordEnvironment;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.junit.jupiter.api.extension.ExtensionContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.function.Supplier;
+
+/**
+ * Keeps environments booting in background, so the next test gets an
+ * already started environment. Used environments are stopped in background
+ * too. Stored in the root extension context and closed at the end of the
+ * test run.
+ */
+final class StandbyEnvironments implements ExtensionContext.Store.CloseableResource {
+
+    private static final Logger log = LoggerFactory.getLogger(StandbyEnvironments.class);
+
+    private final Supplier<ConcordEnvironment> factory;
+    private final Deque<CompletableFuture<ConcordEnvironment>> standby = new ArrayDeque<>();
+    private final ExecutorService executor;
+
+    StandbyEnvironments(Supplier<ConcordEnvironment> factory) {
+        this.factory = factory;
+        this.executor = Executors.newCachedThreadPool(new ThreadFactoryBuilder()
+                .setDaemon(true)
+                .setNameFormat("concord-standby-%d")
+                .build());
+    }
+
+    /**
+     * Returns a started environment and starts booting new ones until
+     * there are {@code depth} environments on standby.
+     */
+    ConcordEnvironment take(int depth) {
+        CompletableFuture<ConcordEnvironment> next;
+        synchronized (standby) {
+            next = standby.poll();
+            if (next == null) {
+                next = boot();
+            }
+
+            while (standby.size() < depth) {
+                standby.add(boot());
+            }
+        }
+
+        long t0 = System.currentTimeMillis();
+        try {
+            ConcordEnvironment env = next.join();
+            log.info("take -> waited {}ms for the environment", System.currentTimeMillis() - t0);
+            return env;
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new RuntimeException("Error while starting the environment: " + cause.getMessage(), cause);
+        }
+    }
+
+    /**
+     * Stops a used environment in background.
+     */
+    void discard(Runnable stop) {
+        executor.execute(() -> {
+            try {
+                stop.run();
+            } catch (Exception e) {
+                log.warn("discard -> error while stopping the environment: {}", e.getMessage());
+            }
+        });
+    }
+
+    @Override
+    public void close() {
+        List<CompletableFuture<ConcordEnvironment>> pending;
+        synchronized (standby) {
+            pending = new ArrayList<>(standby);
+            standby.clear();
+        }
+
+        for (CompletableFuture<ConcordEnvironment> f : pending) {
+            discard(() -> f.join().stop());
+        }
+
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(5, TimeUnit.MINUTES)) {
+                log.warn("close -> timeout waiting for the standby environments to stop");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private CompletableFuture<ConcordEnvironment> boot() {
+        return CompletableFuture.supplyAsync(factory, executor);
+    }
+}
@@ -0,0 +1,83 @@
+package ca.ibodrov.concord.testcontainers.junit5;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2020 Ivan Bodrov
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import ca.ibodrov.concord.testcontainers.Concord;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@PrestartConcord
+public class ConcordPrestartTest {
+
+    @RegisterExtension
+    public static ConcordRule concord = newRule();
+
+    private static ConcordRule newRule() {
+        return new ConcordRule()
+                .mode(Concord.Mode.REMOTE)
+                .apiBaseUrl("http://localhost:8001")
+                .apiToken("test");
+    }
+
+    @Test
+    void testEnvironmentIsReady() {
+        assertNotNull(concord.environment());
+        assertEquals(8001, concord.apiPort());
+    }
+
+    @Test
+    void testPrestart() {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            ConcordRule rule = newRule();
+            assertTrue(rule.prestart(executor));
+            assertFalse(rule.prestart(executor));
+            rule.cancelPrestart();
+            assertNotNull(rule.environment());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testSharedPrestartedOnce() {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            ConcordRule a = newRule().shared(true);
+            ConcordRule b = newRule().shared(true);
+            assertTrue(a.prestart(executor));
+            assertFalse(b.prestart(executor));
+            a.cancelPrestart();
+            b.cancelPrestart();
+
+            // can be prestarted again once the previous one is cancelled
+            assertTrue(b.prestart(executor));
+            b.cancelPrestart();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
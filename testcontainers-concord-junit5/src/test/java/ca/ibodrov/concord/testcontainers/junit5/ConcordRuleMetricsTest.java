@@ -0,0 +1,60 @@
+package ca.ibodrov.concord.testcontainers.junit5;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2020 Ivan Bodrov
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import ca.ibodrov.concord.testcontainers.Concord;
+import ca.ibodrov.concord.testcontainers.ConcordMetrics;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.RepeatedTest;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ConcordRuleMetricsTest {
+
+    @RegisterExtension
+    public static ConcordRule concord = new ConcordRule()
+            .mode(Concord.Mode.REMOTE)
+            .apiBaseUrl("http://localhost:8001")
+            .apiToken("test");
+
+    private static ConcordMetrics classMetrics;
+
+    @BeforeAll
+    static void setUp() {
+        classMetrics = ConcordMetrics.current();
+        assertNotNull(classMetrics);
+    }
+
+    @AfterAll
+    static void tearDown() {
+        // the class' metrics are bound again after each test
+        assertSame(classMetrics, ConcordMetrics.current());
+    }
+
+    @RepeatedTest(2)
+    void testMethodMetrics() {
+        ConcordMetrics metrics = ConcordMetrics.current();
+        assertNotNull(metrics);
+        assertNotSame(classMetrics, metrics);
+    }
+}
@@ -0,0 +1,50 @@
+package ca.ibodrov.concord.testcontainers.junit5;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2020 Ivan Bodrov
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import ca.ibodrov.concord.testcontainers.Concord;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ConcordRuleMultipleTest {
+
+    @RegisterExtension
+    @Order(1)
+    public static ConcordRule concord = new ConcordRule()
+            .mode(Concord.Mode.DOCKER)
+            .useLocalMavenRepository(true);
+
+    @RegisterExtension
+    @Order(2)
+    public static ConcordRule other = new ConcordRule()
+            .mode(Concord.Mode.REMOTE)
+            .apiBaseUrl("http://localhost:1")
+            .apiToken("test");
+
+    @Test
+    void testNamespace(ConcordNamespace ns) throws Exception {
+        // resolved by the first rule only
+        assertTrue(concord.organizations().isExists(ns.orgName()));
+    }
+}
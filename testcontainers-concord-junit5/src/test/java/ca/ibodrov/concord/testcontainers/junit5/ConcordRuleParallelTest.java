@@ -0,0 +1,65 @@
+package ca.ibodrov.concord.testcontainers.junit5;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2020 Ivan Bodrov
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import ca.ibodrov.concord.testcontainers.Concord;
+import ca.ibodrov.concord.testcontainers.ConcordProcess;
+import com.walmartlabs.concord.client2.ProcessEntry;
+import com.walmartlabs.concord.client2.ProcessListFilter;
+import org.junit.jupiter.api.RepeatedTest;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.junit.jupiter.api.parallel.Execution;
+import org.junit.jupiter.api.parallel.ExecutionMode;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@Execution(ExecutionMode.CONCURRENT)
+public class ConcordRuleParallelTest {
+
+    @RegisterExtension
+    public static ConcordRule concord = new ConcordRule()
+            .mode(Concord.Mode.DOCKER)
+            .useLocalMavenRepository(true);
+
+    @RepeatedTest(4)
+    void testNamespace(ConcordNamespace ns) throws Exception {
+        assertTrue(concord.organizations().isExists(ns.orgName()));
+
+        String yml = """
+                flows:
+                  default:
+                    - log: Hello from ${projectInfo.projectName}!
+                """;
+
+        ConcordProcess p = concord.processes().start(ns.payload().concordYml(yml));
+        p.waitForStatus(ProcessEntry.StatusEnum.FINISHED);
+        p.assertLog(".*Hello from " + ns.projectName() + "!.*");
+
+        // only the processes of this test
+        List<ProcessEntry> l = concord.processes().list(ProcessListFilter.builder()
+                .addTags(ns.tag())
+                .build());
+        assertEquals(1, l.size());
+    }
+}
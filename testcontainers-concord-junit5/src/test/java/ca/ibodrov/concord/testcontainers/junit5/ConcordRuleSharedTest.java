@@ -0,0 +1,103 @@
+package ca.ibodrov.concord.testcontainers.junit5;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2020 Ivan Bodrov
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import ca.ibodrov.concord.testcontainers.Concord;
+import ca.ibodrov.concord.testcontainers.ConcordEnvironment;
+import ca.ibodrov.concord.testcontainers.ConcordProcess;
+import ca.ibodrov.concord.testcontainers.Payload;
+import com.walmartlabs.concord.client2.ProcessEntry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+public class ConcordRuleSharedTest {
+
+    private static final Set<ConcordEnvironment> environments = ConcurrentHashMap.newKeySet();
+
+    private static ConcordRule newRule() {
+        return new ConcordRule()
+                .mode(Concord.Mode.DOCKER)
+                .useLocalMavenRepository(true)
+                .shared(true);
+    }
+
+    @AfterAll
+    static void tearDown() {
+        assertEquals(1, environments.size());
+    }
+
+    @Test
+    void testConfigurationKey() {
+        assertEquals(newRule().configurationKey(), newRule().configurationKey());
+        assertNotEquals(newRule().configurationKey(), newRule().startAgent(false).configurationKey());
+
+        // suppliers can depend on containers that are not started yet
+        newRule().extraConfigurationSupplier(() -> {
+            throw new IllegalStateException("not started");
+        }).configurationKey();
+    }
+
+    @Nested
+    class First {
+
+        @RegisterExtension
+        static ConcordRule concord = newRule();
+
+        @Test
+        void test() throws Exception {
+            run(concord);
+        }
+    }
+
+    @Nested
+    class Second {
+
+        @RegisterExtension
+        static ConcordRule concord = newRule();
+
+        @Test
+        void test() throws Exception {
+            run(concord);
+        }
+    }
+
+    private static void run(ConcordRule concord) throws Exception {
+        environments.add(concord.environment());
+
+        String yml = """
+                flows:
+                  default:
+                    - log: Hello!
+                """;
+
+        ConcordProcess p = concord.processes().start(new Payload().concordYml(yml));
+        p.waitForStatus(ProcessEntry.StatusEnum.FINISHED);
+        p.assertLog(".*Hello!.*");
+    }
+}
@@ -0,0 +1,66 @@
+package ca.ibodrov.concord.testcontainers.junit5;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2020 Ivan Bodrov
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import ca.ibodrov.concord.testcontainers.Concord;
+import ca.ibodrov.concord.testcontainers.ContainerListener;
+import ca.ibodrov.concord.testcontainers.RemoteConcordEnvironment;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.RepeatedTest;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * A non-static standby rule with per-instance options, e.g. listeners.
+ */
+public class ConcordRuleStandbyListenerTest {
+
+    private static final AtomicInteger created = new AtomicInteger();
+
+    @RegisterExtension
+    public ConcordRule concord = new ConcordRule() {
+        @Override
+        protected RemoteConcordEnvironment createRemoteConcordEnvironment() {
+            created.incrementAndGet();
+            return super.createRemoteConcordEnvironment();
+        }
+    }
+            .mode(Concord.Mode.REMOTE)
+            .apiBaseUrl("http://localhost:8001")
+            .apiToken("test")
+            .standby(1)
+            // a new listener for each test
+            .containerListener(new ContainerListener() {
+            });
+
+    @AfterAll
+    static void tearDown() {
+        // one environment for each repetition and one on standby, all tests use the same pool
+        assertEquals(4, created.get());
+    }
+
+    @RepeatedTest(3)
+    void testSamePool() {
+    }
+}
@@ -0,0 +1,131 @@
+package ca.ibodrov.concord.testcontainers.junit5;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2020 Ivan Bodrov
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import ca.ibodrov.concord.testcontainers.Concord;
+import ca.ibodrov.concord.testcontainers.ConcordEnvironment;
+import ca.ibodrov.concord.testcontainers.ProcessTimelineRecorder;
+import ca.ibodrov.concord.testcontainers.RemoteConcordEnvironment;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The same static standby rule used by multiple classes.
+ */
+public class ConcordRuleStandbySharedRuleTest {
+
+    private static final List<ConcordEnvironment> used = new CopyOnWriteArrayList<>();
+    private static final Set<ConcordEnvironment> stopped = ConcurrentHashMap.newKeySet();
+    private static final Set<String> reportThreads = ConcurrentHashMap.newKeySet();
+
+    private static final ConcordRule rule = new ConcordRule() {
+        @Override
+        protected RemoteConcordEnvironment createRemoteConcordEnvironment() {
+            return new RemoteConcordEnvironment(this) {
+                @Override
+                public void stop() {
+                    stopped.add(this);
+                }
+            };
+        }
+    }
+            .processTimeline(new ProcessTimelineRecorder() {
+                @Override
+                public String report() {
+                    reportThreads.add(Thread.currentThread().getName());
+                    try {
+                        // a slow cleanup, the next class starts in the meantime
+                        Thread.sleep(200);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return super.report();
+                }
+            })
+            .mode(Concord.Mode.REMOTE)
+            .apiBaseUrl("http://localhost:8001")
+            .apiToken("test")
+            .standby(1);
+
+    @AfterAll
+    static void tearDown() {
+        assertEquals(2, used.size());
+        assertNotSame(used.get(0), used.get(1));
+
+        // the cleanup runs in the test thread, only the environments are stopped in background
+        assertFalse(reportThreads.isEmpty());
+        reportThreads.forEach(t -> assertFalse(t.startsWith("concord-standby"), t));
+    }
+
+    @Nested
+    class First {
+
+        @RegisterExtension
+        static ConcordRule concord = rule;
+
+        @Test
+        void test() throws Exception {
+            check(concord);
+        }
+    }
+
+    @Nested
+    class Second {
+
+        @RegisterExtension
+        static ConcordRule concord = rule;
+
+        @Test
+        void test() throws Exception {
+            check(concord);
+        }
+    }
+
+    private static void check(ConcordRule concord) throws InterruptedException {
+        ConcordEnvironment env = concord.environment();
+
+        // the previous class' environment is stopped in background
+        for (ConcordEnvironment prev : used) {
+            assertTrue(waitForStop(prev));
+        }
+
+        // and the current one is not affected
+        assertFalse(stopped.contains(env));
+        used.add(env);
+    }
+
+    private static boolean waitForStop(ConcordEnvironment env) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!stopped.contains(env) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        return stopped.contains(env);
+    }
+}
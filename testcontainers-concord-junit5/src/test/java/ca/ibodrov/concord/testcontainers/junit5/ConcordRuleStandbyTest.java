@@ -0,0 +1,85 @@
+package ca.ibodrov.concord.testcontainers.junit5;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2020 Ivan Bodrov
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import ca.ibodrov.concord.testcontainers.Concord;
+import ca.ibodrov.concord.testcontainers.ConcordEnvironment;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.RepeatedTest;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ConcordRuleStandbyTest {
+
+    private static final Set<ConcordEnvironment> environments = ConcurrentHashMap.newKeySet();
+
+    @RegisterExtension
+    public ConcordRule concord = new ConcordRule()
+            .mode(Concord.Mode.REMOTE)
+            .apiBaseUrl("http://localhost:8001")
+            .apiToken("test")
+            .standby(1);
+
+    @AfterAll
+    static void tearDown() {
+        // a fresh environment for each repetition
+        assertEquals(3, environments.size());
+    }
+
+    @RepeatedTest(3)
+    void testFreshEnvironment() {
+        assertTrue(environments.add(concord.environment()));
+    }
+
+    @Test
+    void testTake() throws Exception {
+        AtomicInteger started = new AtomicInteger();
+        StandbyEnvironments standby = new StandbyEnvironments(() -> {
+            started.incrementAndGet();
+            return concord.environment();
+        });
+
+        try {
+            assertNotNull(standby.take(2));
+            // one to use, two on standby
+            assertEquals(3, waitFor(started, 3));
+
+            assertNotNull(standby.take(2));
+            assertEquals(4, waitFor(started, 4));
+        } finally {
+            standby.close();
+        }
+    }
+
+    private static int waitFor(AtomicInteger counter, int expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (counter.get() < expected && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        return counter.get();
+    }
+}